@@ -0,0 +1,133 @@
+package com.example.mediator.benchmark;
+
+import com.example.mediator.dto.ClntDto;
+import com.example.mediator.utils.TypedJsonDecoder;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 將後端回應的 JSON 陣列解析為 DTO：原本的 List 版本 vs. TypedJsonDecoder (List 與逐筆解析的 Flux)
+ * <p>
+ * 回應以 8 KB 的 Netty pooled direct DataBuffer 分段 (與 WebClient 收到的相同)，解析後即釋放。
+ * 原本的 xxxDtoListAsync 以 new ParameterizedTypeReference&lt;List&lt;T&gt;&gt;() {} 解析，T 被抹除後得到 List&lt;LinkedHashMap&gt;
+ * (erasedList)，要取得 DTO 還需再轉換一次 (erasedListConverted)。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DtoDecodeBenchmark {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    @Param({"100", "10000"})
+    private int size;
+
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Jackson2JsonDecoder springDecoder = new Jackson2JsonDecoder(objectMapper);
+    private final TypedJsonDecoder typedDecoder = new TypedJsonDecoder(objectMapper, -1);
+    private final ResolvableType erasedListType = erasedListType();
+    private final ResolvableType dtoType = ResolvableType.forClass(ClntDto.class);
+    private final JavaType dtoListType = objectMapper.getTypeFactory().constructCollectionType(List.class, ClntDto.class);
+    private byte[] body;
+
+    @Setup
+    public void setup() {
+        springDecoder.setMaxInMemorySize(-1);
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"clientId\":\"C").append(String.format("%06d", i))
+                    .append("\",\"names\":\"客戶名稱-").append(i)
+                    .append("\",\"birthDate\":\"19").append(50 + i % 50).append("-0").append(1 + i % 9).append("-15")
+                    .append("\",\"sex\":\"").append(i % 2 == 0 ? 'M' : 'F').append("\"}");
+        }
+        body = json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 原本的 xxxDtoListAsync：元素為 LinkedHashMap
+     */
+    @Benchmark
+    public Object erasedList() {
+        return springDecoder.decodeToMono(chunks(), erasedListType, null, Collections.emptyMap()).block();
+    }
+
+    /**
+     * 原本的 xxxDtoListAsync 再以 ObjectMapper 轉為 List&lt;ClntDto&gt;
+     */
+    @Benchmark
+    public List<ClntDto> erasedListConverted() {
+        Object maps = springDecoder.decodeToMono(chunks(), erasedListType, null, Collections.emptyMap()).block();
+        return objectMapper.convertValue(maps, dtoListType);
+    }
+
+    /**
+     * TypedJsonDecoder：快取的 ObjectReader 直接解析為 List&lt;ClntDto&gt;
+     */
+    @Benchmark
+    public List<ClntDto> typedList() {
+        return typedDecoder.decodeList(chunks(), ClntDto.class).block();
+    }
+
+    /**
+     * xxxDtoFlux：邊接收邊逐筆解析，下游逐筆處理後即可回收
+     */
+    @Benchmark
+    public void flux(Blackhole blackhole) {
+        typedDecoder.decodeElements(chunks(), ClntDto.class)
+                .doOnNext(blackhole::consume)
+                .blockLast();
+    }
+
+    /**
+     * 對照組：WebClient 的 bodyToFlux (Jackson2JsonDecoder 以非阻塞 parser 將每個元素存入 TokenBuffer 後再解析)
+     */
+    @Benchmark
+    public void springFlux(Blackhole blackhole) {
+        springDecoder.decode(chunks(), dtoType, null, Collections.emptyMap())
+                .doOnNext(blackhole::consume)
+                .blockLast();
+    }
+
+    private Flux<DataBuffer> chunks() {
+        List<DataBuffer> chunks = new ArrayList<>(body.length / CHUNK_SIZE + 1);
+        for (int offset = 0; offset < body.length; offset += CHUNK_SIZE) {
+            DataBuffer chunk = bufferFactory.allocateBuffer(CHUNK_SIZE);
+            chunk.write(body, offset, Math.min(CHUNK_SIZE, body.length - offset));
+            chunks.add(chunk);
+        }
+        return Flux.fromIterable(chunks);
+    }
+
+    /**
+     * 與原本 xxxDtoListAsync 相同：在泛型方法內建立 ParameterizedTypeReference&lt;List&lt;T&gt;&gt;
+     */
+    private static <T> ResolvableType erasedListType() {
+        return ResolvableType.forType(new ParameterizedTypeReference<List<T>>() {});
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.mediator.benchmark;
+
+import com.example.mediator.service.AdmissionRejectedException;
+import com.example.mediator.service.ProxyErrorResponses;
+import com.example.mediator.utils.JsonUtils;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 代理錯誤對應為錯誤回應：原本每次組 JSON 與 headers vs. ProxyErrorResponses 預先組好固定訊息的回應
+ * <p>
+ * circuitOpen / connectRefused / timeout 為訊息固定的錯誤 (後端故障時的主要錯誤)，
+ * backendError 為其他例外 (固定訊息) 的 502，rateLimited 為含 Retry-After 的 429。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ErrorMappingBenchmark {
+
+    @Param({"circuitOpen", "connectRefused", "timeout", "backendError", "rateLimited"})
+    private String error;
+
+    private Throwable exception;
+
+    @Setup
+    public void setup() {
+        URI uri = URI.create("http://backend.internal:8080/clnt/findById");
+        switch (error) {
+            case "circuitOpen":
+                exception = CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("backend"));
+                break;
+            case "connectRefused":
+                exception = new WebClientRequestException(new ConnectException("Connection refused"),
+                        HttpMethod.GET, uri, new HttpHeaders());
+                break;
+            case "timeout":
+                exception = ReadTimeoutException.INSTANCE;
+                break;
+            case "rateLimited":
+                exception = new AdmissionRejectedException(429, "請求過於頻繁，請稍後再試", 1);
+                break;
+            default:
+                exception = new IllegalStateException("Unexpected end of stream: \"chunked\" body");
+                break;
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> original() {
+        return buildErrorResponse(exception);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> errorResponses() {
+        return ProxyErrorResponses.of(exception);
+    }
+
+    /**
+     * 原本 ProxyService 的 buildErrorResponse (加上准入控制的 429 / 503)
+     */
+    private static ResponseEntity<byte[]> buildErrorResponse(Throwable ex) {
+        int code = 502;
+        String message = "代理錯誤：" + ex.getMessage();
+
+        if (ex instanceof WebClientRequestException && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+
+        if (ex instanceof AdmissionRejectedException) {
+            code = ((AdmissionRejectedException) ex).getStatus();
+            message = ex.getMessage();
+        } else if (ex instanceof CallNotPermittedException) {
+            code = 503;
+            message = "後端服務暫時停用 (斷路器開啟)";
+        } else if (ex instanceof BulkheadFullException) {
+            code = 503;
+            message = "後端服務忙碌中 (同時請求數已達上限)";
+        } else if (ex instanceof ConnectException) {
+            code = 503;
+            message = "無法連接後端服務";
+        } else if (ex instanceof java.net.SocketTimeoutException || ex instanceof ReadTimeoutException
+                || ex instanceof java.util.concurrent.TimeoutException) {
+            code = 504;
+            message = "連線逾時";
+        } else if (ex instanceof IllegalArgumentException) {
+            code = 400;
+            message = ex.getMessage();
+        }
+
+        byte[] errorBytes = ("{\"code\":" + code + ",\"message\":\"" + JsonUtils.escape(message) + "\"}").getBytes(StandardCharsets.UTF_8);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (ex instanceof AdmissionRejectedException) {
+            headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(((AdmissionRejectedException) ex).getRetryAfterSeconds()));
+        }
+
+        return ResponseEntity.status(code).headers(headers).body(errorBytes);
+    }
+}
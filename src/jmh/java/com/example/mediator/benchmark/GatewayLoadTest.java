@@ -0,0 +1,157 @@
+package com.example.mediator.benchmark;
+
+import com.example.mediator.ApiMediatorApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.netty.DisposableServer;
+import reactor.netty.resources.LoopResources;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 端對端效能測試：於同一個 JVM 啟動後端 (固定延遲與回應大小) 與中台，送出負載並統計中台的成本
+ * <p>
+ * 輸出吞吐量、延遲分布 (p50 / p90 / p99 / max)，以及統計期間中台執行緒的配置量與 CPU 時間 (每秒與每個請求)。
+ * 後端、送出負載與取樣的執行緒名稱皆以 load- 開頭並使用各自的 event loop，不計入中台；
+ * GC 次數與時間為整個 JVM，後端連線數為整個測試期間 (含暖機) 後端接受的連線數。不需連網，單機即可執行：
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.example.mediator.benchmark.GatewayLoadTest \
+ *     -Djmh.args="servlet 200 20 5 20 512"
+ * GatewayLoadTest [servlet|edge] [connections=200] [seconds=20] [warmupSeconds=5] [delayMs=20] [bodyBytes=512] [--spring 參數...]
+ * </pre>
+ * 中台只設定一個指向後端的路由 (path: bench)，其餘設定 (例如 --proxy.apis[0].cache.enabled=true) 可接在參數後面。
+ */
+public class GatewayLoadTest {
+
+    private static final String HARNESS_THREAD_PREFIX = "load-";
+
+    public static void main(String[] args) throws InterruptedException {
+        String mode = args.length > 0 ? args[0] : "servlet";
+        if (!"servlet".equals(mode) && !"edge".equals(mode)) {
+            System.out.println("usage: GatewayLoadTest [servlet|edge] [connections] [seconds] [warmupSeconds] [delayMs] [bodyBytes] [--spring 參數...]");
+            return;
+        }
+        int connections = intArg(args, 1, 200);
+        int seconds = intArg(args, 2, 20);
+        int warmupSeconds = intArg(args, 3, 5);
+        int delayMs = intArg(args, 4, 20);
+        int bodyBytes = intArg(args, 5, 512);
+
+        Thread.currentThread().setName(HARNESS_THREAD_PREFIX + "main");
+        LoopResources stubLoops = LoopResources.create(HARNESS_THREAD_PREFIX + "stub");
+        LoopResources clientLoops = LoopResources.create(HARNESS_THREAD_PREFIX + "client");
+        DisposableServer stub = ProxyLoadTest.startStub(0, delayMs, bodyBytes, stubLoops);
+        ConfigurableApplicationContext gateway = startGateway(mode, stub.port(), connections, springArgs(args));
+        String url = "http://localhost:" + gateway.getEnvironment().getProperty("local.server.port") + "/proxy/bench/x";
+
+        // 暖機結束時記錄中台執行緒的配置量與 CPU 時間
+        AtomicReference<Map<Long, long[]>> before = new AtomicReference<>();
+        long[] gcBefore = new long[2];
+        Thread sampler = new Thread(() -> {
+            try {
+                Thread.sleep(warmupSeconds * 1000L);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            before.set(gatewayThreadUsage());
+            System.arraycopy(gcUsage(), 0, gcBefore, 0, 2);
+        }, HARNESS_THREAD_PREFIX + "sampler");
+        sampler.start();
+        ProxyLoadTest.Result result = ProxyLoadTest.load(url, connections, seconds, warmupSeconds, clientLoops);
+        Map<Long, long[]> after = gatewayThreadUsage();
+        long[] gcAfter = gcUsage();
+        sampler.join();
+
+        long allocatedBytes = 0;
+        long cpuNanos = 0;
+        for (Map.Entry<Long, long[]> entry : after.entrySet()) {
+            long[] start = before.get().getOrDefault(entry.getKey(), new long[2]);
+            allocatedBytes += entry.getValue()[0] - start[0];
+            cpuNanos += entry.getValue()[1] - start[1];
+        }
+        long requests = Math.max(1, result.latencies.length + result.errors);
+
+        System.out.println(String.format("mode=%s connections=%d seconds=%d delay=%dms body=%dB",
+                mode, connections, seconds, delayMs, bodyBytes));
+        System.out.println(result);
+        System.out.println(String.format("gateway alloc=%.1f MB/s (%.1f KB/req) cpu=%.0f%% (%.0f us/req)",
+                allocatedBytes / 1e6 / seconds, allocatedBytes / 1024.0 / requests,
+                cpuNanos / 1e7 / seconds, cpuNanos / 1e3 / requests));
+        System.out.println(String.format("jvm gc=%d collections, %d ms", gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1]));
+        System.out.println(String.format("backend connections=%d", ProxyLoadTest.stubConnections.get()));
+
+        gateway.close();
+        stub.disposeNow();
+        clientLoops.dispose();
+        stubLoops.dispose();
+    }
+
+    /**
+     * 以只有一個路由 (path: bench) 的設定啟動中台，port 隨機
+     */
+    private static ConfigurableApplicationContext startGateway(String mode, int backendPort, int connections, List<String> extraArgs) {
+        List<String> gatewayArgs = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--proxy.apis[0].name=bench",
+                "--proxy.apis[0].path=bench",
+                "--proxy.apis[0].url=http://localhost:" + backendPort,
+                "--proxy.apis[0].pool.max-connections=" + connections,
+                "--proxy.api-docs.refresh-interval=1h",
+                "--logging.level.root=WARN"));
+        gatewayArgs.addAll(extraArgs);
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(ApiMediatorApplication.class);
+        if ("edge".equals(mode)) {
+            builder.profiles("edge");
+        }
+        return builder.run(gatewayArgs.toArray(new String[0]));
+    }
+
+    /**
+     * 中台執行緒 (名稱不以 load- 開頭) 目前的配置量與 CPU 時間，以執行緒 id 區分
+     */
+    private static Map<Long, long[]> gatewayThreadUsage() {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Map<Long, long[]> usage = new HashMap<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(HARNESS_THREAD_PREFIX)) {
+                continue;
+            }
+            long id = thread.getId();
+            usage.put(id, new long[]{threadBean.getThreadAllocatedBytes(id), Math.max(0, threadBean.getThreadCpuTime(id))});
+        }
+        return usage;
+    }
+
+    /**
+     * 整個 JVM 的 GC 次數與時間 (ms)
+     */
+    private static long[] gcUsage() {
+        long[] usage = new long[2];
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            usage[0] += Math.max(0, gc.getCollectionCount());
+            usage[1] += Math.max(0, gc.getCollectionTime());
+        }
+        return usage;
+    }
+
+    private static List<String> springArgs(String[] args) {
+        List<String> springArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                springArgs.add(arg);
+            }
+        }
+        return springArgs;
+    }
+
+    private static int intArg(String[] args, int index, int defaultValue) {
+        return args.length > index && !args[index].startsWith("--") ? Integer.parseInt(args[index]) : defaultValue;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.mediator.benchmark;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+/**
+ * 負載測試的延遲紀錄 (本身不做同步，跨執行緒使用時由呼叫端負責)
+ */
+final class LatencyRecorder {
+
+    private long[] values = new long[1024];
+    private int size;
+
+    void record(long nanos) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = nanos;
+    }
+
+    /**
+     * 合併多個紀錄並排序
+     */
+    static long[] merge(Collection<LatencyRecorder> recorders) {
+        return recorders.stream()
+                .flatMapToLong(recorder -> Arrays.stream(recorder.values, 0, recorder.size))
+                .sorted()
+                .toArray();
+    }
+
+    /**
+     * 輸出排序後延遲的 p50 / p90 / p99 / max
+     */
+    static String percentiles(long[] sorted) {
+        if (sorted.length == 0) {
+            return "no samples";
+        }
+        return Arrays.stream(new double[]{0.5, 0.9, 0.99, 1.0})
+                .mapToObj(p -> String.format("p%s=%.1fms", p == 1.0 ? "max" : String.valueOf((int) (p * 100)),
+                        sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6))
+                .collect(Collectors.joining(" "));
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.mediator.benchmark;
+
+import com.example.mediator.config.properties.ProxyProperties;
+import com.example.mediator.service.AdmissionRejectedException;
+import com.example.mediator.service.ProxyAdmission;
+import com.example.mediator.service.ProxyRoute;
+import com.example.mediator.service.ProxyRouteTable;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 准入控制每個請求的成本：後端 / 用戶端速率限制 (通過與拒絕) 與同時請求數上限
+ * <p>
+ * 用戶端 key 由 10000 個中輪流取用 (Caffeine 查詢)；unlimited 為未啟用時的對照組。
+ * 路由由路由表建立 (與執行時相同)，不在路由表中的路由會被視為已停用的舊路由而每次建立新的狀態。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProxyAdmissionBenchmark {
+
+    private static final int CLIENT_COUNT = 10000;
+
+    private final Mono<String> call = Mono.just("ok");
+    private ProxyAdmission admission;
+    private ProxyRoute unlimitedRoute;
+    private ProxyRoute routeLimitedRoute;
+    private ProxyRoute clientLimitedRoute;
+    private ProxyRoute rejectingRoute;
+    private ProxyRoute concurrencyLimitedRoute;
+    private String[] clientIps;
+    private int index;
+
+    @Setup
+    public void setup() {
+        ProxyProperties properties = new ProxyProperties();
+        properties.setApis(List.of(
+                api("unlimited", api -> { }),
+                api("route", api -> {
+                    api.getRateLimit().setEnabled(true);
+                    api.getRateLimit().setRouteRequestsPerSecond(1e9);
+                }),
+                api("client", api -> {
+                    api.getRateLimit().setEnabled(true);
+                    api.getRateLimit().setRouteRequestsPerSecond(1e9);
+                    api.getRateLimit().setClientRequestsPerSecond(1e9);
+                }),
+                api("rejecting", api -> {
+                    api.getRateLimit().setEnabled(true);
+                    api.getRateLimit().setRouteRequestsPerSecond(1);
+                    api.getRateLimit().setRouteBurst(1);
+                }),
+                api("concurrency", api -> api.getConcurrencyLimit().setEnabled(true))));
+        ProxyRouteTable routeTable = new ProxyRouteTable(properties, event -> {});
+        admission = new ProxyAdmission(routeTable, new SimpleMeterRegistry());
+        unlimitedRoute = routeTable.find("unlimited");
+        routeLimitedRoute = routeTable.find("route");
+        clientLimitedRoute = routeTable.find("client");
+        rejectingRoute = routeTable.find("rejecting");
+        concurrencyLimitedRoute = routeTable.find("concurrency");
+        clientIps = new String[CLIENT_COUNT];
+        for (int i = 0; i < CLIENT_COUNT; i++) {
+            clientIps[i] = "10.0." + (i / 256) + "." + (i % 256);
+        }
+    }
+
+    @Benchmark
+    public AdmissionRejectedException unlimited() {
+        return admission.checkRateLimit(unlimitedRoute, null, nextClientIp());
+    }
+
+    @Benchmark
+    public AdmissionRejectedException routeRateLimit() {
+        return admission.checkRateLimit(routeLimitedRoute, null, nextClientIp());
+    }
+
+    @Benchmark
+    public AdmissionRejectedException clientRateLimit() {
+        return admission.checkRateLimit(clientLimitedRoute, null, nextClientIp());
+    }
+
+    /**
+     * 超過限制：建立 429 的例外 (不記錄 stack trace)
+     */
+    @Benchmark
+    public AdmissionRejectedException rejected() {
+        return admission.checkRateLimit(rejectingRoute, null, nextClientIp());
+    }
+
+    /**
+     * 對照組：不經過同時請求數上限訂閱呼叫
+     */
+    @Benchmark
+    public void callWithoutLimit(Blackhole blackhole) {
+        call.subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void callWithConcurrencyLimit(Blackhole blackhole) {
+        admission.limitConcurrency(concurrencyLimitedRoute, call).subscribe(blackhole::consume);
+    }
+
+    private String nextClientIp() {
+        index = (index + 1) % CLIENT_COUNT;
+        return clientIps[index];
+    }
+
+    private static ProxyProperties.ProxyApi api(String path, Consumer<ProxyProperties.ProxyApi> config) {
+        ProxyProperties.ProxyApi api = new ProxyProperties.ProxyApi();
+        api.setName(path);
+        api.setPath(path);
+        api.setUrl("http://" + path + ".internal:8080");
+        config.accept(api);
+        return api;
+    }
+}
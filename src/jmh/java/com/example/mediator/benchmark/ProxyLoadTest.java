@@ -0,0 +1,171 @@
+package com.example.mediator.benchmark;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 端對端負載測試：比較 Servlet 模式與 WebFlux (edge) 模式在大量並行連線下的表現
+ * <p>
+ * stub：啟動固定延遲的後端 (Netty，不會成為瓶頸)<br>
+ * run：以固定數量的 keep-alive 連線持續送出 GET，暖機後統計吞吐量與延遲分布
+ * <pre>
+ * ProxyLoadTest stub [port=9095] [delayMs=20] [bodyBytes=512]
+ * ProxyLoadTest run &lt;url&gt; [connections=200] [seconds=20] [warmupSeconds=5]
+ * </pre>
+ * 後端與送出負載的邏輯亦供 {@link GatewayLoadTest} 使用。
+ */
+public class ProxyLoadTest {
+
+    static final AtomicLong stubConnections = new AtomicLong();    // 後端累計接受的連線數
+
+    public static void main(String[] args) {
+        if (args.length > 0 && "stub".equals(args[0])) {
+            stub(intArg(args, 1, 9095), intArg(args, 2, 20), intArg(args, 3, 512));
+        } else if (args.length > 1 && "run".equals(args[0])) {
+            run(args[1], intArg(args, 2, 200), intArg(args, 3, 20), intArg(args, 4, 5));
+        } else {
+            System.out.println("usage: ProxyLoadTest stub [port] [delayMs] [bodyBytes]");
+            System.out.println("       ProxyLoadTest run <url> [connections] [seconds] [warmupSeconds]");
+        }
+    }
+
+    /**
+     * 啟動固定延遲的後端
+     */
+    private static void stub(int port, int delayMs, int bodyBytes) {
+        DisposableServer server = startStub(port, delayMs, bodyBytes, LoopResources.create("load-stub"));
+        System.out.println("stub backend on port " + server.port() + ", delay " + delayMs + "ms, body " + bodyBytes + " bytes");
+        server.onDispose().block();
+    }
+
+    /**
+     * 啟動固定延遲的後端 (HTTP/1.1 與 h2c)
+     *
+     * @param port      port，0 表示隨機
+     * @param delayMs   每個請求的延遲
+     * @param bodyBytes 回應 body 的大小
+     * @param loops     後端使用的 event loop (與受測程式分開，才能區分各自的 CPU 與配置；延遲另以 load-stub-timer 執行緒計時)
+     * @return 已啟動的後端
+     */
+    static DisposableServer startStub(int port, int delayMs, int bodyBytes, LoopResources loops) {
+        byte[] body = new byte[bodyBytes];
+        Arrays.fill(body, (byte) 'x');
+        Duration delay = Duration.ofMillis(delayMs);
+        Scheduler timer = Schedulers.newSingle("load-stub-timer", true);
+        return HttpServer.create()
+                .port(port)
+                .runOn(loops)
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .doOnChannelInit((observer, channel, address) -> stubConnections.incrementAndGet())
+                .handle((request, response) -> request.receive().then()
+                        .then(Mono.delay(delay, timer))
+                        .then(response.header(HttpHeaderNames.CONTENT_TYPE, "application/octet-stream")
+                                .header(HttpHeaderNames.CONTENT_LENGTH, String.valueOf(body.length))
+                                .sendByteArray(Mono.just(body))
+                                .then()))
+                .bindNow();
+    }
+
+    /**
+     * 以 connections 條連線持續送出請求，每條連線同時只有一個請求在途
+     */
+    private static void run(String url, int connections, int seconds, int warmupSeconds) {
+        LoopResources loops = LoopResources.create("load-client");
+        Result result = load(url, connections, seconds, warmupSeconds, loops);
+        loops.dispose();
+        System.out.println(String.format("url=%s connections=%d seconds=%d", url, connections, seconds));
+        System.out.println(result);
+    }
+
+    /**
+     * 以 connections 條連線持續送出請求，暖機 warmupSeconds 秒後統計 seconds 秒
+     *
+     * @param url           請求網址
+     * @param connections   連線數 (同時在途的請求數)
+     * @param seconds       統計的秒數
+     * @param warmupSeconds 暖機的秒數
+     * @param loops         送出請求使用的 event loop
+     * @return 統計結果
+     */
+    static Result load(String url, int connections, int seconds, int warmupSeconds, LoopResources loops) {
+        ConnectionProvider provider = ConnectionProvider.builder("load-test")
+                .maxConnections(connections)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        HttpClient client = HttpClient.create(provider).runOn(loops);
+
+        long measureStart = System.nanoTime() + Duration.ofSeconds(warmupSeconds).toNanos();
+        long deadline = measureStart + Duration.ofSeconds(seconds).toNanos();
+        AtomicLong errors = new AtomicLong();
+
+        List<LatencyRecorder> recorders = Flux.range(0, connections)
+                .flatMap(i -> {
+                    LatencyRecorder recorder = new LatencyRecorder();     // 每條連線同一時間只有一個請求，不需同步
+                    return Mono.defer(() -> {
+                                long start = System.nanoTime();
+                                return client.get().uri(url)
+                                        .responseSingle((response, body) -> body.then(Mono.just(response.status().code())))
+                                        .doOnNext(status -> {
+                                            if (status >= 400) {
+                                                errors.incrementAndGet();
+                                            } else if (start >= measureStart) {
+                                                recorder.record(System.nanoTime() - start);
+                                            }
+                                        })
+                                        .onErrorResume(ex -> {
+                                            errors.incrementAndGet();
+                                            return Mono.empty();
+                                        });
+                            })
+                            .repeat(() -> System.nanoTime() < deadline)
+                            .then(Mono.just(recorder));
+                }, connections)
+                .collectList()
+                .block();
+        provider.dispose();
+        return new Result(LatencyRecorder.merge(recorders), errors.get(), seconds);
+    }
+
+    private static int intArg(String[] args, int index, int defaultValue) {
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+
+    /**
+     * 負載測試的統計結果 (成功請求的延遲已排序)
+     */
+    static final class Result {
+        final long[] latencies;
+        final long errors;
+        final int seconds;
+
+        private Result(long[] latencies, long errors, int seconds) {
+            this.latencies = latencies;
+            this.errors = errors;
+            this.seconds = seconds;
+        }
+
+        double throughput() {
+            return latencies.length / (double) seconds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("requests=%d errors=%d throughput=%.0f req/s", latencies.length, errors, throughput())
+                    + System.lineSeparator() + LatencyRecorder.percentiles(latencies);
+        }
+    }
+}
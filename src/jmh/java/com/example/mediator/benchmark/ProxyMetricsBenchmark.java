@@ -0,0 +1,71 @@
+package com.example.mediator.benchmark;
+
+import com.example.mediator.config.properties.ProxyProperties;
+import com.example.mediator.service.ProxyAccessLog;
+import com.example.mediator.service.ProxyMetrics;
+import com.example.mediator.service.ProxyRoute;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 每個代理請求記錄指標與 access log 的成本 (PrometheusMeterRegistry，p50 / p99 / p999 + histogram)
+ * <p>
+ * 所有執行緒共用同一組 Meter，可加上 -t 觀察多執行緒同時記錄的情況，搭配 -prof gc 看每次請求的配置量。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProxyMetricsBenchmark {
+
+    private ProxyMetrics proxyMetrics;
+    private ProxyRoute route;
+    private ResponseEntity<byte[]> responseEntity;
+    private Mono<ResponseEntity<byte[]>> backendCall;
+
+    @Setup
+    public void setup() {
+        // access log 依預設設定抽樣放入 ring buffer，只量測請求執行緒的成本，不實際輸出
+        Logger.getLogger("com.example.mediator.access").setLevel(Level.OFF);
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        proxyMetrics = new ProxyMetrics(registry, new ProxyAccessLog(new ProxyProperties(), registry));
+        ProxyProperties.ProxyApi api = new ProxyProperties.ProxyApi();
+        api.setPath("bench");
+        api.setUrl("http://localhost:9091");
+        route = new ProxyRoute(api);
+        responseEntity = ResponseEntity.ok(new byte[512]);
+        backendCall = Mono.just(responseEntity);
+    }
+
+    /**
+     * 完整 body 模式：request 大小、呼叫後端時間、中台時間、總時間與回應大小
+     */
+    @Benchmark
+    public ResponseEntity<byte[]> recordExchange() {
+        ProxyMetrics.Exchange exchange = proxyMetrics.start(route, HttpMethod.GET, "/proxy/bench/clients");
+        exchange.requestBytes(128);
+        ResponseEntity<byte[]> response = exchange.upstream(backendCall).block();
+        return exchange.complete(response, response.getBody().length);
+    }
+
+    /**
+     * 對照組：同樣組成的 Mono 呼叫但不記錄指標
+     */
+    @Benchmark
+    public ResponseEntity<byte[]> baseline() {
+        return backendCall.doOnSuccess(response -> {}).doOnError(ex -> {}).block();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.mediator.benchmark;
+
+import com.example.mediator.config.properties.ProxyProperties;
+import com.example.mediator.service.ProxyRoute;
+import com.example.mediator.service.ProxyRouteTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 路由查詢：原本的 stream().filter 線性搜尋 vs. ProxyRouteTable hash 查詢
+ * <p>
+ * 兩者皆包含組出後端完整網址的成本。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RouteLookupBenchmark {
+
+    private static final int KEY_COUNT = 1024;
+
+    @Param({"10", "100", "1000"})
+    private int routeCount;
+
+    private List<ProxyProperties.ProxyApi> apis;
+    private ProxyRouteTable routeTable;
+    private String[] backendNames;
+    private String[] requestUris;
+    private int index;
+
+    @Setup
+    public void setup() {
+        apis = new ArrayList<>();
+        for (int i = 0; i < routeCount; i++) {
+            ProxyProperties.ProxyApi api = new ProxyProperties.ProxyApi();
+            api.setName("backend-" + i);
+            api.setPath("backend" + i);
+            api.setUrl("http://backend-" + i + ".internal:8080");
+            apis.add(api);
+        }
+        ProxyProperties properties = new ProxyProperties();
+        properties.setApis(apis);
+        routeTable = new ProxyRouteTable(properties, event -> {});
+
+        Random random = new Random(42);
+        backendNames = new String[KEY_COUNT];
+        requestUris = new String[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            String path = "backend" + random.nextInt(routeCount);
+            backendNames[i] = path;
+            requestUris[i] = "/proxy/" + path + "/clnt/findById";
+        }
+    }
+
+    @Benchmark
+    public String linearScan() {
+        int i = nextIndex();
+        String backendName = backendNames[i];
+        var proxyApi = apis.stream()
+                .filter(api -> backendName.equals(api.getPath()))
+                .findFirst().orElse(null);
+        String prefix = "/proxy/" + proxyApi.getPath();
+        String requestPath = requestUris[i].replace(prefix, "");
+        return proxyApi.getUrl() + requestPath + "?" + "clientId=A123";
+    }
+
+    @Benchmark
+    public String routeTable() {
+        int i = nextIndex();
+        ProxyRoute route = routeTable.find(backendNames[i]);
+        return route.buildBackendUrl(requestUris[i], "clientId=A123");
+    }
+
+    private int nextIndex() {
+        index = (index + 1) & (KEY_COUNT - 1);
+        return index;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.mediator.benchmark;
+
+import com.example.mediator.config.properties.ApiClientProperties;
+import com.example.mediator.utils.ApiWebClientUtils;
+import com.example.mediator.utils.VirtualThreads;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 阻塞呼叫 (ApiWebClientUtils 的 block()) 在平台執行緒池與虛擬執行緒下的並行能力
+ * <p>
+ * 固定維持 concurrency 個請求在途 (模擬同時進來的請求)，每個請求以一條執行緒阻塞呼叫後端，
+ * 延遲包含等待執行緒的排隊時間。以固定的 -Xmx 執行，比較相同記憶體下的吞吐量、延遲與執行緒數。
+ * 後端可用 ProxyLoadTest stub 啟動。
+ * <pre>
+ * VirtualThreadLoadTest platform &lt;baseUrl&gt; [concurrency=1000] [seconds=15] [platformThreads=200] [warmupSeconds=5]
+ * VirtualThreadLoadTest virtual  &lt;baseUrl&gt; [concurrency=1000] [seconds=15]   (需 JDK 21 以上)
+ * </pre>
+ */
+public class VirtualThreadLoadTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 2 || !("platform".equals(args[0]) || "virtual".equals(args[0]))) {
+            System.out.println("usage: VirtualThreadLoadTest platform|virtual <baseUrl> [concurrency] [seconds] [platformThreads] [warmupSeconds]");
+            return;
+        }
+        boolean virtual = "virtual".equals(args[0]);
+        String baseUrl = args[1];
+        int concurrency = intArg(args, 2, 1000);
+        int seconds = intArg(args, 3, 15);
+        int platformThreads = intArg(args, 4, 200);
+        int warmupSeconds = intArg(args, 5, 5);
+
+        if (virtual && !VirtualThreads.isSupported()) {
+            System.out.println("virtual threads require JDK 21+, running on " + System.getProperty("java.version"));
+            return;
+        }
+
+        ApiClientProperties properties = new ApiClientProperties();
+        properties.setMaxConnections(concurrency);
+        properties.setPendingAcquireMaxCount(-1);
+        ApiWebClientUtils apiWebClientUtils = new ApiWebClientUtils(WebClient.builder(), properties, new ObjectMapper());
+        ExecutorService executor = virtual ? VirtualThreads.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(platformThreads);
+
+        Semaphore inFlight = new Semaphore(concurrency);
+        LatencyRecorder recorder = new LatencyRecorder();
+        AtomicLong errors = new AtomicLong();
+        long measureStart = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long deadline = measureStart + TimeUnit.SECONDS.toNanos(seconds);
+
+        while (System.nanoTime() < deadline) {
+            inFlight.acquire();
+            long start = System.nanoTime();
+            executor.execute(() -> {
+                try {
+                    apiWebClientUtils.callGetApiAndGetDto(baseUrl, "/x", byte[].class);
+                    if (start >= measureStart) {
+                        long elapsed = System.nanoTime() - start;
+                        synchronized (recorder) {
+                            recorder.record(elapsed);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    errors.incrementAndGet();
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+        int liveThreads = ManagementFactory.getThreadMXBean().getThreadCount();     // 負載中的平台執行緒數 (不含虛擬執行緒)
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        String rss = readRss();     // 含執行緒堆疊的實際記憶體用量
+        inFlight.acquire(concurrency);
+        executor.shutdown();
+        apiWebClientUtils.destroy();
+
+        long[] latencies;
+        synchronized (recorder) {
+            latencies = LatencyRecorder.merge(Collections.singletonList(recorder));
+        }
+        System.out.println(String.format("mode=%s concurrency=%d%s seconds=%d maxHeap=%dMB", args[0], concurrency,
+                virtual ? "" : " platformThreads=" + platformThreads, seconds, Runtime.getRuntime().maxMemory() / (1024 * 1024)));
+        System.out.println(String.format("requests=%d errors=%d throughput=%.0f req/s",
+                latencies.length, errors.get(), latencies.length / (double) seconds));
+        System.out.println(LatencyRecorder.percentiles(latencies));
+        System.out.println(String.format("liveThreads=%d heapUsed=%dMB rss=%s", liveThreads, heapUsed / (1024 * 1024), rss));
+    }
+
+    /**
+     * 讀取行程的 RSS (僅 Linux)
+     */
+    private static String readRss() {
+        try {
+            return Files.readAllLines(Paths.get("/proc/self/status")).stream()
+                    .filter(line -> line.startsWith("VmRSS:"))
+                    .map(line -> Long.parseLong(line.replaceAll("\\D", "")) / 1024 + "MB")
+                    .findFirst()
+                    .orElse("n/a");
+        } catch (IOException | RuntimeException e) {
+            return "n/a";
+        }
+    }
+
+    private static int intArg(String[] args, int index, int defaultValue) {
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+}
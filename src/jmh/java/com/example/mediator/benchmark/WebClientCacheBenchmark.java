@@ -0,0 +1,47 @@
+package com.example.mediator.benchmark;
+
+import com.example.mediator.config.properties.ApiClientProperties;
+import com.example.mediator.utils.ApiWebClientUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 取得 WebClient：每次呼叫都 build vs. 以後端網域快取
+ * <p>
+ * 搭配 -prof gc 可看出每次呼叫的配置量 (gc.alloc.rate.norm)。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WebClientCacheBenchmark {
+
+    private static final String BASE_URL = "http://localhost:9091";
+
+    private WebClient.Builder sharedBuilder;
+    private ApiWebClientUtils apiWebClientUtils;
+
+    @Setup
+    public void setup() {
+        sharedBuilder = WebClient.builder();
+        apiWebClientUtils = new ApiWebClientUtils(WebClient.builder(), new ApiClientProperties(), new ObjectMapper());
+    }
+
+    @Benchmark
+    public WebClient buildPerCall() {
+        return sharedBuilder.baseUrl(BASE_URL).build();
+    }
+
+    @Benchmark
+    public WebClient cached() {
+        return apiWebClientUtils.getWebClient(BASE_URL);
+    }
+}
@@ -1,42 +1,487 @@
 package com.example.mediator.client;
 
+import com.example.mediator.config.properties.ProxyProperties;
+import com.example.mediator.service.ProxyRoute;
+import com.example.mediator.service.ProxyRouteTable;
+import com.example.mediator.service.ProxyRoutesReloadedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutException;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.Http2AllocationStrategy;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.logging.Logger;
 
 /**
  * 後端 HTTP 客戶端，負責轉送 HTTP 請求
+ * <p>
+ * 每個後端各自擁有獨立的 ConnectionProvider 與 HttpClient，
+ * 單一後端變慢時只會用盡自己的連線池，不影響其他路由。
+ * 連線池指標 (reactor.netty.connection.provider.*) 會註冊到 Micrometer。
+ * 路由啟用 HTTP/2 時，多個請求共用少數幾條連線 (h2c 或 TLS 的 h2)，後端不支援時沿用 HTTP/1.1 的連線池。
+ * <p>
+ * 路由啟用 retry 時，冪等的請求在連線失敗或後端回應列出的狀態碼 (預設 502 / 503 / 504) 時重試 (受重試預算限制)；
+ * 路由啟用 hedge 時，GET 超過近期延遲的百分位數仍未回應會再送出一次，採用先回應的結果。
+ * 重試與對沖次數以 proxy.retries / proxy.hedges 註冊到 Micrometer。
+ * <p>
+ * 後端設定多個執行個體時，每次呼叫 (含重試與對沖請求) 都由 UpstreamPool 重新選擇執行個體，
+ * 並依結果更新該執行個體的健康狀態與近期延遲。
+ * <p>
+ * 連線資源以 ProxyRoute 區分：路由重新載入後，設定變更的後端使用新的連線池，
+ * 舊連線池保留 drain-timeout 讓進行中的請求完成後再關閉；關閉後才送出的舊路由請求每次使用新連線，不另建連線池。
  */
 @Component
 public class BackendHttpClient {
 
-    private final WebClient webClient;
+    private static final Set<HttpMethod> IDEMPOTENT_METHODS = EnumSet.of(
+            HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS, HttpMethod.PUT, HttpMethod.DELETE, HttpMethod.TRACE);
+
+    private static final Logger logger = Logger.getLogger(BackendHttpClient.class.getName());
+
+    private final WebClient.Builder webClientBuilder;
+    private final ProxyRouteTable proxyRouteTable;
+    private final MeterRegistry meterRegistry;
+    private final Duration drainTimeout;
+    private final Map<ProxyRoute, RouteClient> routeClients = new ConcurrentHashMap<>();
 
     /**
-     * 建構子，注入 WebClient.Builder
+     * 建構子，注入 WebClient.Builder、路由表、MeterRegistry 與路由重新載入設定
      */
-    public BackendHttpClient(WebClient.Builder webClientBuilder) {
-        this.webClient = webClientBuilder.build();
+    public BackendHttpClient(WebClient.Builder webClientBuilder, ProxyRouteTable proxyRouteTable, MeterRegistry meterRegistry,
+                             ProxyProperties proxyProperties) {
+        this.webClientBuilder = webClientBuilder;
+        this.proxyRouteTable = proxyRouteTable;
+        this.meterRegistry = meterRegistry;
+        this.drainTimeout = proxyProperties.getReload().getDrainTimeout();
     }
 
     /**
      * 發送轉發請求到後端系統
      *
+     * @param route   後端路由
      * @param url     目標 URL
      * @param method  HTTP 方法
      * @param headers 請求標頭
      * @param body    請求內容
      * @return 回傳 ResponseEntity，包含後端回應資料
      */
-    public Mono<ResponseEntity<byte[]>> forwardRequest(String url, HttpMethod method, HttpHeaders headers, byte[] body) {
-        return webClient.method(method)
-                .uri(url)
-                .headers(httpHeaders -> httpHeaders.addAll(headers))
+    public Mono<ResponseEntity<byte[]>> forwardRequest(ProxyRoute route, String url, HttpMethod method, HttpHeaders headers, byte[] body) {
+        RouteClient routeClient = routeClient(route);
+        Mono<ResponseEntity<byte[]>> attempt = routeClient.balance(url, target -> routeClient.webClient().method(method)
+                .uri(target)
+                .headers(httpHeaders -> httpHeaders.putAll(headers))
                 .bodyValue(body.length > 0 ? body : new byte[0])
                 .retrieve()
-                .toEntity(byte[].class);
+                .toEntity(byte[].class));
+        if (routeClient.latencyTracker != null && method == HttpMethod.GET) {
+            return routeClient.hedge(routeClient.track(attempt));
+        }
+        return routeClient.retry(method, attempt);
+    }
+
+    /**
+     * 以串流方式轉發請求到後端系統，request / response body 皆以 DataBuffer 分段傳遞
+     *
+     * @param route   後端路由
+     * @param url     目標 URL
+     * @param method  HTTP 方法
+     * @param headers 請求標頭
+     * @param body    請求內容串流，沒有 body 時傳入 null
+     * @return 回傳 ResponseEntity，body 為後端回應的 DataBuffer 串流
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> forwardStreamingRequest(ProxyRoute route, String url, HttpMethod method, HttpHeaders headers, Flux<DataBuffer> body) {
+        RouteClient routeClient = routeClient(route);
+        Function<String, WebClient.RequestBodySpec> requestSpec = target -> routeClient.webClient().method(method)
+                .uri(target)
+                .headers(httpHeaders -> httpHeaders.putAll(headers));
+        if (body != null) {
+            // request body 串流只能讀取一次，無法重送
+            return routeClient.balance(url, target -> requestSpec.apply(target)
+                    .body(BodyInserters.fromDataBuffers(body))
+                    .retrieve()
+                    .toEntityFlux(DataBuffer.class));
+        }
+        return routeClient.retry(method, routeClient.balance(url, target -> requestSpec.apply(target)
+                .retrieve()
+                .toEntityFlux(DataBuffer.class)));
+    }
+
+    /**
+     * 預先建立後端連線並檢查：對每個執行個體同時送出 pool.warmup-connections 個 GET，
+     * 連線池沒有閒置連線，因此每個請求各自建立一條連線，回應後保留在連線池 (直到 max-idle-time)。
+     * 啟用 HTTP/2 時先完成判斷，再以判斷後的連線送出 (HTTP/2 的請求共用連線)。
+     *
+     * @param route 後端路由
+     * @param path  檢查的路徑 (例如 /actuator/health)
+     * @return 回應狀態碼小於 500 的請求數
+     */
+    public Mono<Integer> prewarm(ProxyRoute route, String path) {
+        RouteClient routeClient = routeClient(route);
+        int connections = route.getApi().getPool().getWarmupConnections();
+        Mono<WebClient> webClient = routeClient.http2Negotiator != null
+                ? routeClient.http2Negotiator.negotiate() : Mono.just(routeClient.webClient);
+        return webClient.flatMapMany(client -> Flux.fromIterable(route.getInstanceBaseUrls())
+                        .flatMap(baseUrl -> Flux.range(0, connections)
+                                .flatMap(i -> client.get()
+                                        .uri(baseUrl + path)
+                                        .exchangeToMono(response -> response.releaseBody().thenReturn(response.rawStatusCode()))
+                                        .map(status -> status < 500)
+                                        .onErrorReturn(false))))
+                .filter(healthy -> healthy)
+                .count()
+                .map(Long::intValue);
+    }
+
+    /**
+     * 路由重新載入後，停止舊路由的健康檢查，drain-timeout 後關閉其連線池
+     * (關閉時仍在使用的連線於請求結束後關閉)
+     *
+     * @param event 路由重新載入事件
+     */
+    @EventListener
+    public void onRoutesReloaded(ProxyRoutesReloadedEvent event) {
+        for (ProxyRoute route : event.getRetiredRoutes()) {
+            RouteClient routeClient = routeClients.get(route);
+            if (routeClient == null) {
+                continue;
+            }
+            if (routeClient.upstreamPool != null) {
+                routeClient.upstreamPool.destroy();
+            }
+            Mono.delay(drainTimeout)
+                    .then(Mono.defer(() -> {
+                        routeClients.remove(route, routeClient);
+                        return routeClient.disposeLater();
+                    }))
+                    .subscribe(null,
+                            ex -> logger.warning("關閉後端連線池失敗：" + route.getPath() + "，" + ex.getMessage()),
+                            () -> logger.info("已關閉舊路由的連線池：" + route.getPath()));
+        }
+    }
+
+    /**
+     * 停止健康檢查並關閉所有後端連線池
+     */
+    @PreDestroy
+    public void destroy() {
+        routeClients.values().forEach(routeClient -> {
+            if (routeClient.upstreamPool != null) {
+                routeClient.upstreamPool.destroy();
+            }
+            routeClient.connectionProviders.forEach(ConnectionProvider::dispose);
+        });
+        routeClients.clear();
+    }
+
+    /**
+     * 取得後端專屬的連線資源，第一次使用時建立
+     * <p>
+     * 已停用的舊路由 (重新載入前取得路由、事件處理後才呼叫的請求) 沿用仍在 drain 的連線資源；
+     * 已關閉時改用不保留的連線資源，不重新放回 routeClients，以免連線池與健康檢查無人關閉。
+     *
+     * @param route 後端路由
+     * @return 後端專屬的連線資源
+     */
+    private RouteClient routeClient(ProxyRoute route) {
+        RouteClient routeClient = routeClients.get(route);
+        if (routeClient != null) {
+            return routeClient;
+        }
+        if (proxyRouteTable.find(route.getPath()) != route) {
+            return createRetiredRouteClient(route);
+        }
+        return routeClients.computeIfAbsent(route, this::createRouteClient);
+    }
+
+    /**
+     * 依後端的連線池與逾時設定建立 HttpClient
+     * <p>
+     * 啟用 HTTP/2 時另建 HTTP/2 的連線池 (連線數與每條連線的 stream 數依 http2 設定)，
+     * 由 Http2Negotiator 確認後端支援 HTTP/2 後改用，否則沿用 HTTP/1.1 的連線池。
+     *
+     * @param route 後端路由
+     * @return 後端專屬的連線資源
+     */
+    private RouteClient createRouteClient(ProxyRoute route) {
+        ProxyProperties.Pool pool = route.getApi().getPool();
+        ProxyProperties.Timeout timeout = route.getApi().getTimeout();
+        ProxyProperties.Http2 http2 = route.getApi().getHttp2();
+
+        ConnectionProvider connectionProvider = connectionProviderBuilder("proxy-" + route.getPath(), pool)
+                .maxConnections(pool.getMaxConnections())
+                .build();
+        WebClient webClient = buildWebClient(httpClient(connectionProvider, pool, timeout)
+                .doOnConnected(connection -> connection.addHandlerLast(
+                        new ReadTimeoutHandler(timeout.getRead().toMillis(), TimeUnit.MILLISECONDS))));
+        if (!http2.isEnabled()) {
+            return new RouteClient(route, List.of(connectionProvider), webClient, null, true);
+        }
+
+        ConnectionProvider http2ConnectionProvider = connectionProviderBuilder("proxy-" + route.getPath() + "-h2", pool)
+                .allocationStrategy(Http2AllocationStrategy.builder()
+                        .maxConnections(http2.getMaxConnections())
+                        .maxConcurrentStreams(http2.getMaxConcurrentStreams())
+                        .build())
+                .build();
+        boolean secure = "https".equalsIgnoreCase(route.getBackendUri().getScheme());
+        HttpClient http2Client = httpClient(http2ConnectionProvider, pool, timeout)
+                .protocol(secure ? new HttpProtocol[]{HttpProtocol.H2, HttpProtocol.HTTP11} : new HttpProtocol[]{HttpProtocol.H2C})
+                // 多個請求共用連線，讀取逾時設定在每個請求的 stream 上 (設定在連線上會於連線閒置時關閉連線)
+                .doOnRequest((request, connection) -> {
+                    if (connection.channel().parent() != null) {
+                        connection.addHandlerLast(new ReadTimeoutHandler(timeout.getRead().toMillis(), TimeUnit.MILLISECONDS));
+                    }
+                });
+        Http2Negotiator negotiator = new Http2Negotiator(route, http2Client, buildWebClient(http2Client), webClient);
+        return new RouteClient(route, List.of(connectionProvider, http2ConnectionProvider), webClient, negotiator, true);
+    }
+
+    /**
+     * 依舊路由的逾時設定建立不保留的連線資源：每個請求使用新連線 (請求結束即關閉)，
+     * 不建立連線池、HTTP/2 連線與執行個體的健康檢查 (一律送往第一個執行個體)，因此不需要關閉。
+     *
+     * @param route 已停用的舊路由
+     * @return 不保留的連線資源
+     */
+    private RouteClient createRetiredRouteClient(ProxyRoute route) {
+        ProxyProperties.Pool pool = route.getApi().getPool();
+        ProxyProperties.Timeout timeout = route.getApi().getTimeout();
+        WebClient webClient = buildWebClient(httpClient(ConnectionProvider.newConnection(), pool, timeout)
+                .doOnConnected(connection -> connection.addHandlerLast(
+                        new ReadTimeoutHandler(timeout.getRead().toMillis(), TimeUnit.MILLISECONDS))));
+        return new RouteClient(route, List.of(), webClient, null, false);
+    }
+
+    /**
+     * 連線池共用的設定 (不含連線數)
+     */
+    private static ConnectionProvider.Builder connectionProviderBuilder(String name, ProxyProperties.Pool pool) {
+        ConnectionProvider.Builder providerBuilder = ConnectionProvider.builder(name)
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .evictInBackground(pool.getEvictInBackground())
+                .metrics(true);
+        if (pool.getMaxLifeTime() != null) {
+            providerBuilder.maxLifeTime(pool.getMaxLifeTime());
+        }
+        return providerBuilder;
+    }
+
+    private static HttpClient httpClient(ConnectionProvider connectionProvider, ProxyProperties.Pool pool, ProxyProperties.Timeout timeout) {
+        return HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) timeout.getConnect().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, pool.isKeepAlive())
+                .keepAlive(pool.isKeepAlive())
+                .responseTimeout(timeout.getResponse());
+    }
+
+    private WebClient buildWebClient(HttpClient httpClient) {
+        return webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    /**
+     * 後端專屬的連線資源、重試與對沖設定
+     */
+    private final class RouteClient {
+        private final List<ConnectionProvider> connectionProviders;
+        private final WebClient webClient;                  // HTTP/1.1
+        private final Http2Negotiator http2Negotiator;      // 未啟用 HTTP/2 時為 null
+        private final RetryBudget retryBudget;
+        private final RetryBackoffSpec retrySpec;           // 未啟用重試時為 null
+        private final LatencyTracker latencyTracker;        // 未啟用對沖時為 null
+        private final Duration minHedgeDelay;
+        private final Counter hedgeCounter;
+        private final UpstreamPool upstreamPool;            // 只有一個執行個體時為 null
+
+        /**
+         * @param balanced 是否建立 UpstreamPool (含健康檢查) 在多個執行個體間分配請求
+         */
+        private RouteClient(ProxyRoute route, List<ConnectionProvider> connectionProviders, WebClient webClient,
+                            Http2Negotiator http2Negotiator, boolean balanced) {
+            this.connectionProviders = connectionProviders;
+            this.webClient = webClient;
+            this.http2Negotiator = http2Negotiator;
+            this.upstreamPool = balanced && route.getInstanceBaseUrls().size() > 1
+                    ? new UpstreamPool(route, webClient, meterRegistry) : null;
+
+            ProxyProperties.Retry retry = route.getApi().getRetry();
+            ProxyProperties.Hedge hedge = route.getApi().getHedge();
+            this.retryBudget = new RetryBudget(retry.getBudgetRatio(), retry.getMinRetriesPerSecond());
+
+            Counter retriedCounter = retryCounter(route, "retried");
+            Counter exhaustedCounter = retryCounter(route, "budget_exhausted");
+            Set<Integer> retryStatuses = new HashSet<>(retry.getStatuses());
+            this.retrySpec = !retry.isEnabled() || retry.getMaxRetries() <= 0 ? null
+                    : Retry.backoff(retry.getMaxRetries(), retry.getBackoff())
+                    .maxBackoff(retry.getMaxBackoff())
+                    .jitter(retry.getJitter())
+                    .filter(ex -> {
+                        if (!isRetryable(ex, retryStatuses)) {
+                            return false;
+                        }
+                        if (!retryBudget.tryAcquire()) {
+                            exhaustedCounter.increment();
+                            return false;
+                        }
+                        return true;
+                    })
+                    .doBeforeRetry(signal -> retriedCounter.increment())
+                    .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+
+            this.latencyTracker = hedge.isEnabled() ? new LatencyTracker(hedge.getPercentile()) : null;
+            this.minHedgeDelay = hedge.getMinDelay();
+            this.hedgeCounter = Counter.builder("proxy.hedges")
+                    .description("送出的對沖請求次數")
+                    .tag("route", route.getPath())
+                    .register(meterRegistry);
+        }
+
+        /**
+         * 目前使用的 WebClient：啟用 HTTP/2 且確認後端支援時為 HTTP/2，否則為 HTTP/1.1
+         */
+        private WebClient webClient() {
+            return http2Negotiator != null ? http2Negotiator.webClient() : webClient;
+        }
+
+        private Mono<Void> disposeLater() {
+            return Flux.fromIterable(connectionProviders)
+                    .flatMap(ConnectionProvider::disposeLater)
+                    .then();
+        }
+
+        private Counter retryCounter(ProxyRoute route, String result) {
+            return Counter.builder("proxy.retries")
+                    .description("重試次數 (retried) 與因重試預算用完而放棄的次數 (budget_exhausted)")
+                    .tags("route", route.getPath(), "result", result)
+                    .register(meterRegistry);
+        }
+
+        /**
+         * 每次呼叫選擇一個執行個體送出，並依結果更新其健康狀態與近期延遲。
+         * 串流回應在收到 status 與 headers 時即視為呼叫結束。
+         *
+         * @param url  以第一個執行個體組成的後端網址
+         * @param call 對指定網址送出請求
+         */
+        private <T> Mono<T> balance(String url, Function<String, Mono<T>> call) {
+            if (upstreamPool == null) {
+                return call.apply(url);
+            }
+            return Mono.defer(() -> {
+                UpstreamPool.Upstream upstream = upstreamPool.select();
+                long start = System.nanoTime();
+                // 取得後即綁定釋放，組出請求時拋出例外 (同步失敗) 也會釋放進行中請求數
+                return Mono.using(() -> {
+                            upstream.acquire();
+                            return upstream;
+                        },
+                        acquired -> call.apply(upstreamPool.resolve(acquired, url))
+                                .doOnSuccess(result -> upstreamPool.onSuccess(acquired, System.nanoTime() - start))
+                                .doOnError(ex -> upstreamPool.onFailure(acquired, ex)),
+                        UpstreamPool.Upstream::release);
+            });
+        }
+
+        /**
+         * 冪等的請求依設定重試，並為重試預算存入額度
+         */
+        private <T> Mono<T> retry(HttpMethod method, Mono<T> attempt) {
+            if (retrySpec == null || !IDEMPOTENT_METHODS.contains(method)) {
+                return attempt;
+            }
+            return Mono.defer(() -> {
+                retryBudget.deposit();
+                return attempt.retryWhen(retrySpec);
+            });
+        }
+
+        /**
+         * 記錄每次成功呼叫的延遲，作為對沖請求的等待時間
+         */
+        private <T> Mono<T> track(Mono<T> attempt) {
+            return Mono.defer(() -> {
+                long start = System.nanoTime();
+                return attempt.doOnSuccess(result -> latencyTracker.record(System.nanoTime() - start));
+            });
+        }
+
+        /**
+         * 第一次呼叫 (含重試) 超過近期延遲的百分位數仍未回應時再送出一次，採用先回應的結果。
+         * 第一次呼叫在對沖請求送出前失敗時直接回傳錯誤；兩者都失敗時回傳第一次呼叫的錯誤。
+         */
+        private <T> Mono<T> hedge(Mono<T> attempt) {
+            Mono<T> primary = retry(HttpMethod.GET, attempt);
+            long percentileNanos = latencyTracker.percentileNanos();
+            if (percentileNanos < 0) {
+                return primary;     // 樣本數不足
+            }
+            Duration delay = Duration.ofNanos(Math.max(minHedgeDelay.toNanos(), percentileNanos));
+            return Mono.defer(() -> {
+                Sinks.Empty<Void> primaryFailed = Sinks.empty();
+                AtomicReference<Throwable> primaryError = new AtomicReference<>();
+                Mono<T> first = primary.onErrorResume(ex -> {
+                    primaryError.set(ex);
+                    primaryFailed.tryEmitEmpty();
+                    return Mono.empty();
+                });
+                Mono<T> second = Mono.delay(delay)
+                        .takeUntilOther(primaryFailed.asMono())
+                        .filter(tick -> retryBudget.tryAcquire())
+                        .flatMap(tick -> {
+                            hedgeCounter.increment();
+                            return attempt;
+                        });
+                return Mono.firstWithValue(first, second)
+                        .onErrorMap(NoSuchElementException.class,
+                                ex -> primaryError.get() != null ? primaryError.get() : ex);
+            });
+        }
+    }
+
+    /**
+     * 判斷錯誤是否可以重試：連線層的錯誤 (連不上、連線逾時、回應前連線中斷) 或列出的後端狀態碼。
+     * 等待回應逾時表示後端已收到請求但處理緩慢，重試只會加重負擔，因此不重試。
+     */
+    private static boolean isRetryable(Throwable ex, Set<Integer> retryStatuses) {
+        if (ex instanceof WebClientRequestException) {
+            return !(ex.getCause() instanceof ReadTimeoutException);
+        }
+        return ex instanceof WebClientResponseException
+                && retryStatuses.contains(((WebClientResponseException) ex).getRawStatusCode());
     }
 }
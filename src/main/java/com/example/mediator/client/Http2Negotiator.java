@@ -0,0 +1,95 @@
+package com.example.mediator.client;
+
+import com.example.mediator.service.ProxyRoute;
+import io.netty.handler.codec.http2.Http2Exception;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * 判斷後端是否支援 HTTP/2，決定路由使用 HTTP/2 或 HTTP/1.1 的 WebClient
+ * <p>
+ * 第一次使用時以 HTTP/2 的 HttpClient 對後端送出 HEAD (https 以 TLS ALPN 協商，http 直接以 h2c 連線)，
+ * 經由 HTTP/2 stream 收到回應 (不論狀態碼) 即改用 HTTP/2；ALPN 協商為 HTTP/1.1 或後端不認得 HTTP/2 的連線前言時沿用 HTTP/1.1。
+ * 判斷完成前的請求使用 HTTP/1.1，不會因判斷而失敗；連不上後端等其他錯誤於下一個請求時重新判斷。
+ * 多個執行個體時只判斷第一個執行個體。判斷結果保留到路由重新建立 (設定變更或重新啟動) 為止。
+ */
+final class Http2Negotiator {
+
+    private static final Logger logger = Logger.getLogger(Http2Negotiator.class.getName());
+
+    private enum State {UNKNOWN, PROBING, HTTP2, HTTP11}
+
+    private final String path;
+    private final String probeUrl;
+    private final HttpClient http2Client;
+    private final WebClient http2WebClient;
+    private final WebClient http11WebClient;
+    private final AtomicReference<State> state = new AtomicReference<>(State.UNKNOWN);
+
+    /**
+     * @param route           後端路由
+     * @param http2Client     HTTP/2 的 HttpClient (用於判斷)
+     * @param http2WebClient  以 http2Client 建立的 WebClient
+     * @param http11WebClient HTTP/1.1 的 WebClient
+     */
+    Http2Negotiator(ProxyRoute route, HttpClient http2Client, WebClient http2WebClient, WebClient http11WebClient) {
+        this.path = route.getPath();
+        this.probeUrl = route.getBackendBaseUrl() + "/";
+        this.http2Client = http2Client;
+        this.http2WebClient = http2WebClient;
+        this.http11WebClient = http11WebClient;
+    }
+
+    /**
+     * 目前使用的 WebClient，尚未判斷時開始判斷並先回傳 HTTP/1.1
+     */
+    WebClient webClient() {
+        State current = state.get();
+        if (current == State.HTTP2) {
+            return http2WebClient;
+        }
+        if (current == State.UNKNOWN && state.compareAndSet(State.UNKNOWN, State.PROBING)) {
+            probe().subscribe();
+        }
+        return http11WebClient;
+    }
+
+    /**
+     * 尚未判斷時立即判斷，完成後回傳判斷後使用的 WebClient (暖機使用)；其他請求正在判斷時回傳 HTTP/1.1
+     */
+    Mono<WebClient> negotiate() {
+        if (state.compareAndSet(State.UNKNOWN, State.PROBING)) {
+            return probe().then(Mono.fromSupplier(() -> state.get() == State.HTTP2 ? http2WebClient : http11WebClient));
+        }
+        return Mono.fromSupplier(this::webClient);
+    }
+
+    private Mono<Void> probe() {
+        return http2Client.head()
+                .uri(probeUrl)
+                .responseConnection((response, connection) -> connection.inbound().receive().then(
+                        Mono.just(connection.channel().parent() != null)))  // HTTP/2 的回應經由 stream channel 收到
+                .next()
+                .doOnNext(http2 -> {
+                    state.set(http2 ? State.HTTP2 : State.HTTP11);
+                    logger.info(http2 ? "後端支援 HTTP/2，改以 HTTP/2 連線：" + path
+                            : "後端以 ALPN 協商為 HTTP/1.1，沿用 HTTP/1.1：" + path);
+                })
+                .doOnError(ex -> {
+                    if (Exceptions.unwrap(ex) instanceof Http2Exception) {
+                        state.set(State.HTTP11);
+                        logger.info("後端不支援 HTTP/2，沿用 HTTP/1.1：" + path + "，" + ex.getMessage());
+                    } else {
+                        state.set(State.UNKNOWN);
+                        logger.fine("無法判斷後端是否支援 HTTP/2，下次請求時重試：" + path + "，" + ex.getMessage());
+                    }
+                })
+                .onErrorResume(ex -> Mono.empty())
+                .then();
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.mediator.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 後端近期延遲的百分位數 (決定對沖請求的等待時間)
+ * <p>
+ * 以對數刻度的 bucket 計數 (每個 2 的次方再分 4 段，誤差約 25%)，每 WINDOW 換一個新的計數陣列，
+ * 並以剛結束的時間窗計算百分位數；記錄只有一次 atomic 累加，不使用鎖。
+ */
+final class LatencyTracker {
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final int MIN_SAMPLES = 20;          // 時間窗內樣本數不足時沿用上一次的結果
+    private static final int BUCKETS = 4 * 40;          // 以微秒計，涵蓋到 2^40 微秒
+
+    private final double percentile;
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private volatile AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private volatile long percentileNanos = -1;         // 尚未有足夠樣本時為 -1
+
+    /**
+     * @param percentile 第幾百分位數 (0 ~ 100)
+     */
+    LatencyTracker(double percentile) {
+        this.percentile = Math.min(100, Math.max(0, percentile)) / 100;
+    }
+
+    /**
+     * 記錄一次後端延遲
+     *
+     * @param nanos 延遲 (奈秒)
+     */
+    void record(long nanos) {
+        counts.incrementAndGet(bucket(nanos));
+    }
+
+    /**
+     * 取得近期延遲的百分位數，時間窗結束時重新計算
+     *
+     * @return 百分位數 (奈秒)，樣本數不足時為 -1
+     */
+    long percentileNanos() {
+        long start = windowStart.get();
+        long now = System.nanoTime();
+        if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+            AtomicLongArray finished = counts;
+            counts = new AtomicLongArray(BUCKETS);
+            long computed = compute(finished);
+            if (computed >= 0) {
+                percentileNanos = computed;
+            }
+        }
+        return percentileNanos;
+    }
+
+    /**
+     * 依計數計算百分位數，取所在 bucket 的上限
+     */
+    private long compute(AtomicLongArray window) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += window.get(i);
+        }
+        if (total < MIN_SAMPLES) {
+            return -1;
+        }
+        long target = (long) Math.ceil(total * percentile);
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += window.get(i);
+            if (cumulative >= target) {
+                return TimeUnit.MICROSECONDS.toNanos(upperBound(i));
+            }
+        }
+        return TimeUnit.MICROSECONDS.toNanos(upperBound(BUCKETS - 1));
+    }
+
+    /**
+     * 延遲所在的 bucket：以微秒的最高位元決定 2 的次方，再以其後 2 個位元分為 4 段
+     */
+    private static int bucket(long nanos) {
+        long micros = Math.max(1, nanos / 1000);
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = exponent >= 2 ? (int) ((micros >>> (exponent - 2)) & 3) : 0;
+        return Math.min(BUCKETS - 1, exponent * 4 + sub);
+    }
+
+    /**
+     * bucket 的上限 (微秒)
+     */
+    private static long upperBound(int bucket) {
+        int exponent = bucket / 4;
+        int sub = bucket % 4;
+        return exponent >= 2 ? (long) (4 + sub + 1) << (exponent - 2) : 2L << exponent;
+    }
+}
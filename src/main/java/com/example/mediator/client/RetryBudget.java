@@ -0,0 +1,78 @@
+package com.example.mediator.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 後端的重試預算
+ * <p>
+ * 每個原始請求存入 ratio 次額度 (最多累積 MAX_BALANCE 次)，每次重試或對沖請求取出 1 次；
+ * 額度用完時，每秒仍允許 minPerSecond 次，讓流量少的後端也能重試。
+ * 後端故障時重試量因此不超過正常流量的 ratio 倍，不會放大故障。以 CAS 更新，不使用鎖。
+ */
+final class RetryBudget {
+
+    private static final long SCALE = 1000;             // 額度以千分之一為單位
+    private static final long MAX_BALANCE = 100 * SCALE;
+
+    private final long deposit;
+    private final int minPerSecond;
+    private final AtomicLong balance = new AtomicLong();
+    private final AtomicLong reserved = new AtomicLong();   // 高 32 位元為秒數，低 32 位元為該秒已使用的保留次數
+
+    /**
+     * @param ratio        重試量相對於請求量的比例上限
+     * @param minPerSecond 額度用完時每秒仍允許的次數
+     */
+    RetryBudget(double ratio, int minPerSecond) {
+        this.deposit = Math.max(0, Math.round(ratio * SCALE));
+        this.minPerSecond = Math.max(0, minPerSecond);
+    }
+
+    /**
+     * 原始請求存入額度
+     */
+    void deposit() {
+        long current;
+        do {
+            current = balance.get();
+            if (current >= MAX_BALANCE) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(MAX_BALANCE, current + deposit)));
+    }
+
+    /**
+     * 取出 1 次額度
+     *
+     * @return 是否允許重試
+     */
+    boolean tryAcquire() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < SCALE) {
+                return tryAcquireReserved();
+            }
+        } while (!balance.compareAndSet(current, current - SCALE));
+        return true;
+    }
+
+    /**
+     * 取出每秒保留的次數
+     */
+    private boolean tryAcquireReserved() {
+        long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime()) & 0xFFFFFFFFL;
+        long current;
+        long next;
+        do {
+            current = reserved.get();
+            long used = (current >>> 32) == second ? current & 0xFFFFFFFFL : 0;
+            if (used >= minPerSecond) {
+                return false;
+            }
+            next = (second << 32) | (used + 1);
+        } while (!reserved.compareAndSet(current, next));
+        return true;
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.mediator.client;
+
+import com.example.mediator.config.properties.ProxyProperties;
+import com.example.mediator.service.ProxyRoute;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+import java.util.logging.Logger;
+
+/**
+ * 同一後端的多個執行個體，負責選擇每次呼叫送往哪個執行個體
+ * <p>
+ * 選擇時只讀取 volatile / atomic 欄位，不使用鎖；所有執行個體都暫停使用時改為輪流送出 (fail open)。
+ * 被動檢查：連續 failure-threshold 次連線失敗或 5xx 即暫停使用 eject-duration；
+ * 主動檢查：設定 health-check-path 時定期 GET 每個執行個體，失敗即暫停使用直到恢復。
+ * 各執行個體的進行中請求數與是否可用以 proxy.instance.outstanding / proxy.instance.available 註冊到 Micrometer。
+ */
+final class UpstreamPool {
+
+    private static final Logger logger = Logger.getLogger(UpstreamPool.class.getName());
+
+    private static final double EWMA_ALPHA = 0.2;       // 新樣本在近期延遲中的權重
+
+    private final String routePath;
+    private final String primaryBaseUrl;
+    private final Upstream[] upstreams;
+    private final ProxyProperties.LoadBalancer.Strategy strategy;
+    private final int failureThreshold;
+    private final long ejectNanos;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Disposable healthCheck;               // 未設定主動健康檢查時為 null
+    private final MeterRegistry meterRegistry;
+    private final List<Meter> meters = new ArrayList<>();
+
+    /**
+     * @param route         後端路由
+     * @param webClient     後端專屬的 WebClient (主動健康檢查使用)
+     * @param meterRegistry 註冊執行個體指標
+     */
+    UpstreamPool(ProxyRoute route, WebClient webClient, MeterRegistry meterRegistry) {
+        ProxyProperties.LoadBalancer config = route.getApi().getLoadBalancer();
+        List<String> baseUrls = route.getInstanceBaseUrls();
+        this.routePath = route.getPath();
+        this.primaryBaseUrl = route.getBackendBaseUrl();
+        this.strategy = config.getStrategy();
+        this.failureThreshold = Math.max(1, config.getFailureThreshold());
+        this.ejectNanos = config.getEjectDuration().toNanos();
+        this.meterRegistry = meterRegistry;
+        this.upstreams = new Upstream[baseUrls.size()];
+        for (int i = 0; i < upstreams.length; i++) {
+            Upstream upstream = new Upstream(baseUrls.get(i));
+            upstreams[i] = upstream;
+            register("proxy.instance.outstanding", "後端執行個體進行中的請求數",
+                    upstream, u -> u.outstanding.get());
+            register("proxy.instance.available", "後端執行個體是否可用 (1 可用，0 暫停使用)",
+                    upstream, u -> u.isAvailable(System.nanoTime()) ? 1 : 0);
+        }
+        this.healthCheck = config.getHealthCheckPath() == null ? null : startHealthCheck(webClient, config);
+    }
+
+    /**
+     * 依負載平衡方式選擇一個可用的執行個體
+     *
+     * @return 選中的執行個體
+     */
+    Upstream select() {
+        long now = System.nanoTime();
+        Upstream selected;
+        switch (strategy) {
+            case LEAST_OUTSTANDING:
+                selected = leastOutstanding(now);
+                break;
+            case POWER_OF_TWO_CHOICES:
+                selected = powerOfTwoChoices(now);
+                break;
+            default:
+                selected = roundRobin(now);
+                break;
+        }
+        if (selected == null) {
+            // 全部暫停使用時仍輪流送出，避免整個後端直接失敗
+            selected = upstreams[Math.floorMod(next.getAndIncrement(), upstreams.length)];
+        }
+        return selected;
+    }
+
+    /**
+     * 將以第一個執行個體組成的後端網址換成選中的執行個體
+     *
+     * @param upstream 選中的執行個體
+     * @param url      以第一個執行個體組成的後端網址
+     * @return 送往選中執行個體的網址
+     */
+    String resolve(Upstream upstream, String url) {
+        if (upstream.baseUrl.equals(primaryBaseUrl) || !url.startsWith(primaryBaseUrl)) {
+            return url;
+        }
+        return upstream.baseUrl + url.substring(primaryBaseUrl.length());
+    }
+
+    /**
+     * 被動檢查：呼叫成功，重設連續失敗次數並更新近期延遲
+     *
+     * @param upstream 執行個體
+     * @param nanos    本次呼叫的延遲
+     */
+    void onSuccess(Upstream upstream, long nanos) {
+        if (upstream.consecutiveFailures.get() != 0) {
+            upstream.consecutiveFailures.set(0);
+        }
+        upstream.updateLatency(nanos);
+    }
+
+    /**
+     * 被動檢查：呼叫失敗，連線失敗或 5xx 累計連續失敗次數，達到門檻即暫停使用
+     *
+     * @param upstream 執行個體
+     * @param ex       錯誤
+     */
+    void onFailure(Upstream upstream, Throwable ex) {
+        boolean unhealthy = ex instanceof WebClientRequestException
+                || ex instanceof WebClientResponseException && ((WebClientResponseException) ex).getRawStatusCode() >= 500;
+        if (!unhealthy) {
+            onSuccess(upstream, 0);
+            return;
+        }
+        if (upstream.consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            upstream.consecutiveFailures.set(0);
+            upstream.ejectedUntil = System.nanoTime() + ejectNanos;
+            logger.warning(() -> "後端執行個體連續失敗，暫停使用：" + routePath + " " + upstream.baseUrl
+                    + " (" + ex.getMessage() + ")");
+        }
+    }
+
+    /**
+     * 停止主動健康檢查，並移除仍屬於這個 pool 的指標
+     */
+    void destroy() {
+        if (healthCheck != null) {
+            healthCheck.dispose();
+        }
+        for (Meter meter : meters) {
+            if (meterRegistry.find(meter.getId().getName()).tags(meter.getId().getTags()).meter() == meter) {
+                meterRegistry.remove(meter);
+            }
+        }
+    }
+
+    /**
+     * 註冊指標；路由重新載入後同名的舊指標仍指向舊的執行個體，先移除再註冊
+     */
+    private void register(String name, String description, Upstream upstream, ToDoubleFunction<Upstream> value) {
+        Tags tags = Tags.of("route", routePath, "instance", upstream.baseUrl);
+        Meter previous = meterRegistry.find(name).tags(tags).meter();
+        if (previous != null) {
+            meterRegistry.remove(previous);
+        }
+        meters.add(Gauge.builder(name, upstream, value)
+                .description(description)
+                .tags(tags)
+                .register(meterRegistry));
+    }
+
+    private Upstream roundRobin(long now) {
+        int start = next.getAndIncrement();
+        for (int i = 0; i < upstreams.length; i++) {
+            Upstream upstream = upstreams[Math.floorMod(start + i, upstreams.length)];
+            if (upstream.isAvailable(now)) {
+                return upstream;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 由隨機位置開始找進行中請求數最少的執行個體，避免數量相同時都選到第一個
+     */
+    private Upstream leastOutstanding(long now) {
+        int start = ThreadLocalRandom.current().nextInt(upstreams.length);
+        Upstream selected = null;
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < upstreams.length; i++) {
+            Upstream upstream = upstreams[(start + i) % upstreams.length];
+            int outstanding = upstream.outstanding.get();
+            if (outstanding < min && upstream.isAvailable(now)) {
+                selected = upstream;
+                min = outstanding;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 隨機取兩個執行個體，選近期延遲 x 進行中請求數較低者；兩個都不可用時改為找進行中請求數最少者
+     */
+    private Upstream powerOfTwoChoices(long now) {
+        if (upstreams.length == 1) {
+            return upstreams[0].isAvailable(now) ? upstreams[0] : null;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(upstreams.length);
+        int second = random.nextInt(upstreams.length - 1);
+        if (second >= first) {
+            second++;
+        }
+        Upstream a = upstreams[first];
+        Upstream b = upstreams[second];
+        boolean aAvailable = a.isAvailable(now);
+        boolean bAvailable = b.isAvailable(now);
+        if (aAvailable && bAvailable) {
+            return a.score() <= b.score() ? a : b;
+        }
+        if (aAvailable || bAvailable) {
+            return aAvailable ? a : b;
+        }
+        return leastOutstanding(now);
+    }
+
+    /**
+     * 每 health-check-interval 對每個執行個體送出 GET，2xx 表示健康
+     */
+    private Disposable startHealthCheck(WebClient webClient, ProxyProperties.LoadBalancer config) {
+        return Flux.interval(config.getHealthCheckInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> Flux.fromArray(upstreams)
+                        .flatMap(upstream -> webClient.get()
+                                .uri(upstream.baseUrl + config.getHealthCheckPath())
+                                .retrieve()
+                                .toBodilessEntity()
+                                .timeout(config.getHealthCheckTimeout())
+                                .map(response -> true)
+                                .onErrorReturn(false)
+                                .doOnNext(healthy -> updateHealth(upstream, healthy))))
+                .subscribe();
+    }
+
+    private void updateHealth(Upstream upstream, boolean healthy) {
+        if (upstream.activeHealthy == healthy) {
+            return;
+        }
+        upstream.activeHealthy = healthy;
+        if (healthy) {
+            logger.info(() -> "後端執行個體健康檢查恢復：" + routePath + " " + upstream.baseUrl);
+        } else {
+            logger.warning(() -> "後端執行個體健康檢查失敗，暫停使用：" + routePath + " " + upstream.baseUrl);
+        }
+    }
+
+    /**
+     * 後端的一個執行個體與其即時狀態
+     */
+    static final class Upstream {
+        private final String baseUrl;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile long latencyNanos;             // 近期延遲 (指數移動平均)，多執行緒同時更新時允許遺失少量樣本
+        private volatile long ejectedUntil;             // 被動檢查暫停使用到何時 (System.nanoTime)，0 表示未暫停
+        private volatile boolean activeHealthy = true;  // 主動檢查的結果
+
+        private Upstream(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        /**
+         * 呼叫開始，進行中請求數加 1
+         */
+        void acquire() {
+            outstanding.incrementAndGet();
+        }
+
+        /**
+         * 呼叫結束，進行中請求數減 1
+         */
+        void release() {
+            outstanding.decrementAndGet();
+        }
+
+        private boolean isAvailable(long now) {
+            long until = ejectedUntil;
+            return activeHealthy && (until == 0 || now - until >= 0);
+        }
+
+        private void updateLatency(long nanos) {
+            if (nanos <= 0) {
+                return;
+            }
+            long current = latencyNanos;
+            latencyNanos = current == 0 ? nanos : (long) (current + EWMA_ALPHA * (nanos - current));
+        }
+
+        private double score() {
+            return (latencyNanos + 1.0) * (outstanding.get() + 1);
+        }
+    }
+}
@@ -1,19 +1,42 @@
 package com.example.mediator.config;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
-public class CorsConfig implements WebMvcConfigurer {
-    @Override
-    public void addCorsMappings(CorsRegistry registry) {
-        registry.addMapping("/**") // 適用於所有路徑
-                .allowedOriginPatterns("http://localhost:[*]") // 允許的來源
-                .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS") // 允許的 HTTP 方法
-                .allowedHeaders("*") // 允許所有請求頭
-                .exposedHeaders("*") // 暴露所有 Header 給前端
-                .allowCredentials(true) // 是否允許攜帶憑證（如 Cookie）
-                .maxAge(3600); // 預檢請求的有效期（秒）
+public class CorsConfig {
+
+    @Configuration
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    static class ServletCorsConfig implements WebMvcConfigurer {
+        @Override
+        public void addCorsMappings(CorsRegistry registry) {
+            registry.addMapping("/**") // 適用於所有路徑
+                    .allowedOriginPatterns("http://localhost:[*]") // 允許的來源
+                    .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS") // 允許的 HTTP 方法
+                    .allowedHeaders("*") // 允許所有請求頭
+                    .exposedHeaders("*") // 暴露所有 Header 給前端
+                    .allowCredentials(true) // 是否允許攜帶憑證（如 Cookie）
+                    .maxAge(3600); // 預檢請求的有效期（秒）
+        }
+    }
+
+    // WebFlux 模式使用相同的 CORS 設定
+    @Configuration
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    static class ReactiveCorsConfig implements WebFluxConfigurer {
+        @Override
+        public void addCorsMappings(org.springframework.web.reactive.config.CorsRegistry registry) {
+            registry.addMapping("/**")
+                    .allowedOriginPatterns("http://localhost:[*]")
+                    .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
+                    .allowedHeaders("*")
+                    .exposedHeaders("*")
+                    .allowCredentials(true)
+                    .maxAge(3600);
+        }
     }
 }
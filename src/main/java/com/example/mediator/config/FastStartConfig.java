@@ -0,0 +1,39 @@
+package com.example.mediator.config;
+
+import com.example.mediator.controller.ApiProxyController;
+import com.example.mediator.controller.ReactiveProxyHandler;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+
+import java.util.Set;
+
+/**
+ * 快速啟動模式 (--spring.profiles.active=fast-start，見 application-fast-start.yml)
+ * <p>
+ * spring.main.lazy-initialization=true 時 bean 改為第一次使用時才建立，springdoc / Swagger UI、TextController 與 actuator 的其他端點
+ * 不再拖慢啟動；代理流程 (路由表、後端連線、ProxyService 與 /proxy 的 Controller / Handler) 仍於啟動時建立，
+ * 再由 ProxyWarmup 暖機，避免把建立成本轉嫁到第一個請求。
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.main.lazy-initialization", havingValue = "true")
+public class FastStartConfig {
+
+    private static final Set<String> EAGER_PACKAGES = Set.of(
+            "com.example.mediator.client",
+            "com.example.mediator.service");
+
+    /**
+     * 代理流程的 bean 不延後建立
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter proxyPipelineLazyInitializationExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> beanType != null
+                && (EAGER_PACKAGES.contains(beanType.getPackageName())
+                || ApiProxyController.class.isAssignableFrom(beanType)
+                || ReactiveProxyHandler.class.isAssignableFrom(beanType)
+                || RouterFunction.class.isAssignableFrom(beanType));
+    }
+}
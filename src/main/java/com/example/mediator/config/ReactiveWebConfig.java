@@ -0,0 +1,53 @@
+package com.example.mediator.config;
+
+import com.example.mediator.controller.ReactiveProxyHandler;
+import com.example.mediator.utils.JsonStreamResponses;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorResourceFactory;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.path;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * WebFlux 模式 (spring.main.web-application-type=reactive) 的伺服器與 /proxy 路由
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfig implements WebFluxConfigurer {
+
+    /**
+     * 使用 Netty 作為伺服器 (classpath 同時有 Tomcat 時，Spring Boot 預設會選 Tomcat)，
+     * 與後端 WebClient 共用同一組 event loop
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory(ObjectProvider<ReactorResourceFactory> resourceFactory) {
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory();
+        resourceFactory.ifAvailable(factory::setResourceFactory);
+        return factory;
+    }
+
+    /**
+     * Controller 串流回傳的 JSON 陣列 / NDJSON ({@link JsonStreamResponses}) 直接寫出，不經 Jackson
+     */
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        configurer.customCodecs().register(JsonStreamResponses.bodyWriter());
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> proxyRoutes(ReactiveProxyHandler handler) {
+        return route(GET("/proxy/swagger-config"), handler::swaggerConfig)
+                .andRoute(GET("/proxy/api-docs"), handler::mergedApiDocs)
+                .andRoute(GET("/proxy/{backendName}/api-docs"), handler::apiDocs)
+                .andRoute(path("/proxy/{backendName}/**"), handler::proxy);
+    }
+}
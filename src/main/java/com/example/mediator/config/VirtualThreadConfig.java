@@ -0,0 +1,36 @@
+package com.example.mediator.config;
+
+import com.example.mediator.utils.VirtualThreads;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 虛擬執行緒模式 (spring.threads.virtual.enabled=true，需 JDK 21 以上)
+ * <p>
+ * Tomcat 改以虛擬執行緒處理請求：Controller 以 ApiWebClientUtils 阻塞呼叫後端 (block())、
+ * 或 ProxyService 同步讀取 request body 時，只會暫停虛擬執行緒而不佔用平台執行緒，
+ * 並行數不再受 server.tomcat.threads.max 限制 (改由 server.tomcat.max-connections 控制)。
+ * 屬性名稱與 Spring Boot 3.2 相同，升級後可直接沿用。
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        return VirtualThreads.newVirtualThreadPerTaskExecutor();
+    }
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadTomcatCustomizer(ExecutorService virtualThreadExecutor) {
+        return factory -> factory.addProtocolHandlerCustomizers(
+                protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor));
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.mediator.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * 中台服務呼叫後端 API (ApiWebClientUtils) 的設定
+ */
+@ConfigurationProperties(prefix = "api-client")
+public class ApiClientProperties {
+    private int cacheMaxSize = 64;                                  // 快取的 WebClient 數量上限 (以後端網域區分)
+    private Duration cacheExpireAfterAccess = Duration.ofMinutes(30); // WebClient 多久未使用即移除
+    private Duration timeout = Duration.ofSeconds(10);              // 呼叫後端 API 的預設逾時
+    private int aggregateConcurrency = 8;                           // 聚合呼叫 (ApiAggregator) 同時進行的呼叫數上限
+    private Duration batchWindow = Duration.ofMillis(2);            // 批次合併 (ApiBatchLoader) 收集單筆查詢的時間窗
+    private int batchMaxSize = 100;                                 // 批次合併單次呼叫的 key 數量上限
+    private int maxConnections = 500;                               // 每個後端網域的最大連線數
+    private int pendingAcquireMaxCount = 1000;                      // 等待取得連線的最大排隊數
+    private DataSize maxInMemorySize = DataSize.ofKilobytes(256);   // 單筆 / List 回應合併後解析的大小上限，大型陣列改用 xxxDtoFlux
+
+    public int getCacheMaxSize() {
+        return cacheMaxSize;
+    }
+
+    public void setCacheMaxSize(int cacheMaxSize) {
+        this.cacheMaxSize = cacheMaxSize;
+    }
+
+    public Duration getCacheExpireAfterAccess() {
+        return cacheExpireAfterAccess;
+    }
+
+    public void setCacheExpireAfterAccess(Duration cacheExpireAfterAccess) {
+        this.cacheExpireAfterAccess = cacheExpireAfterAccess;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public int getAggregateConcurrency() {
+        return aggregateConcurrency;
+    }
+
+    public void setAggregateConcurrency(int aggregateConcurrency) {
+        this.aggregateConcurrency = aggregateConcurrency;
+    }
+
+    public Duration getBatchWindow() {
+        return batchWindow;
+    }
+
+    public void setBatchWindow(Duration batchWindow) {
+        this.batchWindow = batchWindow;
+    }
+
+    public int getBatchMaxSize() {
+        return batchMaxSize;
+    }
+
+    public void setBatchMaxSize(int batchMaxSize) {
+        this.batchMaxSize = batchMaxSize;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getPendingAcquireMaxCount() {
+        return pendingAcquireMaxCount;
+    }
+
+    public void setPendingAcquireMaxCount(int pendingAcquireMaxCount) {
+        this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+    }
+
+    public DataSize getMaxInMemorySize() {
+        return maxInMemorySize;
+    }
+
+    public void setMaxInMemorySize(DataSize maxInMemorySize) {
+        this.maxInMemorySize = maxInMemorySize;
+    }
+}
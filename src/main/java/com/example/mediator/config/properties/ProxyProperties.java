@@ -1,17 +1,42 @@
 package com.example.mediator.config.properties;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 @ConfigurationProperties(prefix = "proxy")
 public class ProxyProperties {
     private List<ProxyApi> apis;
+    private DataSize cacheMaxSize = DataSize.ofMegabytes(64);   // 回應快取的總容量上限 (所有後端共用)
+    private ApiDocs apiDocs = new ApiDocs();                    // 後端 api-docs 快取設定
+    private AccessLog accessLog = new AccessLog();              // 代理請求的 access log 設定
+    private Reload reload = new Reload();                       // 執行中重新載入路由的設定
+    private Warmup warmup = new Warmup();                       // 啟動時的暖機設定
 
     public static class ProxyApi {
         private String name;
         private String path;
         private String url;
+        private List<String> urls = new ArrayList<>();  // 同一後端的其他執行個體網址 (與 url 一起分散請求)
+        private LoadBalancer loadBalancer = new LoadBalancer(); // 多個執行個體時的負載平衡與健康檢查設定
+        private boolean streaming = false;       // 是否以串流方式轉發 (適用大檔案上傳 / 下載)
+        private Pool pool = new Pool();          // 連線池設定 (每個後端各自獨立)
+        private Http2 http2 = new Http2();       // 以 HTTP/2 連線後端的設定 (預設 HTTP/1.1)
+        private Timeout timeout = new Timeout(); // 逾時設定
+        private Cache cache = new Cache();       // GET 回應快取設定
+        private String apiDocsPath = "/api-docs"; // 後端 OpenAPI 文件的路徑
+        private CircuitBreaker circuitBreaker = new CircuitBreaker(); // 斷路器設定
+        private Bulkhead bulkhead = new Bulkhead();                   // 同時請求數限制 (隔艙)
+        private Headers headers = new Headers();                      // 轉送 headers 的 allow / deny 清單
+        private Retry retry = new Retry();                            // 冪等請求的重試設定
+        private Hedge hedge = new Hedge();                            // GET 對沖請求設定
+        private Compression compression = new Compression();          // 後端未壓縮時由中台 gzip 壓縮回應
+        private RateLimit rateLimit = new RateLimit();                // 後端與用戶端的請求速率限制
+        private ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit(); // 依後端延遲自動調整的同時請求數上限
 
         public String getName() {
             return name;
@@ -36,6 +61,1004 @@ public class ProxyProperties {
         public void setUrl(String url) {
             this.url = url;
         }
+
+        public List<String> getUrls() {
+            return urls;
+        }
+
+        public void setUrls(List<String> urls) {
+            this.urls = urls;
+        }
+
+        public LoadBalancer getLoadBalancer() {
+            return loadBalancer;
+        }
+
+        public void setLoadBalancer(LoadBalancer loadBalancer) {
+            this.loadBalancer = loadBalancer;
+        }
+
+        public boolean isStreaming() {
+            return streaming;
+        }
+
+        public void setStreaming(boolean streaming) {
+            this.streaming = streaming;
+        }
+
+        public Pool getPool() {
+            return pool;
+        }
+
+        public void setPool(Pool pool) {
+            this.pool = pool;
+        }
+
+        public Http2 getHttp2() {
+            return http2;
+        }
+
+        public void setHttp2(Http2 http2) {
+            this.http2 = http2;
+        }
+
+        public Timeout getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Timeout timeout) {
+            this.timeout = timeout;
+        }
+
+        public Cache getCache() {
+            return cache;
+        }
+
+        public void setCache(Cache cache) {
+            this.cache = cache;
+        }
+
+        public String getApiDocsPath() {
+            return apiDocsPath;
+        }
+
+        public void setApiDocsPath(String apiDocsPath) {
+            this.apiDocsPath = apiDocsPath;
+        }
+
+        public CircuitBreaker getCircuitBreaker() {
+            return circuitBreaker;
+        }
+
+        public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+        }
+
+        public Bulkhead getBulkhead() {
+            return bulkhead;
+        }
+
+        public void setBulkhead(Bulkhead bulkhead) {
+            this.bulkhead = bulkhead;
+        }
+
+        public Headers getHeaders() {
+            return headers;
+        }
+
+        public void setHeaders(Headers headers) {
+            this.headers = headers;
+        }
+
+        public Retry getRetry() {
+            return retry;
+        }
+
+        public void setRetry(Retry retry) {
+            this.retry = retry;
+        }
+
+        public Hedge getHedge() {
+            return hedge;
+        }
+
+        public void setHedge(Hedge hedge) {
+            this.hedge = hedge;
+        }
+
+        public Compression getCompression() {
+            return compression;
+        }
+
+        public void setCompression(Compression compression) {
+            this.compression = compression;
+        }
+
+        public RateLimit getRateLimit() {
+            return rateLimit;
+        }
+
+        public void setRateLimit(RateLimit rateLimit) {
+            this.rateLimit = rateLimit;
+        }
+
+        public ConcurrencyLimit getConcurrencyLimit() {
+            return concurrencyLimit;
+        }
+
+        public void setConcurrencyLimit(ConcurrencyLimit concurrencyLimit) {
+            this.concurrencyLimit = concurrencyLimit;
+        }
+    }
+
+    /**
+     * 後端連線池設定
+     */
+    public static class Pool {
+        private int maxConnections = 100;                           // 最大連線數
+        private int pendingAcquireMaxCount = 200;                   // 等待取得連線的最大排隊數，超過即失敗
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5); // 等待取得連線的逾時
+        private Duration maxIdleTime = Duration.ofSeconds(30);      // 連線閒置多久後關閉
+        private Duration maxLifeTime;                               // 連線最長存活時間，未設定則不限制
+        private Duration evictInBackground = Duration.ofSeconds(30); // 背景清除閒置連線的週期
+        private boolean keepAlive = true;                           // 是否使用 HTTP keep-alive
+        private int warmupConnections = 2;                          // 啟動暖機時每個執行個體預先建立並檢查的連線數
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public int getPendingAcquireMaxCount() {
+            return pendingAcquireMaxCount;
+        }
+
+        public void setPendingAcquireMaxCount(int pendingAcquireMaxCount) {
+            this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+        }
+
+        public Duration getPendingAcquireTimeout() {
+            return pendingAcquireTimeout;
+        }
+
+        public void setPendingAcquireTimeout(Duration pendingAcquireTimeout) {
+            this.pendingAcquireTimeout = pendingAcquireTimeout;
+        }
+
+        public Duration getMaxIdleTime() {
+            return maxIdleTime;
+        }
+
+        public void setMaxIdleTime(Duration maxIdleTime) {
+            this.maxIdleTime = maxIdleTime;
+        }
+
+        public Duration getMaxLifeTime() {
+            return maxLifeTime;
+        }
+
+        public void setMaxLifeTime(Duration maxLifeTime) {
+            this.maxLifeTime = maxLifeTime;
+        }
+
+        public Duration getEvictInBackground() {
+            return evictInBackground;
+        }
+
+        public void setEvictInBackground(Duration evictInBackground) {
+            this.evictInBackground = evictInBackground;
+        }
+
+        public boolean isKeepAlive() {
+            return keepAlive;
+        }
+
+        public void setKeepAlive(boolean keepAlive) {
+            this.keepAlive = keepAlive;
+        }
+
+        public int getWarmupConnections() {
+            return warmupConnections;
+        }
+
+        public void setWarmupConnections(int warmupConnections) {
+            this.warmupConnections = warmupConnections;
+        }
+    }
+
+    /**
+     * 以 HTTP/2 連線後端的設定
+     * <p>
+     * 啟用後 http:// 的後端使用 h2c (prior-knowledge)，https:// 的後端以 TLS ALPN 協商 h2，多個請求共用少數幾條連線 (multiplexing)。
+     * 第一次使用時先確認後端是否支援，支援前與不支援時沿用 HTTP/1.1 及 pool 的連線池設定。
+     */
+    public static class Http2 {
+        private boolean enabled = false;            // 是否啟用
+        private int maxConnections = 2;             // HTTP/2 連線數上限
+        private int maxConcurrentStreams = 100;     // 每條連線同時進行的請求數上限 (後端宣告的上限較小時以後端為準)
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public int getMaxConcurrentStreams() {
+            return maxConcurrentStreams;
+        }
+
+        public void setMaxConcurrentStreams(int maxConcurrentStreams) {
+            this.maxConcurrentStreams = maxConcurrentStreams;
+        }
+    }
+
+    /**
+     * 後端逾時設定
+     */
+    public static class Timeout {
+        private Duration connect = Duration.ofSeconds(5);       // 建立連線逾時
+        private Duration read = Duration.ofSeconds(30);         // 兩次讀取之間的逾時
+        private Duration response = Duration.ofSeconds(30);     // 送出請求後等待回應的逾時
+
+        public Duration getConnect() {
+            return connect;
+        }
+
+        public void setConnect(Duration connect) {
+            this.connect = connect;
+        }
+
+        public Duration getRead() {
+            return read;
+        }
+
+        public void setRead(Duration read) {
+            this.read = read;
+        }
+
+        public Duration getResponse() {
+            return response;
+        }
+
+        public void setResponse(Duration response) {
+            this.response = response;
+        }
+    }
+
+    /**
+     * GET 回應快取設定
+     */
+    public static class Cache {
+        private boolean enabled = false;                                // 是否啟用回應快取
+        private Duration ttl = Duration.ofSeconds(60);                  // 後端未回傳 Cache-Control max-age 時的有效時間
+        private Duration staleWhileRevalidate = Duration.ZERO;          // 過期後仍可先回傳舊資料並於背景更新的時間
+        private List<String> keyHeaders = new ArrayList<>();            // 納入快取 key 的 request headers (例如 Accept-Language)
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public Duration getStaleWhileRevalidate() {
+            return staleWhileRevalidate;
+        }
+
+        public void setStaleWhileRevalidate(Duration staleWhileRevalidate) {
+            this.staleWhileRevalidate = staleWhileRevalidate;
+        }
+
+        public List<String> getKeyHeaders() {
+            return keyHeaders;
+        }
+
+        public void setKeyHeaders(List<String> keyHeaders) {
+            this.keyHeaders = keyHeaders;
+        }
+    }
+
+    /**
+     * 斷路器設定 (連線失敗、逾時、5xx 視為失敗；4xx 不計入)
+     */
+    public static class CircuitBreaker {
+        private boolean enabled = true;                                 // 是否啟用
+        private float failureRateThreshold = 50;                        // 失敗率 (%) 達到時開啟斷路器
+        private float slowCallRateThreshold = 100;                      // 慢呼叫比例 (%) 達到時開啟斷路器
+        private Duration slowCallDurationThreshold = Duration.ofSeconds(10); // 超過此時間視為慢呼叫
+        private int slidingWindowSize = 50;                             // 統計最近幾次呼叫
+        private int minimumNumberOfCalls = 20;                          // 至少幾次呼叫後才開始計算失敗率
+        private Duration waitDurationInOpenState = Duration.ofSeconds(30); // 開啟後多久進入半開狀態
+        private int permittedNumberOfCallsInHalfOpenState = 5;          // 半開狀態允許的試探呼叫數
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public float getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public void setFailureRateThreshold(float failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        public float getSlowCallRateThreshold() {
+            return slowCallRateThreshold;
+        }
+
+        public void setSlowCallRateThreshold(float slowCallRateThreshold) {
+            this.slowCallRateThreshold = slowCallRateThreshold;
+        }
+
+        public Duration getSlowCallDurationThreshold() {
+            return slowCallDurationThreshold;
+        }
+
+        public void setSlowCallDurationThreshold(Duration slowCallDurationThreshold) {
+            this.slowCallDurationThreshold = slowCallDurationThreshold;
+        }
+
+        public int getSlidingWindowSize() {
+            return slidingWindowSize;
+        }
+
+        public void setSlidingWindowSize(int slidingWindowSize) {
+            this.slidingWindowSize = slidingWindowSize;
+        }
+
+        public int getMinimumNumberOfCalls() {
+            return minimumNumberOfCalls;
+        }
+
+        public void setMinimumNumberOfCalls(int minimumNumberOfCalls) {
+            this.minimumNumberOfCalls = minimumNumberOfCalls;
+        }
+
+        public Duration getWaitDurationInOpenState() {
+            return waitDurationInOpenState;
+        }
+
+        public void setWaitDurationInOpenState(Duration waitDurationInOpenState) {
+            this.waitDurationInOpenState = waitDurationInOpenState;
+        }
+
+        public int getPermittedNumberOfCallsInHalfOpenState() {
+            return permittedNumberOfCallsInHalfOpenState;
+        }
+
+        public void setPermittedNumberOfCallsInHalfOpenState(int permittedNumberOfCallsInHalfOpenState) {
+            this.permittedNumberOfCallsInHalfOpenState = permittedNumberOfCallsInHalfOpenState;
+        }
+    }
+
+    /**
+     * 同時請求數限制 (隔艙)，額滿時直接回傳 503
+     */
+    public static class Bulkhead {
+        private boolean enabled = true;                                 // 是否啟用
+        private int maxConcurrentCalls = 200;                           // 同時進行的請求數上限
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxConcurrentCalls() {
+            return maxConcurrentCalls;
+        }
+
+        public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+            this.maxConcurrentCalls = maxConcurrentCalls;
+        }
+    }
+
+    /**
+     * 多個後端執行個體的負載平衡與健康檢查設定
+     * <p>
+     * 被動檢查：連續 failure-threshold 次連線失敗或 5xx 的執行個體暫停使用 eject-duration；
+     * 主動檢查：設定 health-check-path 時，每 health-check-interval 對每個執行個體送出 GET，失敗即暫停使用直到恢復。
+     * 所有執行個體都不可用時仍會輪流送出，不會整個後端直接失敗。
+     */
+    public static class LoadBalancer {
+        private Strategy strategy = Strategy.ROUND_ROBIN;               // 選擇執行個體的方式
+        private int failureThreshold = 3;                               // 連續失敗幾次暫停使用
+        private Duration ejectDuration = Duration.ofSeconds(30);        // 暫停使用的時間
+        private String healthCheckPath;                                 // 主動健康檢查的路徑 (例如 /actuator/health)，未設定則不檢查
+        private Duration healthCheckInterval = Duration.ofSeconds(10);  // 主動健康檢查的週期
+        private Duration healthCheckTimeout = Duration.ofSeconds(2);    // 主動健康檢查的逾時
+
+        /**
+         * 選擇執行個體的方式
+         */
+        public enum Strategy {
+            ROUND_ROBIN,            // 輪流
+            LEAST_OUTSTANDING,      // 進行中請求數最少
+            POWER_OF_TWO_CHOICES    // 隨機取兩個，選近期延遲 x 進行中請求數較低者
+        }
+
+        public Strategy getStrategy() {
+            return strategy;
+        }
+
+        public void setStrategy(Strategy strategy) {
+            this.strategy = strategy;
+        }
+
+        public int getFailureThreshold() {
+            return failureThreshold;
+        }
+
+        public void setFailureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+        }
+
+        public Duration getEjectDuration() {
+            return ejectDuration;
+        }
+
+        public void setEjectDuration(Duration ejectDuration) {
+            this.ejectDuration = ejectDuration;
+        }
+
+        public String getHealthCheckPath() {
+            return healthCheckPath;
+        }
+
+        public void setHealthCheckPath(String healthCheckPath) {
+            this.healthCheckPath = healthCheckPath;
+        }
+
+        public Duration getHealthCheckInterval() {
+            return healthCheckInterval;
+        }
+
+        public void setHealthCheckInterval(Duration healthCheckInterval) {
+            this.healthCheckInterval = healthCheckInterval;
+        }
+
+        public Duration getHealthCheckTimeout() {
+            return healthCheckTimeout;
+        }
+
+        public void setHealthCheckTimeout(Duration healthCheckTimeout) {
+            this.healthCheckTimeout = healthCheckTimeout;
+        }
+    }
+
+    /**
+     * 冪等請求 (GET、HEAD、OPTIONS、PUT、DELETE) 的重試設定，預設不啟用 (重試會改變後端收到的請求量，由各後端自行啟用)
+     * <p>
+     * 連線失敗 (連不上、連線逾時、回應前連線中斷) 或後端回應列出的狀態碼時，以指數退避加上隨機抖動重試；
+     * 等待回應逾時不重試。
+     * 重試 (與對沖請求) 受後端的重試預算限制：每個請求累積 budget-ratio 次額度，
+     * 另外每秒保留 min-retries-per-second 次，後端故障時重試量不會超過正常流量的固定比例。
+     * 串流模式且帶有 request body 的請求無法重送，不會重試。
+     */
+    public static class Retry {
+        private boolean enabled = false;                                // 是否啟用
+        private int maxRetries = 2;                                     // 最多重試次數 (不含第一次)
+        private Duration backoff = Duration.ofMillis(50);               // 第一次重試前的等待時間，之後每次加倍
+        private Duration maxBackoff = Duration.ofSeconds(1);            // 等待時間上限
+        private double jitter = 0.5;                                    // 等待時間的隨機抖動比例 (0 ~ 1)
+        private List<Integer> statuses = new ArrayList<>(List.of(502, 503, 504)); // 需要重試的後端狀態碼
+        private double budgetRatio = 0.2;                               // 重試量相對於請求量的比例上限
+        private int minRetriesPerSecond = 5;                            // 流量少時每秒仍允許的重試次數
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxRetries() {
+            return maxRetries;
+        }
+
+        public void setMaxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+        }
+
+        public Duration getBackoff() {
+            return backoff;
+        }
+
+        public void setBackoff(Duration backoff) {
+            this.backoff = backoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+        public double getJitter() {
+            return jitter;
+        }
+
+        public void setJitter(double jitter) {
+            this.jitter = jitter;
+        }
+
+        public List<Integer> getStatuses() {
+            return statuses;
+        }
+
+        public void setStatuses(List<Integer> statuses) {
+            this.statuses = statuses;
+        }
+
+        public double getBudgetRatio() {
+            return budgetRatio;
+        }
+
+        public void setBudgetRatio(double budgetRatio) {
+            this.budgetRatio = budgetRatio;
+        }
+
+        public int getMinRetriesPerSecond() {
+            return minRetriesPerSecond;
+        }
+
+        public void setMinRetriesPerSecond(int minRetriesPerSecond) {
+            this.minRetriesPerSecond = minRetriesPerSecond;
+        }
+    }
+
+    /**
+     * GET 對沖請求 (hedged request) 設定
+     * <p>
+     * GET 超過近期後端延遲的 percentile 百分位數仍未回應時，再送出一次相同的請求，採用先回應的結果。
+     * 對沖請求與重試共用重試預算；樣本數不足時不送出對沖請求。只適用非串流模式。
+     */
+    public static class Hedge {
+        private boolean enabled = false;                                // 是否啟用
+        private double percentile = 95;                                 // 以近期後端延遲的第幾百分位數作為等待時間
+        private Duration minDelay = Duration.ofMillis(20);              // 等待時間下限
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public void setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+        }
+    }
+
+    /**
+     * 請求速率限制 (token bucket)，超過時回應 429 與 Retry-After
+     * <p>
+     * 後端整體與每個用戶端各自一個 bucket，每秒補充 requests-per-second 個 token，最多累積 burst 個；
+     * 用戶端以 client-key-header 的值區分，未設定或請求沒有該 header 時以來源 IP 區分。
+     * header 值由用戶端自行送出，應只用於前方已驗證的 header；第一次出現的 header 值先扣來源 IP 的 bucket (見 ProxyAdmission)。
+     */
+    public static class RateLimit {
+        private boolean enabled = false;                // 是否啟用
+        private double routeRequestsPerSecond = 0;      // 後端整體每秒請求數上限，0 表示不限制
+        private int routeBurst = 100;                   // 後端整體可瞬間通過的請求數
+        private double clientRequestsPerSecond = 0;     // 每個用戶端每秒請求數上限，0 表示不限制
+        private int clientBurst = 20;                   // 每個用戶端可瞬間通過的請求數
+        private String clientKeyHeader;                 // 區分用戶端的 header (例如 X-Api-Key)，未設定則以來源 IP 區分
+        private int maxClients = 100000;                // 同時追蹤的用戶端數量上限 (IP 與 header 值各自計算)
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getRouteRequestsPerSecond() {
+            return routeRequestsPerSecond;
+        }
+
+        public void setRouteRequestsPerSecond(double routeRequestsPerSecond) {
+            this.routeRequestsPerSecond = routeRequestsPerSecond;
+        }
+
+        public int getRouteBurst() {
+            return routeBurst;
+        }
+
+        public void setRouteBurst(int routeBurst) {
+            this.routeBurst = routeBurst;
+        }
+
+        public double getClientRequestsPerSecond() {
+            return clientRequestsPerSecond;
+        }
+
+        public void setClientRequestsPerSecond(double clientRequestsPerSecond) {
+            this.clientRequestsPerSecond = clientRequestsPerSecond;
+        }
+
+        public int getClientBurst() {
+            return clientBurst;
+        }
+
+        public void setClientBurst(int clientBurst) {
+            this.clientBurst = clientBurst;
+        }
+
+        public String getClientKeyHeader() {
+            return clientKeyHeader;
+        }
+
+        public void setClientKeyHeader(String clientKeyHeader) {
+            this.clientKeyHeader = clientKeyHeader;
+        }
+
+        public int getMaxClients() {
+            return maxClients;
+        }
+
+        public void setMaxClients(int maxClients) {
+            this.maxClients = maxClients;
+        }
+    }
+
+    /**
+     * 自動調整的同時請求數上限 (gradient)，超過時回應 503
+     * <p>
+     * 比較後端近期延遲與無負載延遲：近期延遲超過無負載延遲的 tolerance 倍時降低上限，延遲正常且上限用滿時逐步提高；
+     * 連線失敗、逾時或後端回應 503 / 504 時上限乘上 backoff-ratio。在後端延遲惡化前先拒絕多出的請求。
+     */
+    public static class ConcurrencyLimit {
+        private boolean enabled = false;        // 是否啟用
+        private int initialLimit = 20;          // 初始上限
+        private int minLimit = 5;               // 上限的下限
+        private int maxLimit = 500;             // 上限的上限
+        private double tolerance = 2.0;         // 近期延遲為無負載延遲的幾倍以內視為正常
+        private double backoffRatio = 0.9;      // 連線失敗或逾時時上限乘上的比例
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public double getTolerance() {
+            return tolerance;
+        }
+
+        public void setTolerance(double tolerance) {
+            this.tolerance = tolerance;
+        }
+
+        public double getBackoffRatio() {
+            return backoffRatio;
+        }
+
+        public void setBackoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+        }
+    }
+
+    /**
+     * 回應壓縮設定
+     * <p>
+     * 後端已壓縮 (有 Content-Encoding) 的回應一律原樣轉送，不解壓也不重新壓縮；
+     * 啟用時，後端未壓縮、前端接受 gzip、Content-Type 可壓縮且大小達 min-response-size 的回應由中台以 gzip 壓縮。
+     */
+    public static class Compression {
+        private boolean enabled = false;                                // 是否由中台壓縮
+        private DataSize minResponseSize = DataSize.ofKilobytes(2);     // 小於此大小不壓縮 (長度未知的串流回應一律壓縮)
+        private int level = 1;                                          // gzip 壓縮等級 (1 最快 ~ 9 最小)
+        private List<String> mimeTypes = new ArrayList<>(Arrays.asList( // 可壓縮的 Content-Type (另含 +json / +xml 結尾的類型)
+                "text/html", "text/plain", "text/css", "text/csv", "text/xml", "text/javascript",
+                "application/json", "application/javascript", "application/xml", "application/x-ndjson",
+                "image/svg+xml"));
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public DataSize getMinResponseSize() {
+            return minResponseSize;
+        }
+
+        public void setMinResponseSize(DataSize minResponseSize) {
+            this.minResponseSize = minResponseSize;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public void setLevel(int level) {
+            this.level = level;
+        }
+
+        public List<String> getMimeTypes() {
+            return mimeTypes;
+        }
+
+        public void setMimeTypes(List<String> mimeTypes) {
+            this.mimeTypes = mimeTypes;
+        }
+    }
+
+    /**
+     * 轉送 headers 的 allow / deny 清單 (名稱不分大小寫)
+     * <p>
+     * allow 有設定時只轉送列出的 headers；deny 列出的 headers 一律不轉送。
+     * hop-by-hop headers (Connection、Transfer-Encoding 等) 不論設定都不會轉送。
+     */
+    public static class Headers {
+        private List<String> requestAllow = new ArrayList<>();          // 只轉送到後端的 request headers (空白表示全部)
+        private List<String> requestDeny = new ArrayList<>();           // 不轉送到後端的 request headers (例如 Cookie)
+        private List<String> responseAllow = new ArrayList<>();         // 只回傳給前端的 response headers (空白表示全部)
+        private List<String> responseDeny = new ArrayList<>();          // 不回傳給前端的 response headers (例如 Server)
+
+        public List<String> getRequestAllow() {
+            return requestAllow;
+        }
+
+        public void setRequestAllow(List<String> requestAllow) {
+            this.requestAllow = requestAllow;
+        }
+
+        public List<String> getRequestDeny() {
+            return requestDeny;
+        }
+
+        public void setRequestDeny(List<String> requestDeny) {
+            this.requestDeny = requestDeny;
+        }
+
+        public List<String> getResponseAllow() {
+            return responseAllow;
+        }
+
+        public void setResponseAllow(List<String> responseAllow) {
+            this.responseAllow = responseAllow;
+        }
+
+        public List<String> getResponseDeny() {
+            return responseDeny;
+        }
+
+        public void setResponseDeny(List<String> responseDeny) {
+            this.responseDeny = responseDeny;
+        }
+    }
+
+    /**
+     * 後端 api-docs 快取設定
+     */
+    public static class ApiDocs {
+        private Duration refreshInterval = Duration.ofMinutes(5);      // 背景更新後端 api-docs 的週期
+        private boolean merged = false;                                 // 是否提供合併所有後端的文件 (/proxy/api-docs)
+
+        public Duration getRefreshInterval() {
+            return refreshInterval;
+        }
+
+        public void setRefreshInterval(Duration refreshInterval) {
+            this.refreshInterval = refreshInterval;
+        }
+
+        public boolean isMerged() {
+            return merged;
+        }
+
+        public void setMerged(boolean merged) {
+            this.merged = merged;
+        }
+    }
+
+    /**
+     * 執行中重新載入路由的設定
+     * <p>
+     * 設定 file 時，路由改由該檔案 (與 application.yml 相同格式的 proxy.apis) 載入，
+     * 每 check-interval 檢查檔案是否變更，也可 POST /actuator/proxyroutes (管理端點) 立即重新載入。
+     */
+    public static class Reload {
+        private String file;                                        // 路由設定檔的路徑，未設定則只使用 application.yml 的 proxy.apis
+        private Duration checkInterval = Duration.ofSeconds(5);     // 檢查檔案是否變更的週期
+        private Duration drainTimeout = Duration.ofSeconds(30);     // 移除或變更的後端，保留舊連線池讓進行中請求完成的時間
+
+        public String getFile() {
+            return file;
+        }
+
+        public void setFile(String file) {
+            this.file = file;
+        }
+
+        public Duration getCheckInterval() {
+            return checkInterval;
+        }
+
+        public void setCheckInterval(Duration checkInterval) {
+            this.checkInterval = checkInterval;
+        }
+
+        public Duration getDrainTimeout() {
+            return drainTimeout;
+        }
+
+        public void setDrainTimeout(Duration drainTimeout) {
+            this.drainTimeout = drainTimeout;
+        }
+    }
+
+    /**
+     * 啟動時的暖機設定
+     * <p>
+     * 啟用後在 Web 伺服器啟動後、回報 readiness 之前，對每個後端的每個執行個體預先建立 pool.warmup-connections 條連線並檢查，
+     * 再經由中台自己的 port 輪流對連得上的路由送出共 requests 個 GET /proxy/{path}{暖機路徑}，讓第一波流量不必負擔類別載入、JIT 與建立連線。
+     * 暖機失敗或逾時只記錄警告，不影響啟動。
+     */
+    public static class Warmup {
+        private boolean enabled = false;                                // 是否啟用
+        private int requests = 100;                                     // 暖機請求總數 (輪流送到各路由，每個路由至少一個)
+        private int concurrency = 4;                                    // 暖機請求的並行數
+        private String path;                                            // 暖機請求的路徑，未設定則使用路由的 load-balancer.health-check-path，兩者皆未設定為 /
+        private Duration timeout = Duration.ofSeconds(30);              // 暖機的時間上限
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getRequests() {
+            return requests;
+        }
+
+        public void setRequests(int requests) {
+            this.requests = requests;
+        }
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+    }
+
+    /**
+     * 代理請求的 access log 設定
+     */
+    public static class AccessLog {
+        private boolean enabled = true;                                 // 是否啟用
+        private double successSampleRate = 0.1;                         // 成功請求 (2xx / 3xx) 的記錄比例，失敗一律記錄
+        private Duration slowThreshold = Duration.ofSeconds(1);         // 超過此時間的請求一律記錄
+        private int bufferSize = 8192;                                  // 等待寫出的筆數上限，滿了即捨棄
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getSuccessSampleRate() {
+            return successSampleRate;
+        }
+
+        public void setSuccessSampleRate(double successSampleRate) {
+            this.successSampleRate = successSampleRate;
+        }
+
+        public Duration getSlowThreshold() {
+            return slowThreshold;
+        }
+
+        public void setSlowThreshold(Duration slowThreshold) {
+            this.slowThreshold = slowThreshold;
+        }
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
     }
 
     public List<ProxyApi> getApis() {
@@ -45,4 +1068,44 @@ public class ProxyProperties {
     public void setApis(List<ProxyApi> apis) {
         this.apis = apis;
     }
-}
\ No newline at end of file
+
+    public DataSize getCacheMaxSize() {
+        return cacheMaxSize;
+    }
+
+    public void setCacheMaxSize(DataSize cacheMaxSize) {
+        this.cacheMaxSize = cacheMaxSize;
+    }
+
+    public ApiDocs getApiDocs() {
+        return apiDocs;
+    }
+
+    public void setApiDocs(ApiDocs apiDocs) {
+        this.apiDocs = apiDocs;
+    }
+
+    public AccessLog getAccessLog() {
+        return accessLog;
+    }
+
+    public void setAccessLog(AccessLog accessLog) {
+        this.accessLog = accessLog;
+    }
+
+    public Reload getReload() {
+        return reload;
+    }
+
+    public void setReload(Reload reload) {
+        this.reload = reload;
+    }
+
+    public Warmup getWarmup() {
+        return warmup;
+    }
+
+    public void setWarmup(Warmup warmup) {
+        this.warmup = warmup;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.mediator.controller;
+
+import com.example.mediator.service.ApiDocsService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 立即更新 api-docs 的管理端點：POST /actuator/proxyapidocs
+ * <p>
+ * 與 {@link ProxyRoutesEndpoint} 相同，預設不開放，需加入 management.endpoints.web.exposure.include 並放在管理 port。
+ */
+@Component
+@Endpoint(id = "proxyapidocs")
+public class ApiDocsEndpoint {
+
+    private final ApiDocsService apiDocsService;
+
+    /**
+     * 建構子，注入 OpenAPI 文件服務
+     */
+    public ApiDocsEndpoint(ApiDocsService apiDocsService) {
+        this.apiDocsService = apiDocsService;
+    }
+
+    /**
+     * 立即重新取得所有後端的 api-docs
+     *
+     * @return 取得成功的後端 path
+     */
+    @WriteOperation
+    public Mono<List<String>> refresh() {
+        return apiDocsService.refresh();
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.mediator.controller;
 
+import com.example.mediator.service.ApiDocsService;
 import com.example.mediator.service.ProxyService;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.swagger.v3.oas.annotations.Hidden;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
@@ -12,21 +14,24 @@ import java.io.IOException;
 import java.util.logging.Logger;
 
 /**
- * API 中介控制器，負責處理進來的 HTTP 請求
+ * API 中介控制器，負責處理進來的 HTTP 請求 (Servlet 模式，WebFlux 模式改由 ReactiveProxyHandler 處理)
  */
 @Hidden
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RestController
 @RequestMapping("/proxy")
 public class ApiProxyController {
     private static final Logger logger = Logger.getLogger(ProxyService.class.getName());
 
     private final ProxyService proxyService;
+    private final ApiDocsService apiDocsService;
 
     /**
-     * 建構子，注入中介服務
+     * 建構子，注入中介服務與 OpenAPI 文件服務
      */
-    public ApiProxyController(ProxyService proxyService) {
+    public ApiProxyController(ProxyService proxyService, ApiDocsService apiDocsService) {
         this.proxyService = proxyService;
+        this.apiDocsService = apiDocsService;
     }
 
     /**
@@ -35,8 +40,39 @@ public class ApiProxyController {
      * @return Swagger 配置 JSON
      */
     @GetMapping("/swagger-config")
-    public ObjectNode swaggerConfig() {
-        return proxyService.buildSwaggerConfig();
+    public ResponseEntity<byte[]> swaggerConfig() {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(apiDocsService.getSwaggerConfig());
+    }
+
+    /**
+     * 取得合併所有後端的 api-docs (proxy.api-docs.merged 啟用時)
+     *
+     * @return 合併後的 api-docs
+     */
+    @GetMapping("/api-docs")
+    public ResponseEntity<byte[]> mergedApiDocs() {
+        byte[] apiDocs = apiDocsService.getMergedApiDocs();
+        if (apiDocs == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(apiDocs);
+    }
+
+    /**
+     * 取得後端的 api-docs，優先使用快取，尚未取得時即時轉發
+     *
+     * @param backendName 後端名稱
+     * @param request     原始 HTTP 請求
+     * @return 後端 api-docs
+     * @throws IOException 讀取請求錯誤
+     */
+    @GetMapping("/{backendName}/api-docs")
+    public Mono<ResponseEntity<?>> apiDocs(@PathVariable String backendName, HttpServletRequest request) throws IOException {
+        byte[] apiDocs = apiDocsService.getApiDocs(backendName);
+        if (apiDocs != null) {
+            return Mono.just(ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(apiDocs));
+        }
+        return proxyService.proxy(backendName, request);
     }
 
     /**
@@ -48,10 +84,10 @@ public class ApiProxyController {
      * @throws IOException 讀取請求錯誤
      */
     @RequestMapping(value = "/{backendName}/**", method = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE, RequestMethod.OPTIONS})
-    public Mono<ResponseEntity<byte[]>> proxyRequest(@PathVariable String backendName, HttpServletRequest request) throws IOException {
+    public Mono<ResponseEntity<?>> proxyRequest(@PathVariable String backendName, HttpServletRequest request) throws IOException {
         if ("OPTIONS".equalsIgnoreCase(request.getMethod())) {
             // 處理預檢請求
-            return Mono.just(ResponseEntity.ok().headers(proxyService.buildCorsHeaders(request)).body(new byte[0]));
+            return Mono.just(ResponseEntity.ok().headers(proxyService.buildCorsHeaders()).body(new byte[0]));
         }
         return proxyService.proxy(backendName, request);
     }
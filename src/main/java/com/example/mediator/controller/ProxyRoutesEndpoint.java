@@ -0,0 +1,53 @@
+package com.example.mediator.controller;
+
+import com.example.mediator.service.ProxyRouteReloader;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * 路由重新載入的管理端點：POST /actuator/proxyroutes
+ * <p>
+ * 屬於管理操作，不放在對外的 /proxy 路徑下 (也不會與名為 routes 的後端衝突)；
+ * 預設不開放，需加入 management.endpoints.web.exposure.include，並以 management.server.port / address
+ * 放在只有內部網路連得到的管理 port。Servlet 與 WebFlux 模式共用，WebFlux 模式下於 boundedElastic 執行緒讀取檔案。
+ */
+@Component
+@Endpoint(id = "proxyroutes")
+public class ProxyRoutesEndpoint {
+
+    private static final Logger logger = Logger.getLogger(ProxyRoutesEndpoint.class.getName());
+
+    private final ProxyRouteReloader proxyRouteReloader;
+
+    /**
+     * 建構子，注入路由重新載入
+     */
+    public ProxyRoutesEndpoint(ProxyRouteReloader proxyRouteReloader) {
+        this.proxyRouteReloader = proxyRouteReloader;
+    }
+
+    /**
+     * 立即由路由設定檔 (proxy.reload.file) 重新載入路由
+     *
+     * @return 新路由表的後端 path；未設定路由設定檔或格式錯誤時回應 400，並保留原路由表
+     */
+    @WriteOperation
+    public WebEndpointResponse<Object> reload() {
+        try {
+            return new WebEndpointResponse<>(proxyRouteReloader.reload());
+        } catch (IOException | RuntimeException ex) {
+            logger.warning("重新載入路由失敗：" + ex.getMessage());
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("code", WebEndpointResponse.STATUS_BAD_REQUEST);
+            body.put("message", "重新載入路由失敗：" + ex.getMessage());
+            return new WebEndpointResponse<>(body, WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+    }
+}
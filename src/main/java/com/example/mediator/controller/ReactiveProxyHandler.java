@@ -0,0 +1,100 @@
+package com.example.mediator.controller;
+
+import com.example.mediator.service.ApiDocsService;
+import com.example.mediator.service.ProxyService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * API 中介處理器 (WebFlux 模式)，功能與 {@link ApiProxyController} 相同，
+ * 請求由 Netty event loop 以非阻塞方式處理，路由定義於 ReactiveWebConfig
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveProxyHandler {
+
+    private final ProxyService proxyService;
+    private final ApiDocsService apiDocsService;
+
+    /**
+     * 建構子，注入中介服務與 OpenAPI 文件服務
+     */
+    public ReactiveProxyHandler(ProxyService proxyService, ApiDocsService apiDocsService) {
+        this.proxyService = proxyService;
+        this.apiDocsService = apiDocsService;
+    }
+
+    /**
+     * 取得 Swagger 多後端設定
+     *
+     * @param request 原始 HTTP 請求
+     * @return Swagger 配置 JSON
+     */
+    public Mono<ServerResponse> swaggerConfig(ServerRequest request) {
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(apiDocsService.getSwaggerConfig());
+    }
+
+    /**
+     * 取得合併所有後端的 api-docs (proxy.api-docs.merged 啟用時)
+     *
+     * @param request 原始 HTTP 請求
+     * @return 合併後的 api-docs
+     */
+    public Mono<ServerResponse> mergedApiDocs(ServerRequest request) {
+        byte[] apiDocs = apiDocsService.getMergedApiDocs();
+        if (apiDocs == null) {
+            return ServerResponse.notFound().build();
+        }
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(apiDocs);
+    }
+
+    /**
+     * 取得後端的 api-docs，優先使用快取，尚未取得時即時轉發
+     *
+     * @param request 原始 HTTP 請求
+     * @return 後端 api-docs
+     */
+    public Mono<ServerResponse> apiDocs(ServerRequest request) {
+        byte[] apiDocs = apiDocsService.getApiDocs(request.pathVariable("backendName"));
+        if (apiDocs != null) {
+            return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(apiDocs);
+        }
+        return proxy(request);
+    }
+
+    /**
+     * 代理所有經由 /proxy/{backendName}/ 的請求
+     *
+     * @param request 原始 HTTP 請求
+     * @return 後端回應
+     */
+    public Mono<ServerResponse> proxy(ServerRequest request) {
+        if (request.method() == HttpMethod.OPTIONS) {
+            // 處理預檢請求
+            return ServerResponse.ok().headers(headers -> headers.addAll(proxyService.buildCorsHeaders())).build();
+        }
+        return proxyService.proxy(request.pathVariable("backendName"), request.exchange().getRequest())
+                .flatMap(this::toServerResponse);
+    }
+
+    /**
+     * 將後端回應寫出，body 以 DataBuffer 串流寫回前端
+     *
+     * @param responseEntity 後端回應
+     * @return ServerResponse
+     */
+    private Mono<ServerResponse> toServerResponse(ResponseEntity<Flux<DataBuffer>> responseEntity) {
+        return ServerResponse.status(responseEntity.getStatusCodeValue())
+                .headers(headers -> headers.addAll(responseEntity.getHeaders()))
+                .body(BodyInserters.fromDataBuffers(responseEntity.getBody()));
+    }
+}
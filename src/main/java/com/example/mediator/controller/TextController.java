@@ -1,19 +1,26 @@
 package com.example.mediator.controller;
 
 import com.example.mediator.dto.ClntDto;
+import com.example.mediator.utils.ApiAggregator;
+import com.example.mediator.utils.ApiBatchLoader;
+import com.example.mediator.utils.ApiCall;
 import com.example.mediator.utils.ApiWebClientUtils;
+import com.example.mediator.utils.JsonStreamResponses;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import javax.annotation.PostConstruct;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 @Tag(name = "測試用中台服務", description = "測試用中台服務 API 接口")
 @RestController
@@ -21,6 +28,19 @@ import java.util.Objects;
 public class TextController {
     @Autowired
     private ApiWebClientUtils apiWebClientUtils;
+    @Autowired
+    private ApiAggregator apiAggregator;
+    @Autowired
+    private JsonStreamResponses jsonStreamResponses;
+
+    private ApiBatchLoader<String, ClntDto> clntBatchLoader;
+
+    @PostConstruct
+    public void init() {
+        // 單筆查詢合併為批次查詢 /clnt/findByIds
+        clntBatchLoader = apiWebClientUtils.createPostBatchLoader("http://localhost:9091", "/clnt/findByIds",
+                "clientIds", ClntDto.class, ClntDto::getClientId);
+    }
 
     @Operation(summary = "測試用 api", description = "顯示 輸入文字")
     @GetMapping("/showMsg")
@@ -30,7 +50,7 @@ public class TextController {
 
     @Operation(summary = "測試用 api: select clnt", description = "select clnt")
     @GetMapping("/findById")
-    public ResponseEntity<ClntDto> findById(@RequestParam String clientId) {
+    public Mono<ResponseEntity<ClntDto>> findById(@RequestParam String clientId) {
 
         // 設定 網域
         String BASE_URL = "http://localhost:9091";
@@ -40,9 +60,56 @@ public class TextController {
         parameters.put("clientId", clientId);
 
 
-        ClntDto clntDto = apiWebClientUtils.callPostApiAndGetDto(BASE_URL, apiName, parameters, ClntDto.class);
+        // 非同步呼叫，等待後端回應期間不佔用 request 執行緒
+        return apiWebClientUtils.callPostApiAndGetDtoAsync(BASE_URL, apiName, parameters, ClntDto.class)
+                .map(ResponseEntity::ok);
+    }
+
+    @Operation(summary = "測試用 api: select clnt (批次合併)", description = "同時間的單筆查詢會合併成一次批次查詢")
+    @GetMapping("/findByIdBatched")
+    public Mono<ResponseEntity<ClntDto>> findByIdBatched(@RequestParam String clientId) {
+        return clntBatchLoader.load(clientId)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "測試用 api: select clnt (多筆並行)", description = "並行查詢多筆 clnt，查詢失敗的略過")
+    @GetMapping("/findByIds")
+    public Mono<ResponseEntity<List<ClntDto>>> findByIds(@RequestParam List<String> clientIds) {
+
+        // 設定 網域
+        String BASE_URL = "http://localhost:9091";
+        String apiName = "/clnt/findById";
+        // 每個 clientId 一個呼叫，失敗的略過
+        List<ApiCall<ClntDto>> calls = clientIds.stream()
+                .map(clientId -> {
+                    Map<String, Object> parameters = new HashMap<>();
+                    parameters.put("clientId", clientId);
+                    return ApiCall.post(BASE_URL, apiName, parameters, ClntDto.class).omitOnFailure();
+                })
+                .collect(Collectors.toList());
+
+        return apiAggregator.aggregate(calls)
+                .map(result -> calls.stream()
+                        .map(result::get)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList()))
+                .map(ResponseEntity::ok);
+    }
+
+    @Operation(summary = "測試用 api: 匯出 clnt (串流)", description = "邊接收後端回應邊寫出，format=ndjson 時每行一筆")
+    @GetMapping("/exportClnts")
+    public ResponseEntity<?> exportClnts(@RequestParam(defaultValue = "json") String format) {
+
+        // 設定 網域
+        String BASE_URL = "http://localhost:9091";
+        String apiName = "/clnt/findAll";
 
-        return ResponseEntity.ok(clntDto);
+        // 後端回應逐筆解析後立即寫出，不收集成 List
+        Flux<ClntDto> clnts = apiWebClientUtils.callPostApiAndGetDtoFlux(BASE_URL, apiName, new HashMap<>(), ClntDto.class);
+        return "ndjson".equals(format)
+                ? jsonStreamResponses.ndjson(clnts, ClntDto.class)
+                : jsonStreamResponses.jsonArray(clnts, ClntDto.class);
     }
 
 }
\ No newline at end of file
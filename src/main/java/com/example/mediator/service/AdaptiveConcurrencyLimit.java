@@ -0,0 +1,134 @@
+package com.example.mediator.service;
+
+import com.example.mediator.config.properties.ProxyProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 依後端延遲自動調整的同時請求數上限 (gradient)
+ * <p>
+ * 每個完成的請求提供一個延遲樣本：近期延遲為約 10 個樣本的指數移動平均，無負載延遲為近期延遲在 10 秒區間內的最低值；
+ * 每個區間結束時無負載延遲最多提高 10%，後端整體變慢時逐步跟上，持續過載時也只會緩慢上升。
+ * 近期延遲超過無負載延遲的 tolerance 倍時 gradient 小於 1，上限隨之下降；延遲正常時上限每次加上約 sqrt(上限) 的餘裕，
+ * 但只有進行中請求數達到上限一半時才提高，避免流量低時上限無限制成長。
+ * 連線失敗或逾時直接將上限乘上 backoff-ratio。
+ * <p>
+ * 進行中請求數以 CAS 增減；延遲與上限為 volatile，多執行緒同時更新時允許遺失少量樣本，不使用鎖。
+ */
+final class AdaptiveConcurrencyLimit {
+
+    private static final double SHORT_ALPHA = 2.0 / (10 + 1);       // 近期延遲的樣本權重
+    private static final long BASELINE_WINDOW_NANOS = 10_000_000_000L; // 無負載延遲的區間
+    private static final double BASELINE_MAX_GROWTH = 1.1;          // 每個區間無負載延遲最多提高的比例
+    private static final double SMOOTHING = 0.2;                    // 新上限的權重
+    private static final double MIN_GRADIENT = 0.5;                 // 每次最多降為一半
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoffRatio;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile double limit;
+    private volatile double shortRttNanos;          // 近期延遲，0 表示還沒有樣本
+    private volatile double baselineRttNanos;       // 無負載延遲
+    private volatile double windowMinRttNanos;      // 目前區間的最低近期延遲
+    private volatile long windowEnd;                // 目前區間結束的時間 (System.nanoTime)
+
+    /**
+     * @param config 路由的同時請求數上限設定
+     */
+    AdaptiveConcurrencyLimit(ProxyProperties.ConcurrencyLimit config) {
+        this.minLimit = Math.max(1, config.getMinLimit());
+        this.maxLimit = Math.max(minLimit, config.getMaxLimit());
+        this.tolerance = Math.max(1, config.getTolerance());
+        this.backoffRatio = Math.min(1, Math.max(0.1, config.getBackoffRatio()));
+        this.limit = clamp(config.getInitialLimit());
+    }
+
+    /**
+     * 進行中請求數未達上限時加 1
+     *
+     * @return 是否取得
+     */
+    boolean tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 請求完成，進行中請求數減 1 並以延遲調整上限
+     *
+     * @param rttNanos 呼叫後端的延遲
+     * @param dropped  是否為連線失敗或逾時
+     */
+    void release(long rttNanos, boolean dropped) {
+        int current = inflight.getAndDecrement();
+        double currentLimit = limit;
+        if (dropped) {
+            limit = clamp(currentLimit * backoffRatio);
+            return;
+        }
+        double shortRtt = shortRttNanos;
+        shortRtt = shortRtt == 0 ? rttNanos : shortRtt + SHORT_ALPHA * (rttNanos - shortRtt);
+        shortRttNanos = shortRtt;
+        double baselineRtt = updateBaseline(shortRtt);
+
+        if (current < currentLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * baselineRtt / shortRtt));
+        double newLimit = currentLimit * gradient + Math.sqrt(currentLimit);
+        limit = clamp(currentLimit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+    }
+
+    /**
+     * 請求取消或未到達後端 (斷路器 / 隔艙拒絕)，進行中請求數減 1，不調整上限
+     */
+    void releaseWithoutSample() {
+        inflight.decrementAndGet();
+    }
+
+    /**
+     * 以近期延遲更新無負載延遲：區間內取較低者；區間結束時改用該區間的最低值，但最多提高 10%
+     */
+    private double updateBaseline(double shortRtt) {
+        long now = System.nanoTime();
+        double baselineRtt = baselineRttNanos;
+        if (baselineRtt == 0) {
+            baselineRttNanos = shortRtt;
+            windowMinRttNanos = shortRtt;
+            windowEnd = now + BASELINE_WINDOW_NANOS;
+        } else if (now - windowEnd >= 0) {
+            baselineRttNanos = Math.min(Math.min(windowMinRttNanos, shortRtt), baselineRtt * BASELINE_MAX_GROWTH);
+            windowMinRttNanos = shortRtt;
+            windowEnd = now + BASELINE_WINDOW_NANOS;
+        } else {
+            if (shortRtt < windowMinRttNanos) {
+                windowMinRttNanos = shortRtt;
+            }
+            if (shortRtt < baselineRtt) {
+                baselineRttNanos = shortRtt;
+            }
+        }
+        return baselineRttNanos;
+    }
+
+    int getLimit() {
+        return (int) limit;
+    }
+
+    int getInflight() {
+        return inflight.get();
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.mediator.service;
+
+/**
+ * 請求因速率限制 (429) 或同時請求數上限 (503) 被拒絕，未送往後端
+ * <p>
+ * 過載時每秒可能產生大量拒絕，因此不記錄 stack trace。
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final int status;
+    private final long retryAfterSeconds;
+
+    /**
+     * @param status            回應狀態碼
+     * @param message           錯誤訊息
+     * @param retryAfterSeconds 建議多久後重試 (Retry-After)
+     */
+    public AdmissionRejectedException(int status, String message, long retryAfterSeconds) {
+        super(message, null, false, false);
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,341 @@
+package com.example.mediator.service;
+
+import com.example.mediator.client.BackendHttpClient;
+import com.example.mediator.config.properties.ProxyProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * OpenAPI 文件服務，負責 Swagger UI 設定與後端 api-docs 的快取
+ * <p>
+ * 後端 api-docs 於背景並行取得，servers 改寫為 /proxy/{path} 後序列化為 byte[] 快取，
+ * Swagger UI 載入時不再即時呼叫後端。依 proxy.api-docs.refresh-interval 定期更新，
+ * 也可呼叫 {@link #refresh()} 立即更新；取得失敗的後端保留上一次的文件。
+ */
+@Service
+public class ApiDocsService {
+
+    private static final Logger logger = Logger.getLogger(ApiDocsService.class.getName());
+
+    private static final String COMPONENTS_REF_PREFIX = "#/components/";
+
+    private final ProxyRouteTable proxyRouteTable;
+    private final BackendHttpClient backendHttpClient;
+    private final ObjectMapper objectMapper;
+    private final ProxyProperties.ApiDocs apiDocsProperties;
+
+    private volatile Snapshot snapshot;
+    private volatile List<ProxyRoute> swaggerConfigRoutes;
+    private volatile byte[] swaggerConfig;
+    private volatile Disposable refreshTask;
+
+    /**
+     * 建構子，注入後端路由表與 HTTP 客戶端
+     */
+    public ApiDocsService(ProxyRouteTable proxyRouteTable, BackendHttpClient backendHttpClient,
+                          ObjectMapper objectMapper, ProxyProperties proxyProperties) {
+        this.proxyRouteTable = proxyRouteTable;
+        this.backendHttpClient = backendHttpClient;
+        this.objectMapper = objectMapper;
+        this.apiDocsProperties = proxyProperties.getApiDocs();
+        this.snapshot = new Snapshot(Collections.emptyMap(), null);
+        this.swaggerConfigRoutes = proxyRouteTable.getRoutes();
+        this.swaggerConfig = toBytes(buildSwaggerConfig(swaggerConfigRoutes));
+    }
+
+    /**
+     * 啟動完成後開始背景更新 (不影響啟動時間)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRefresh() {
+        Duration interval = apiDocsProperties.getRefreshInterval();
+        refreshTask = Flux.interval(Duration.ZERO, interval, Schedulers.parallel())
+                .onBackpressureDrop()
+                .concatMap(tick -> refresh().onErrorResume(ex -> Mono.empty()), 1)
+                .subscribe();
+    }
+
+    /**
+     * 路由重新載入後立即取得新路由的 api-docs (移除的後端文件同時移除)；啟動期間的載入由 startRefresh 處理
+     *
+     * @param event 路由重新載入事件
+     */
+    @EventListener
+    public void onRoutesReloaded(ProxyRoutesReloadedEvent event) {
+        if (refreshTask == null) {
+            return;
+        }
+        refresh().subscribe(null, ex -> logger.warning("重新取得 api-docs 失敗：" + ex.getMessage()));
+    }
+
+    @PreDestroy
+    public void stopRefresh() {
+        if (refreshTask != null) {
+            refreshTask.dispose();
+        }
+    }
+
+    /**
+     * 取得 Swagger UI 所需的多來源 API 配置 (預先序列化)
+     *
+     * @return Swagger config JSON
+     */
+    public byte[] getSwaggerConfig() {
+        List<ProxyRoute> routes = proxyRouteTable.getRoutes();
+        if (routes != swaggerConfigRoutes) {
+            // 路由表更新後重新產生
+            swaggerConfig = toBytes(buildSwaggerConfig(routes));
+            swaggerConfigRoutes = routes;
+        }
+        return swaggerConfig;
+    }
+
+    /**
+     * 取得快取的後端 api-docs
+     *
+     * @param path 後端 path
+     * @return 改寫過 servers 的 api-docs，尚未取得時回傳 null
+     */
+    public byte[] getApiDocs(String path) {
+        return snapshot.docs.get(path);
+    }
+
+    /**
+     * 取得合併所有後端的 api-docs
+     *
+     * @return 合併後的 api-docs，未啟用或尚未取得時回傳 null
+     */
+    public byte[] getMergedApiDocs() {
+        return snapshot.merged;
+    }
+
+    /**
+     * 立即並行取得所有後端的 api-docs
+     *
+     * @return 取得成功的後端 path
+     */
+    public Mono<List<String>> refresh() {
+        List<ProxyRoute> routes = proxyRouteTable.getRoutes();
+        return Flux.fromIterable(routes)
+                .flatMap(route -> fetchApiDocs(route)
+                        .map(doc -> Map.entry(route, doc))
+                        .onErrorResume(ex -> {
+                            logger.warning("取得後端 api-docs 失敗：" + route.getPath() + "，" + ex.getMessage());
+                            return Mono.empty();
+                        }))
+                .collectList()
+                .map(fetched -> {
+                    Map<String, byte[]> docs = new HashMap<>();
+                    Snapshot previous = snapshot;
+                    // 取得失敗的後端沿用上一次的文件
+                    routes.forEach(route -> {
+                        byte[] previousDoc = previous.docs.get(route.getPath());
+                        if (previousDoc != null) {
+                            docs.put(route.getPath(), previousDoc);
+                        }
+                    });
+                    List<String> refreshed = new ArrayList<>();
+                    fetched.forEach(entry -> {
+                        docs.put(entry.getKey().getPath(), toBytes(entry.getValue()));
+                        refreshed.add(entry.getKey().getPath());
+                    });
+                    byte[] merged = apiDocsProperties.isMerged() ? toBytes(buildMergedApiDocs(routes, docs)) : null;
+                    snapshot = new Snapshot(Collections.unmodifiableMap(docs), merged);
+                    return refreshed;
+                });
+    }
+
+    /**
+     * 建立 Swagger UI 所需的多來源 API 配置
+     */
+    private ObjectNode buildSwaggerConfig(List<ProxyRoute> routes) {
+        ObjectNode config = objectMapper.createObjectNode();
+        ArrayNode urls = objectMapper.createArrayNode();
+
+        // SWAGGER 加入 中台服務
+        ObjectNode urlObj1 = objectMapper.createObjectNode();
+        urlObj1.put("name", "中台服務");
+        urlObj1.put("url", "/api-docs");
+        urls.add(urlObj1);
+
+        // SWAGGER 加入 所有後端合併的文件
+        if (apiDocsProperties.isMerged()) {
+            ObjectNode mergedObj = objectMapper.createObjectNode();
+            mergedObj.put("name", "全部後端服務");
+            mergedObj.put("url", "/proxy/api-docs");
+            urls.add(mergedObj);
+        }
+
+        // SWAGGER 加入 後端代理服務: 讀取 proxy.apis 的設定
+        routes.forEach(route -> {
+            ObjectNode urlObj2 = objectMapper.createObjectNode();
+            urlObj2.put("name", route.getName());
+            urlObj2.put("url", route.getPrefix() + "/api-docs");
+            urls.add(urlObj2);
+        });
+
+        config.set("urls", urls);
+        config.put("url", "");
+        config.put("validatorUrl", "");
+        return config;
+    }
+
+    /**
+     * 取得後端 api-docs，並將 servers 改寫為中台的 /proxy/{path}
+     */
+    private Mono<ObjectNode> fetchApiDocs(ProxyRoute route) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        String url = route.getBackendBaseUrl() + route.getApi().getApiDocsPath();
+        return backendHttpClient.forwardRequest(route, url, HttpMethod.GET, headers, new byte[0])
+                .map(response -> {
+                    try {
+                        JsonNode doc = objectMapper.readTree(response.getBody());
+                        if (!(doc instanceof ObjectNode)) {
+                            throw new IllegalStateException("api-docs 格式錯誤");
+                        }
+                        ObjectNode server = objectMapper.createObjectNode();
+                        server.put("url", route.getPrefix());
+                        server.put("description", route.getName());
+                        ((ObjectNode) doc).set("servers", objectMapper.createArrayNode().add(server));
+                        return (ObjectNode) doc;
+                    } catch (IOException ex) {
+                        throw new IllegalStateException("api-docs 解析失敗", ex);
+                    }
+                });
+    }
+
+    /**
+     * 合併所有後端的 api-docs
+     * <p>
+     * paths 加上 /proxy/{path} 前綴，components 名稱加上 {path}_ 前綴並改寫 $ref 以避免衝突，
+     * 標籤加上後端名稱。securitySchemes 依名稱合併。
+     */
+    private ObjectNode buildMergedApiDocs(List<ProxyRoute> routes, Map<String, byte[]> docs) {
+        ObjectNode merged = objectMapper.createObjectNode();
+        merged.put("openapi", "3.0.1");
+        merged.putObject("info").put("title", "全部後端服務").put("version", "1.0");
+        merged.putArray("servers").addObject().put("url", "/");
+        ObjectNode paths = merged.putObject("paths");
+        ObjectNode components = merged.putObject("components");
+        ArrayNode tags = merged.putArray("tags");
+
+        for (ProxyRoute route : routes) {
+            byte[] docBytes = docs.get(route.getPath());
+            if (docBytes == null) {
+                continue;
+            }
+            ObjectNode doc;
+            try {
+                doc = (ObjectNode) objectMapper.readTree(docBytes);
+            } catch (IOException ex) {
+                continue;
+            }
+            String componentPrefix = route.getPath() + "_";
+            String tagPrefix = route.getName() + " - ";
+            rewriteRefs(doc, componentPrefix);
+
+            doc.path("paths").fields().forEachRemaining(entry -> {
+                JsonNode pathItem = entry.getValue();
+                pathItem.forEach(operation -> {
+                    if (operation.has("tags")) {
+                        ArrayNode operationTags = (ArrayNode) operation.get("tags");
+                        for (int i = 0; i < operationTags.size(); i++) {
+                            operationTags.set(i, TextNode.valueOf(tagPrefix + operationTags.get(i).asText()));
+                        }
+                    }
+                });
+                paths.set(route.getPrefix() + entry.getKey(), pathItem);
+            });
+            doc.path("tags").forEach(tag -> {
+                if (tag instanceof ObjectNode) {
+                    ((ObjectNode) tag).put("name", tagPrefix + tag.path("name").asText());
+                    tags.add(tag);
+                }
+            });
+            doc.path("components").fields().forEachRemaining(section -> {
+                ObjectNode mergedSection = components.has(section.getKey())
+                        ? (ObjectNode) components.get(section.getKey())
+                        : components.putObject(section.getKey());
+                boolean keepName = section.getKey().equals("securitySchemes");
+                section.getValue().fields().forEachRemaining(component -> {
+                    String name = keepName ? component.getKey() : componentPrefix + component.getKey();
+                    if (!mergedSection.has(name)) {
+                        mergedSection.set(name, component.getValue());
+                    }
+                });
+            });
+        }
+        return merged;
+    }
+
+    /**
+     * 將 $ref: #/components/{type}/{name} 改寫為 #/components/{type}/{prefix}{name} (securitySchemes 除外)
+     */
+    private void rewriteRefs(JsonNode node, String componentPrefix) {
+        if (node instanceof ObjectNode) {
+            ObjectNode objectNode = (ObjectNode) node;
+            JsonNode ref = objectNode.get("$ref");
+            if (ref != null && ref.isTextual() && ref.asText().startsWith(COMPONENTS_REF_PREFIX)) {
+                String refPath = ref.asText().substring(COMPONENTS_REF_PREFIX.length());
+                int slash = refPath.indexOf('/');
+                if (slash > 0 && !refPath.startsWith("securitySchemes/")) {
+                    objectNode.put("$ref", COMPONENTS_REF_PREFIX + refPath.substring(0, slash + 1)
+                            + componentPrefix + refPath.substring(slash + 1));
+                }
+            }
+            Iterator<JsonNode> children = objectNode.elements();
+            while (children.hasNext()) {
+                rewriteRefs(children.next(), componentPrefix);
+            }
+        } else if (node instanceof ArrayNode) {
+            node.forEach(child -> rewriteRefs(child, componentPrefix));
+        }
+    }
+
+    private byte[] toBytes(JsonNode node) {
+        try {
+            return objectMapper.writeValueAsBytes(node);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("JSON 序列化失敗", ex);
+        }
+    }
+
+    /**
+     * api-docs 快取快照
+     */
+    private static final class Snapshot {
+        private final Map<String, byte[]> docs;
+        private final byte[] merged;
+
+        private Snapshot(Map<String, byte[]> docs, byte[] merged) {
+            this.docs = docs;
+            this.merged = merged;
+        }
+    }
+}
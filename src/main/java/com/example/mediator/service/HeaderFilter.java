@@ -0,0 +1,188 @@
+package com.example.mediator.service;
+
+import com.example.mediator.config.properties.ProxyProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 後端路由的 headers 過濾器 (不可變，建立路由時預先計算)
+ * <p>
+ * 走訪一次來源 headers 即完成過濾，不再逐一 remove：
+ * hop-by-hop headers (RFC 7230 6.1) 與 Connection 中列出的 headers 一律不轉送；
+ * request 另外不轉送 Host / Content-Length，response 另外不轉送 Content-Length 與後端的 CORS headers
+ * (由中台統一處理，避免重複設定導致前端錯誤)。Content-Encoding 照常轉送，後端壓縮的 body 原樣回傳給前端。路由可再設定 allow / deny 清單。
+ * 名稱以預先建好的不分大小寫 hash 表比對，不需為每個 header 建立小寫字串。
+ * <p>
+ * 回傳的 HttpHeaders 與來源共用 value list，之後要改值請用 set 而不是 add。
+ */
+public final class HeaderFilter {
+
+    private static final List<String> HOP_BY_HOP = Arrays.asList(
+            HttpHeaders.CONNECTION, "Keep-Alive", HttpHeaders.PROXY_AUTHENTICATE, HttpHeaders.PROXY_AUTHORIZATION,
+            "Proxy-Connection", HttpHeaders.TE, HttpHeaders.TRAILER, HttpHeaders.TRANSFER_ENCODING, HttpHeaders.UPGRADE);
+
+    private static final List<String> REQUEST_EXCLUDED = Arrays.asList(HttpHeaders.HOST, HttpHeaders.CONTENT_LENGTH);
+
+    private static final List<String> RESPONSE_EXCLUDED = Arrays.asList(
+            HttpHeaders.CONTENT_LENGTH, HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS,
+            HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS, HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS,
+            HttpHeaders.ACCESS_CONTROL_MAX_AGE);
+
+    private final NameSet requestDeny;
+    private final NameSet requestAllow;     // null 表示不限制
+    private final NameSet responseDeny;
+    private final NameSet responseAllow;    // null 表示不限制
+
+    /**
+     * 依路由設定建立過濾器
+     *
+     * @param config 路由的 allow / deny 清單
+     */
+    public HeaderFilter(ProxyProperties.Headers config) {
+        this.requestDeny = new NameSet(HOP_BY_HOP, REQUEST_EXCLUDED, config.getRequestDeny());
+        this.requestAllow = config.getRequestAllow().isEmpty() ? null : new NameSet(config.getRequestAllow());
+        this.responseDeny = new NameSet(HOP_BY_HOP, RESPONSE_EXCLUDED, config.getResponseDeny());
+        this.responseAllow = config.getResponseAllow().isEmpty() ? null : new NameSet(config.getResponseAllow());
+    }
+
+    /**
+     * 建立轉送到後端的 request headers (Servlet 模式)
+     *
+     * @param request 前端傳入的 HTTP 請求
+     * @return 轉送用的 headers
+     */
+    public HttpHeaders filterRequest(HttpServletRequest request) {
+        List<String> connectionTokens = connectionTokens(request.getHeaders(HttpHeaders.CONNECTION));
+        HttpHeaders headers = new HttpHeaders();
+        Enumeration<String> names = request.getHeaderNames();
+        while (names.hasMoreElements()) {
+            String name = names.nextElement();
+            if (isForwarded(name, requestAllow, requestDeny, connectionTokens)) {
+                headers.put(name, Collections.list(request.getHeaders(name)));
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * 建立轉送到後端的 request headers (WebFlux 模式)
+     *
+     * @param source 前端傳入的 headers
+     * @return 轉送用的 headers
+     */
+    public HttpHeaders filterRequest(HttpHeaders source) {
+        return filter(source, requestAllow, requestDeny);
+    }
+
+    /**
+     * 建立回傳給前端的 response headers
+     *
+     * @param source 後端回傳的 headers
+     * @return 回傳用的 headers
+     */
+    public HttpHeaders filterResponse(HttpHeaders source) {
+        return filter(source, responseAllow, responseDeny);
+    }
+
+    private static HttpHeaders filter(HttpHeaders source, NameSet allow, NameSet deny) {
+        List<String> connectionTokens = connectionTokens(source.get(HttpHeaders.CONNECTION));
+        HttpHeaders headers = new HttpHeaders(CollectionUtils.toMultiValueMap(
+                new LinkedCaseInsensitiveMap<>(source.size(), Locale.ENGLISH)));
+        source.forEach((name, values) -> {
+            if (isForwarded(name, allow, deny, connectionTokens)) {
+                headers.put(name, values);
+            }
+        });
+        return headers;
+    }
+
+    private static boolean isForwarded(String name, NameSet allow, NameSet deny, List<String> connectionTokens) {
+        if (deny.contains(name) || (allow != null && !allow.contains(name))) {
+            return false;
+        }
+        for (int i = 0; i < connectionTokens.size(); i++) {
+            if (connectionTokens.get(i).equalsIgnoreCase(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 取出 Connection header 中列出的 header 名稱 (RFC 7230 6.1)，這些 headers 只屬於目前這一段連線
+     */
+    private static List<String> connectionTokens(Collection<String> connectionValues) {
+        if (connectionValues == null || connectionValues.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>(2);
+        for (String value : connectionValues) {
+            for (String token : StringUtils.tokenizeToStringArray(value, ",")) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static List<String> connectionTokens(Enumeration<String> connectionValues) {
+        return connectionValues == null || !connectionValues.hasMoreElements()
+                ? Collections.emptyList() : connectionTokens(Collections.list(connectionValues));
+    }
+
+    /**
+     * 不分大小寫的 header 名稱集合 (open addressing)，hash 以 ASCII 轉小寫計算，查詢時不建立新字串
+     */
+    private static final class NameSet {
+        private final String[] table;
+
+        @SafeVarargs
+        private NameSet(Collection<String>... groups) {
+            Set<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            for (Collection<String> group : groups) {
+                names.addAll(group);
+            }
+            table = new String[Integer.highestOneBit(Math.max(names.size(), 1) * 4)];
+            for (String name : names) {
+                int i = hash(name) & (table.length - 1);
+                while (table[i] != null) {
+                    i = (i + 1) & (table.length - 1);
+                }
+                table[i] = name;
+            }
+        }
+
+        private boolean contains(String name) {
+            int i = hash(name) & (table.length - 1);
+            String candidate;
+            while ((candidate = table[i]) != null) {
+                if (candidate.equalsIgnoreCase(name)) {
+                    return true;
+                }
+                i = (i + 1) & (table.length - 1);
+            }
+            return false;
+        }
+
+        private static int hash(String name) {
+            int h = name.length();
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                h = 31 * h + (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : Character.toLowerCase(c));
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+}
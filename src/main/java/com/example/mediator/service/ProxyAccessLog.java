@@ -0,0 +1,220 @@
+package com.example.mediator.service;
+
+import com.example.mediator.config.properties.ProxyProperties;
+import com.example.mediator.utils.JsonUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 代理請求的 access log (JSON，一筆一行，logger 名稱為 com.example.mediator.access)
+ * <p>
+ * 請求執行緒只負責判斷是否記錄並放入固定大小的 ring buffer (CAS 取得位置，不加鎖也不阻塞)，
+ * 由背景執行緒組成 JSON 並寫出；buffer 滿時直接捨棄並累加 proxy.access.log.dropped。
+ * 失敗 (狀態碼 4xx / 5xx、後端沒有回應、用戶端中斷) 與慢請求一律記錄，成功請求依 success-sample-rate 抽樣。
+ */
+@Component
+public class ProxyAccessLog {
+
+    private static final Logger logger = Logger.getLogger(ProxyAccessLog.class.getName());
+    private static final Logger accessLogger = Logger.getLogger("com.example.mediator.access");
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);  // 沒有資料時背景執行緒的等待時間
+
+    private final boolean enabled;
+    private final double successSampleRate;
+    private final long slowThresholdNanos;
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();   // 下一筆寫入的位置 (請求執行緒)
+    private volatile long head;                         // 下一筆讀取的位置 (背景執行緒)
+
+    private final Counter droppedCounter;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /**
+     * 建構子，依 proxy.access-log 設定建立 ring buffer 並啟動背景寫出執行緒
+     */
+    public ProxyAccessLog(ProxyProperties proxyProperties, MeterRegistry meterRegistry) {
+        ProxyProperties.AccessLog config = proxyProperties.getAccessLog();
+        this.enabled = config.isEnabled();
+        this.successSampleRate = config.getSuccessSampleRate();
+        this.slowThresholdNanos = config.getSlowThreshold() == null ? Long.MAX_VALUE : config.getSlowThreshold().toNanos();
+
+        int capacity = Integer.highestOneBit(Math.max(2, config.getBufferSize()) * 2 - 1);   // 調整為 2 的次方
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+
+        this.droppedCounter = Counter.builder("proxy.access.log.dropped")
+                .description("buffer 已滿而捨棄的 access log 筆數")
+                .register(meterRegistry);
+
+        if (enabled) {
+            writer = new Thread(this::drain, "proxy-access-log");
+            writer.setDaemon(true);
+            writer.start();
+        } else {
+            writer = null;
+        }
+    }
+
+    /**
+     * 記錄一次代理請求，依結果決定是否寫出
+     *
+     * @param route         後端路由的 path
+     * @param method        HTTP 方法
+     * @param path          請求路徑 (不含 query)
+     * @param status        回應的狀態碼，請求被取消時為 0
+     * @param durationNanos 請求的總時間
+     * @param upstreamNanos 呼叫後端的時間
+     * @param requestBytes  request body 的 bytes
+     * @param responseBytes response body 的 bytes
+     * @param error         錯誤類別，沒有錯誤時為 null
+     * @param message       錯誤訊息，沒有錯誤時為 null
+     */
+    public void record(String route, String method, String path, int status, long durationNanos, long upstreamNanos,
+                       long requestBytes, long responseBytes, String error, String message) {
+        if (!enabled) {
+            return;
+        }
+        boolean failed = status == 0 || status >= 400 || error != null;
+        if (!failed && durationNanos < slowThresholdNanos
+                && (successSampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= successSampleRate)) {
+            return;
+        }
+        offer(new Entry(System.currentTimeMillis(), route, method, path, status, durationNanos, upstreamNanos,
+                requestBytes, responseBytes, error, message));
+    }
+
+    /**
+     * 停止背景執行緒，並寫出 buffer 中剩餘的資料
+     */
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * 放入 ring buffer，已滿時捨棄
+     */
+    private void offer(Entry entry) {
+        long position;
+        do {
+            position = tail.get();
+            if (position - head >= slots.length()) {
+                droppedCounter.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(position, position + 1));
+        slots.lazySet((int) position & mask, entry);
+    }
+
+    /**
+     * 取出下一筆，沒有資料 (或寫入端已取得位置但尚未放入) 時回傳 null
+     */
+    private Entry poll() {
+        long position = head;
+        int index = (int) position & mask;
+        Entry entry = slots.get(index);
+        if (entry != null) {
+            slots.lazySet(index, null);
+            head = position + 1;
+        }
+        return entry;
+    }
+
+    /**
+     * 背景執行緒：持續取出並寫出，停止時寫完剩餘的資料
+     */
+    private void drain() {
+        StringBuilder sb = new StringBuilder(256);
+        while (true) {
+            Entry entry = poll();
+            if (entry == null) {
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            try {
+                sb.setLength(0);
+                accessLogger.info(entry.appendJson(sb).toString());
+            } catch (RuntimeException ex) {
+                logger.log(Level.WARNING, "寫出 access log 失敗", ex);
+            }
+        }
+    }
+
+    /**
+     * 一筆 access log
+     */
+    private static final class Entry {
+        private final long timestamp;
+        private final String route;
+        private final String method;
+        private final String path;
+        private final int status;
+        private final long durationNanos;
+        private final long upstreamNanos;
+        private final long requestBytes;
+        private final long responseBytes;
+        private final String error;
+        private final String message;
+
+        private Entry(long timestamp, String route, String method, String path, int status, long durationNanos,
+                      long upstreamNanos, long requestBytes, long responseBytes, String error, String message) {
+            this.timestamp = timestamp;
+            this.route = route;
+            this.method = method;
+            this.path = path;
+            this.status = status;
+            this.durationNanos = durationNanos;
+            this.upstreamNanos = upstreamNanos;
+            this.requestBytes = requestBytes;
+            this.responseBytes = responseBytes;
+            this.error = error;
+            this.message = message;
+        }
+
+        private StringBuilder appendJson(StringBuilder sb) {
+            sb.append("{\"time\":\"").append(Instant.ofEpochMilli(timestamp))
+                    .append("\",\"route\":\"");
+            JsonUtils.appendEscaped(sb, route).append("\",\"method\":\"").append(method).append("\",\"path\":\"");
+            JsonUtils.appendEscaped(sb, path).append("\",\"status\":").append(status)
+                    .append(",\"durationMs\":").append(toMillis(durationNanos))
+                    .append(",\"upstreamMs\":").append(toMillis(upstreamNanos))
+                    .append(",\"requestBytes\":").append(requestBytes)
+                    .append(",\"responseBytes\":").append(responseBytes);
+            if (error != null) {
+                sb.append(",\"error\":\"");
+                JsonUtils.appendEscaped(sb, error).append("\",\"message\":\"");
+                JsonUtils.appendEscaped(sb, message).append('"');
+            }
+            return sb.append('}');
+        }
+
+        /**
+         * 轉為毫秒，保留小數點後 3 位
+         */
+        private static double toMillis(long nanos) {
+            return Math.round(nanos / 1000.0) / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.mediator.service;
+
+import com.example.mediator.config.properties.ProxyProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 後端的請求准入控制：速率限制 (429) 與自動調整的同時請求數上限 (503)
+ * <p>
+ * 每個後端各自一個 {@link TokenBucket} 與 {@link AdaptiveConcurrencyLimit}，用戶端的 bucket 以 Caffeine 保存，
+ * 閒置超過 1 分鐘且 bucket 已補滿即淘汰 (捨棄與補滿的結果相同)，數量以 max-clients 為上限；檢查時皆不使用鎖。
+ * <p>
+ * client-key-header 的值由用戶端自行送出，只有在前方已驗證該 header (例如 API gateway 驗證過的 API key) 時才能準確區分用戶端。
+ * 為避免不斷更換 header 值規避限制、或以大量新值擠掉其他用戶端的 bucket，header 值第一次出現 (或已被淘汰) 時
+ * 先扣來源 IP 的 bucket：同一個 IP 建立新 bucket 的速率不超過每個用戶端的限制，已知的 header 值則只以自己的 bucket 計算。
+ * 未啟用的後端只讀取設定，不建立任何狀態。
+ * 拒絕次數以 proxy.admission.rejected (reason=route / client / concurrency) 註冊到 Micrometer，
+ * 同時請求數上限與進行中請求數為 proxy.concurrency.limit / proxy.concurrency.inflight。
+ */
+@Component
+public class ProxyAdmission {
+
+    private static final long MIN_CLIENT_IDLE_NANOS = TimeUnit.MINUTES.toNanos(1);  // 用戶端 bucket 至少保留多久
+
+    private final ProxyRouteTable proxyRouteTable;
+    private final MeterRegistry meterRegistry;
+    private final Map<ProxyRoute, RouteAdmission> routeAdmissions = new ConcurrentHashMap<>();
+
+    /**
+     * 建構子，注入路由表與 MeterRegistry
+     */
+    public ProxyAdmission(ProxyRouteTable proxyRouteTable, MeterRegistry meterRegistry) {
+        this.proxyRouteTable = proxyRouteTable;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 檢查後端與用戶端的速率限制，通過時各取得一個 token
+     *
+     * @param route     後端路由
+     * @param clientKey 用戶端 header 的值 (未設定 client-key-header 時傳入 null)
+     * @param clientIp  用戶端 IP，沒有 header 值或 header 值第一次出現時以此計算
+     * @return 超過限制時為 429 的例外，通過時為 null
+     */
+    public AdmissionRejectedException checkRateLimit(ProxyRoute route, String clientKey, String clientIp) {
+        if (!route.getApi().getRateLimit().isEnabled()) {
+            return null;
+        }
+        RouteAdmission admission = admission(route);
+        long now = System.nanoTime();
+        if (admission.ipBuckets != null) {
+            TokenBucket bucket = clientKey != null && admission.keyBuckets != null
+                    ? admission.keyBuckets.getIfPresent(clientKey) : null;
+            if (bucket == null) {
+                // 沒有 header 值，或 header 值第一次出現：先以來源 IP 的 bucket 計算
+                if (clientIp != null) {
+                    long wait = admission.ipBuckets.get(clientIp, k -> admission.newClientBucket()).tryAcquire(now);
+                    if (wait > 0) {
+                        admission.rejectedClient.increment();
+                        return new AdmissionRejectedException(429, "請求過於頻繁，請稍後再試", retryAfterSeconds(wait));
+                    }
+                }
+                if (clientKey != null && admission.keyBuckets != null) {
+                    bucket = admission.keyBuckets.get(clientKey, k -> admission.newClientBucket());
+                }
+            }
+            if (bucket != null) {
+                long wait = bucket.tryAcquire(now);
+                if (wait > 0) {
+                    admission.rejectedClient.increment();
+                    return new AdmissionRejectedException(429, "請求過於頻繁，請稍後再試", retryAfterSeconds(wait));
+                }
+            }
+        }
+        if (admission.routeBucket != null) {
+            long wait = admission.routeBucket.tryAcquire(now);
+            if (wait > 0) {
+                admission.rejectedRoute.increment();
+                return new AdmissionRejectedException(429, "後端請求量已達上限，請稍後再試", retryAfterSeconds(wait));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 以後端的同時請求數上限保護呼叫，額滿時立即以 503 失敗
+     * <p>
+     * 延遲量測到呼叫完成；連線失敗、逾時與 503 / 504 視為後端過載，
+     * 斷路器 / 隔艙的拒絕與取消不調整上限。
+     *
+     * @param route 後端路由
+     * @param call  呼叫後端
+     * @return 受保護的呼叫
+     */
+    public <T> Mono<T> limitConcurrency(ProxyRoute route, Mono<T> call) {
+        if (!route.getApi().getConcurrencyLimit().isEnabled()) {
+            return call;
+        }
+        RouteAdmission admission = admission(route);
+        return Mono.defer(() -> {
+            AdaptiveConcurrencyLimit limit = admission.concurrencyLimit;
+            if (!limit.tryAcquire()) {
+                admission.rejectedConcurrency.increment();
+                return Mono.error(new AdmissionRejectedException(503, "後端服務忙碌中 (同時請求數已達自動調整的上限)", 1));
+            }
+            long start = System.nanoTime();
+            Throwable[] error = new Throwable[1];
+            return call
+                    .doOnError(ex -> error[0] = ex)
+                    .doFinally(signal -> {
+                        if (signal == SignalType.CANCEL || error[0] != null && isRejected(error[0])) {
+                            limit.releaseWithoutSample();
+                        } else {
+                            limit.release(System.nanoTime() - start, error[0] != null && isOverload(error[0]));
+                        }
+                    });
+        });
+    }
+
+    /**
+     * 以後端的同時請求數上限保護串流呼叫，佔用的名額保留到 response body 結束 (見 {@link StreamingPermits})
+     * <p>
+     * 延遲量測到取得 response headers (body 的傳送時間不影響上限的調整)。
+     *
+     * @param route 後端路由
+     * @param call  呼叫後端 (串流回應)
+     * @return 受保護的呼叫
+     */
+    public <T> Mono<ResponseEntity<Flux<T>>> limitConcurrencyStreaming(ProxyRoute route, Mono<ResponseEntity<Flux<T>>> call) {
+        if (!route.getApi().getConcurrencyLimit().isEnabled()) {
+            return call;
+        }
+        RouteAdmission admission = admission(route);
+        return Mono.defer(() -> {
+            AdaptiveConcurrencyLimit limit = admission.concurrencyLimit;
+            if (!limit.tryAcquire()) {
+                admission.rejectedConcurrency.increment();
+                return Mono.error(new AdmissionRejectedException(503, "後端服務忙碌中 (同時請求數已達自動調整的上限)", 1));
+            }
+            return StreamingPermits.holdUntilBodyEnds(call, (latencyNanos, headersReceived, error) -> {
+                if (error == null && !headersReceived || error != null && isRejected(error)) {
+                    limit.releaseWithoutSample();
+                } else {
+                    limit.release(latencyNanos, !headersReceived && isOverload(error));
+                }
+            });
+        });
+    }
+
+    /**
+     * 路由重新載入後移除舊路由的狀態與指標，下一次請求依新設定建立
+     *
+     * @param event 路由重新載入事件
+     */
+    @EventListener
+    public void onRoutesReloaded(ProxyRoutesReloadedEvent event) {
+        for (ProxyRoute route : event.getRetiredRoutes()) {
+            RouteAdmission admission = routeAdmissions.remove(route);
+            if (admission != null) {
+                admission.destroy();
+            }
+        }
+    }
+
+    private RouteAdmission admission(ProxyRoute route) {
+        RouteAdmission admission = routeAdmissions.get(route);
+        if (admission != null) {
+            return admission;
+        }
+        if (proxyRouteTable.find(route.getPath()) != route) {
+            // 已停用的舊路由 (重新載入前取得路由、事件處理後才呼叫的請求)：依舊路由的設定建立，不保留也不註冊指標
+            return new RouteAdmission(route, false);
+        }
+        return routeAdmissions.computeIfAbsent(route, current -> new RouteAdmission(current, true));
+    }
+
+    private static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+    }
+
+    /**
+     * 呼叫未到達後端 (斷路器開啟或隔艙額滿)
+     */
+    private static boolean isRejected(Throwable ex) {
+        return ex instanceof CallNotPermittedException || ex instanceof BulkheadFullException;
+    }
+
+    /**
+     * 後端過載的訊號：連線失敗、逾時或 503 / 504
+     */
+    private static boolean isOverload(Throwable ex) {
+        if (ex instanceof WebClientResponseException) {
+            int status = ((WebClientResponseException) ex).getRawStatusCode();
+            return status == 503 || status == 504;
+        }
+        return ex instanceof WebClientRequestException || ex instanceof TimeoutException;
+    }
+
+    /**
+     * 後端路由的准入狀態
+     */
+    private final class RouteAdmission {
+
+        private final String route;
+        private final ProxyProperties.RateLimit rateLimit;
+        private final TokenBucket routeBucket;                  // 未限制後端整體速率時為 null
+        private final Cache<String, TokenBucket> ipBuckets;     // 以來源 IP 區分，未限制用戶端速率時為 null
+        private final Cache<String, TokenBucket> keyBuckets;    // 以 client-key-header 的值區分，未設定 header 時為 null
+        private final AdaptiveConcurrencyLimit concurrencyLimit;
+        private final Counter rejectedRoute;
+        private final Counter rejectedClient;
+        private final Counter rejectedConcurrency;
+        private final List<Meter> meters = new ArrayList<>();
+
+        /**
+         * @param registerMeters 是否註冊同時請求數的指標 (已停用的舊路由不註冊，以免取代目前路由的指標)
+         */
+        private RouteAdmission(ProxyRoute proxyRoute, boolean registerMeters) {
+            this.route = proxyRoute.getPath();
+            this.rateLimit = proxyRoute.getApi().getRateLimit();
+            this.routeBucket = rateLimit.getRouteRequestsPerSecond() > 0
+                    ? new TokenBucket(rateLimit.getRouteRequestsPerSecond(), rateLimit.getRouteBurst()) : null;
+            this.ipBuckets = rateLimit.getClientRequestsPerSecond() > 0 ? newClientBuckets() : null;
+            this.keyBuckets = ipBuckets != null && rateLimit.getClientKeyHeader() != null ? newClientBuckets() : null;
+            this.concurrencyLimit = new AdaptiveConcurrencyLimit(proxyRoute.getApi().getConcurrencyLimit());
+            this.rejectedRoute = rejectedCounter("route");
+            this.rejectedClient = rejectedCounter("client");
+            this.rejectedConcurrency = rejectedCounter("concurrency");
+            if (registerMeters && proxyRoute.getApi().getConcurrencyLimit().isEnabled()) {
+                register("proxy.concurrency.limit", "後端自動調整的同時請求數上限",
+                        AdaptiveConcurrencyLimit::getLimit);
+                register("proxy.concurrency.inflight", "後端進行中的請求數 (同時請求數上限計算用)",
+                        AdaptiveConcurrencyLimit::getInflight);
+            }
+        }
+
+        private Cache<String, TokenBucket> newClientBuckets() {
+            return Caffeine.newBuilder()
+                    .maximumSize(rateLimit.getMaxClients())
+                    .expireAfterAccess(Math.max(MIN_CLIENT_IDLE_NANOS, newClientBucket().refillNanos()), TimeUnit.NANOSECONDS)
+                    .build();
+        }
+
+        private TokenBucket newClientBucket() {
+            return new TokenBucket(rateLimit.getClientRequestsPerSecond(), rateLimit.getClientBurst());
+        }
+
+        private Counter rejectedCounter(String reason) {
+            return Counter.builder("proxy.admission.rejected")
+                    .description("因速率限制或同時請求數上限拒絕的請求數")
+                    .tags("route", route, "reason", reason)
+                    .register(meterRegistry);
+        }
+
+        /**
+         * 註冊指標；路由重新載入後同名的舊指標仍指向舊的狀態，先移除再註冊
+         */
+        private void register(String name, String description, ToDoubleFunction<AdaptiveConcurrencyLimit> value) {
+            Tags tags = Tags.of("route", route);
+            Meter previous = meterRegistry.find(name).tags(tags).meter();
+            if (previous != null) {
+                meterRegistry.remove(previous);
+            }
+            meters.add(Gauge.builder(name, concurrencyLimit, value)
+                    .description(description)
+                    .tags(tags)
+                    .register(meterRegistry));
+        }
+
+        /**
+         * 移除仍屬於這個狀態的指標 (拒絕次數的 Counter 沿用，不移除)
+         */
+        private void destroy() {
+            for (Meter meter : meters) {
+                if (meterRegistry.find(meter.getId().getName()).tags(meter.getId().getTags()).meter() == meter) {
+                    meterRegistry.remove(meter);
+                }
+            }
+        }
+    }
+}
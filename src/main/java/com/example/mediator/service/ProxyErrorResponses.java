@@ -0,0 +1,87 @@
+package com.example.mediator.service;
+
+import com.example.mediator.utils.JsonUtils;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 將代理錯誤對應為錯誤回應 {"code":..., "message":"..."}
+ * <p>
+ * 訊息固定的錯誤 (斷路器開啟、隔艙額滿、無法連線、逾時) 於類別載入時預先組好 body，並共用唯讀的 headers；
+ * 後端大量失敗時 (例如斷路器開啟) 每個錯誤回應不再重新組 JSON 與 headers。
+ * <p>
+ * 只有中台自己產生的錯誤 (准入控制) 回傳例外訊息；其他例外的訊息可能含後端的主機、port 與 query string
+ * (例如 WebClientResponseException 的 "404 Not Found from GET http://...")，一律回傳固定訊息，例外內容只寫入 access log。
+ */
+public final class ProxyErrorResponses {
+
+    private static final HttpHeaders JSON_HEADERS = HttpHeaders.readOnlyHttpHeaders(jsonHeaders());
+    private static final byte[] CIRCUIT_OPEN = body(503, "後端服務暫時停用 (斷路器開啟)");
+    private static final byte[] BULKHEAD_FULL = body(503, "後端服務忙碌中 (同時請求數已達上限)");
+    private static final byte[] CONNECT_FAILED = body(503, "無法連接後端服務");
+    private static final byte[] TIMEOUT = body(504, "連線逾時");
+    private static final byte[] BAD_REQUEST = body(400, "請求格式錯誤");
+    private static final byte[] PROXY_ERROR = body(502, "代理錯誤");
+
+    private ProxyErrorResponses() {
+    }
+
+    /**
+     * 組裝錯誤回應
+     *
+     * @param ex 發生的例外
+     * @return 錯誤的 ResponseEntity
+     */
+    public static ResponseEntity<byte[]> of(Throwable ex) {
+        Throwable cause = ex;
+        // WebClient 會將連線層的例外包裝成 WebClientRequestException
+        if (cause instanceof WebClientRequestException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+
+        if (cause instanceof AdmissionRejectedException) {
+            AdmissionRejectedException rejected = (AdmissionRejectedException) cause;
+            HttpHeaders headers = jsonHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(rejected.getRetryAfterSeconds()));
+            return new ResponseEntity<>(body(rejected.getStatus(), rejected.getMessage()), headers,
+                    HttpStatus.valueOf(rejected.getStatus()));
+        } else if (cause instanceof CallNotPermittedException) {
+            return response(HttpStatus.SERVICE_UNAVAILABLE, CIRCUIT_OPEN);
+        } else if (cause instanceof BulkheadFullException) {
+            return response(HttpStatus.SERVICE_UNAVAILABLE, BULKHEAD_FULL);
+        } else if (cause instanceof ConnectException) {
+            return response(HttpStatus.SERVICE_UNAVAILABLE, CONNECT_FAILED);
+        } else if (cause instanceof SocketTimeoutException || cause instanceof ReadTimeoutException
+                || cause instanceof TimeoutException) {
+            return response(HttpStatus.GATEWAY_TIMEOUT, TIMEOUT);
+        } else if (cause instanceof IllegalArgumentException) {
+            return response(HttpStatus.BAD_REQUEST, BAD_REQUEST);
+        }
+        return response(HttpStatus.BAD_GATEWAY, PROXY_ERROR);
+    }
+
+    private static ResponseEntity<byte[]> response(HttpStatus status, byte[] body) {
+        return new ResponseEntity<>(body, JSON_HEADERS, status);
+    }
+
+    private static byte[] body(int code, String message) {
+        return ("{\"code\":" + code + ",\"message\":\"" + JsonUtils.escape(message) + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static HttpHeaders jsonHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return headers;
+    }
+}
@@ -0,0 +1,298 @@
+package com.example.mediator.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * 代理請求的指標 (以 route={path} 區分後端)
+ * <ul>
+ *     <li>proxy.requests：中台收到請求到回應完成的時間，status 為回應狀態碼類別 (2xx、5xx...)，count 即請求數</li>
+ *     <li>proxy.upstream：呼叫後端到取得回應的時間 (串流模式為取得 response headers)，後端沒有回應時 status=error</li>
+ *     <li>proxy.gateway：中台本身花費的時間 (回應就緒的時間扣除 proxy.upstream)</li>
+ *     <li>proxy.request.size / proxy.response.size：request / response body 的 bytes</li>
+ *     <li>proxy.requests.active：處理中的請求數</li>
+ * </ul>
+ * 各 Meter 於路由第一次使用時建立並保留，記錄時不查詢 MeterRegistry；
+ * 計數、histogram 與處理中請求數皆以 atomic 累加，不使用鎖。
+ * 時間指標皆發佈 Prometheus histogram，proxy.upstream 另發佈 p50 / p99 / p999，可用 management.metrics.distribution.* 覆寫。
+ * 請求完成時同時交給 {@link ProxyAccessLog} 記錄 access log。
+ */
+@Component
+public class ProxyMetrics {
+
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    private final MeterRegistry meterRegistry;
+    private final ProxyAccessLog accessLog;
+    private final Map<String, RouteMetrics> routeMetrics = new ConcurrentHashMap<>();
+
+    /**
+     * 建構子，注入 MeterRegistry 與 access log
+     */
+    public ProxyMetrics(MeterRegistry meterRegistry, ProxyAccessLog accessLog) {
+        this.meterRegistry = meterRegistry;
+        this.accessLog = accessLog;
+    }
+
+    /**
+     * 開始記錄一次代理請求
+     *
+     * @param route  後端路由
+     * @param method HTTP 方法
+     * @param path   請求路徑 (不含 query)
+     * @return 這次請求的記錄
+     */
+    public Exchange start(ProxyRoute route, HttpMethod method, String path) {
+        RouteMetrics metrics = routeMetrics.get(route.getPath());
+        if (metrics == null) {
+            metrics = routeMetrics.computeIfAbsent(route.getPath(), RouteMetrics::new);
+        }
+        metrics.active.incrementAndGet();
+        return new Exchange(metrics, accessLog, method, path, System.nanoTime());
+    }
+
+    /**
+     * 依狀態碼取得狀態碼類別的索引 (1 ~ 5)，無法歸類時為 0
+     */
+    private static int statusClass(int statusCode) {
+        int statusClass = statusCode / 100;
+        return statusClass >= 1 && statusClass <= 5 ? statusClass : 0;
+    }
+
+    /**
+     * 後端路由的 Meter
+     */
+    private final class RouteMetrics {
+
+        private final String route;
+        private final AtomicInteger active = new AtomicInteger();
+        private final Timer[] requestTimers = new Timer[6];     // 依狀態碼類別，0 為請求被取消
+        private final Timer[] upstreamTimers = new Timer[6];    // 依狀態碼類別，0 為後端沒有回應
+        private final Timer gatewayTimer;
+        private final DistributionSummary requestSize;
+        private final DistributionSummary responseSize;
+
+        private RouteMetrics(String route) {
+            this.route = route;
+            this.gatewayTimer = Timer.builder("proxy.gateway")
+                    .description("中台本身花費的時間 (不含後端)")
+                    .tag("route", route)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(100_000))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(meterRegistry);
+            this.requestSize = DistributionSummary.builder("proxy.request.size")
+                    .description("request body 大小")
+                    .baseUnit("bytes")
+                    .tag("route", route)
+                    .register(meterRegistry);
+            this.responseSize = DistributionSummary.builder("proxy.response.size")
+                    .description("response body 大小")
+                    .baseUnit("bytes")
+                    .tag("route", route)
+                    .register(meterRegistry);
+            Gauge.builder("proxy.requests.active", active, AtomicInteger::get)
+                    .description("處理中的請求數")
+                    .tag("route", route)
+                    .register(meterRegistry);
+        }
+
+        /**
+         * 取得狀態碼類別的 Timer，第一次使用時建立
+         * (多執行緒同時建立時 MeterRegistry 回傳同一個 Timer，不需要加鎖)
+         */
+        private Timer timer(Timer[] timers, int index, String name, String description, String noStatus, double... percentiles) {
+            Timer timer = timers[index];
+            if (timer == null) {
+                timer = Timer.builder(name)
+                        .description(description)
+                        .tags("route", route, "status", index == 0 ? noStatus : index + "xx")
+                        .publishPercentiles(percentiles)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry);
+                timers[index] = timer;
+            }
+            return timer;
+        }
+
+        private Timer requestTimer(int statusCode) {
+            return timer(requestTimers, statusClass(statusCode), "proxy.requests", "代理請求的總時間", "cancelled");
+        }
+
+        private Timer upstreamTimer(int statusCode) {
+            return timer(upstreamTimers, statusClass(statusCode), "proxy.upstream", "呼叫後端的時間", "error", PERCENTILES);
+        }
+    }
+
+    /**
+     * 一次代理請求的記錄，回應完成 (或被取消) 時只會記錄一次
+     */
+    public static final class Exchange {
+
+        private static final AtomicLongFieldUpdater<Exchange> UPSTREAM_NANOS =
+                AtomicLongFieldUpdater.newUpdater(Exchange.class, "upstreamNanos");
+        private static final AtomicIntegerFieldUpdater<Exchange> COMPLETED =
+                AtomicIntegerFieldUpdater.newUpdater(Exchange.class, "completed");
+        private static final String CLIENT_ABORT = "ClientAbort";
+
+        private final RouteMetrics metrics;
+        private final ProxyAccessLog accessLog;
+        private final HttpMethod method;
+        private final String path;
+        private final long startNanos;
+        private volatile long upstreamNanos;
+        private volatile int completed;
+        private long requestBytes;
+        private long responseBytes;
+        private String error;           // 錯誤類別 (access log)
+        private String errorMessage;    // 錯誤訊息 (access log)
+
+        private Exchange(RouteMetrics metrics, ProxyAccessLog accessLog, HttpMethod method, String path, long startNanos) {
+            this.metrics = metrics;
+            this.accessLog = accessLog;
+            this.method = method;
+            this.path = path;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * 記錄 request body 大小
+         *
+         * @param bytes request body 的 bytes
+         */
+        public void requestBytes(long bytes) {
+            requestBytes = bytes;
+            metrics.requestSize.record(bytes);
+        }
+
+        /**
+         * 記錄代理過程發生的錯誤 (寫入 access log)
+         *
+         * @param ex 發生的例外
+         */
+        public void error(Throwable ex) {
+            error = ex.getClass().getSimpleName();
+            errorMessage = ex.getMessage();
+        }
+
+        /**
+         * 計算串流 request body 的大小，串流結束時記錄
+         *
+         * @param body request body 串流
+         * @return 計算大小的 request body 串流
+         */
+        public Flux<DataBuffer> countRequestBody(Flux<DataBuffer> body) {
+            return Flux.defer(() -> {
+                long[] bytes = new long[1];
+                return body.doOnNext(buffer -> bytes[0] += buffer.readableByteCount())
+                        .doOnComplete(() -> requestBytes(bytes[0]));
+            });
+        }
+
+        /**
+         * 記錄呼叫後端的時間，後端以錯誤狀態碼回應 (WebClientResponseException) 時依該狀態碼記錄
+         *
+         * @param call 呼叫後端
+         * @return 記錄時間的呼叫
+         */
+        public <T> Mono<ResponseEntity<T>> upstream(Mono<ResponseEntity<T>> call) {
+            return Mono.defer(() -> {
+                long start = System.nanoTime();
+                return call.doOnSuccess(responseEntity -> recordUpstream(
+                                responseEntity == null ? 0 : responseEntity.getStatusCodeValue(), start))
+                        .doOnError(ex -> recordUpstream(ex instanceof WebClientResponseException
+                                ? ((WebClientResponseException) ex).getRawStatusCode() : 0, start));
+            });
+        }
+
+        /**
+         * 完整 body 的回應已就緒，記錄整個請求
+         *
+         * @param responseEntity 回應
+         * @param bodyBytes      response body 的 bytes
+         * @return 同一個回應
+         */
+        public <T> ResponseEntity<T> complete(ResponseEntity<T> responseEntity, long bodyBytes) {
+            recordGateway();
+            responseBytes = bodyBytes;
+            complete(responseEntity.getStatusCodeValue());
+            return responseEntity;
+        }
+
+        /**
+         * 串流 body 的回應已就緒，body 傳送結束 (或被取消) 時才記錄整個請求
+         *
+         * @param responseEntity 回應
+         * @return body 會計算大小的回應
+         */
+        public ResponseEntity<Flux<DataBuffer>> completeOnBody(ResponseEntity<Flux<DataBuffer>> responseEntity) {
+            recordGateway();
+            int statusCode = responseEntity.getStatusCodeValue();
+            Flux<DataBuffer> body = responseEntity.getBody() == null ? Flux.empty() : responseEntity.getBody();
+            return ResponseEntity.status(statusCode)
+                    .headers(responseEntity.getHeaders())
+                    .body(body.doOnNext(buffer -> responseBytes += buffer.readableByteCount())
+                            .doFinally(signal -> {
+                                if (signal == SignalType.CANCEL && error == null) {
+                                    error = CLIENT_ABORT;
+                                    errorMessage = "回應傳送途中用戶端中斷連線";
+                                }
+                                complete(statusCode);
+                            }));
+        }
+
+        /**
+         * 回應就緒前請求已被取消 (用戶端中斷連線)
+         */
+        public void cancel() {
+            complete(0);
+        }
+
+        private void recordUpstream(int statusCode, long start) {
+            long elapsed = System.nanoTime() - start;
+            UPSTREAM_NANOS.addAndGet(this, elapsed);
+            metrics.upstreamTimer(statusCode).record(elapsed, TimeUnit.NANOSECONDS);
+        }
+
+        private void recordGateway() {
+            long elapsed = System.nanoTime() - startNanos - upstreamNanos;
+            metrics.gatewayTimer.record(Math.max(0, elapsed), TimeUnit.NANOSECONDS);
+        }
+
+        private void complete(int statusCode) {
+            if (!COMPLETED.compareAndSet(this, 0, 1)) {
+                return;
+            }
+            long duration = System.nanoTime() - startNanos;
+            metrics.active.decrementAndGet();
+            metrics.requestTimer(statusCode).record(duration, TimeUnit.NANOSECONDS);
+            if (statusCode != 0) {
+                metrics.responseSize.record(responseBytes);
+            }
+            if (statusCode == 0 && error == null) {
+                error = CLIENT_ABORT;
+                errorMessage = "回應前用戶端中斷連線";
+            }
+            accessLog.record(metrics.route, method == null ? "" : method.name(), path, statusCode, duration, upstreamNanos,
+                    requestBytes, responseBytes, error, errorMessage);
+        }
+    }
+}
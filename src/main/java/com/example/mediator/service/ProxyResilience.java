@@ -0,0 +1,230 @@
+package com.example.mediator.service;
+
+import com.example.mediator.config.properties.ProxyProperties;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * 後端斷路器與隔艙
+ * <p>
+ * 每個後端各自一組 CircuitBreaker / Bulkhead (名稱為後端 path)：
+ * 斷路器開啟或同時請求數額滿時立即失敗 (CallNotPermittedException / BulkheadFullException)，
+ * 不再佔用連線等待後端逾時。狀態與統計以 resilience4j.* 註冊到 Micrometer。
+ * <p>
+ * 斷路器與隔艙以 ProxyRoute 區分 (與 ProxyAdmission、BackendHttpClient 相同)，一律依該路由的設定建立：
+ * 路由重新載入後，設定變更的後端由新的 ProxyRoute 建立新的一組；切換前已取得舊路由的請求仍使用舊的一組，
+ * 不會以舊設定覆蓋新路由。Registry 只用於註冊指標，只有路由表中目前的路由才會註冊。
+ */
+@Component
+public class ProxyResilience {
+
+    private static final Logger logger = Logger.getLogger(ProxyResilience.class.getName());
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+    private final BulkheadRegistry bulkheadRegistry = BulkheadRegistry.ofDefaults();
+    private final Map<ProxyRoute, RouteResilience> routeResiliences = new ConcurrentHashMap<>();
+    private final ProxyRouteTable proxyRouteTable;
+
+    /**
+     * 建構子，注入路由表並註冊斷路器與隔艙的指標
+     */
+    public ProxyResilience(ProxyRouteTable proxyRouteTable, MeterRegistry meterRegistry) {
+        this.proxyRouteTable = proxyRouteTable;
+        circuitBreakerRegistry.getEventPublisher().onEntryAdded(event -> event.getAddedEntry().getEventPublisher()
+                .onStateTransition(transition -> logger.warning("後端斷路器狀態變更：" + transition.getCircuitBreakerName()
+                        + "，" + transition.getStateTransition())));
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry).bindTo(meterRegistry);
+    }
+
+    /**
+     * 以後端的斷路器與隔艙保護呼叫
+     *
+     * @param route 後端路由
+     * @param call  呼叫後端
+     * @return 受保護的呼叫
+     */
+    public <T> Mono<T> protect(ProxyRoute route, Mono<T> call) {
+        Mono<T> protectedCall = call;
+        ProxyProperties.CircuitBreaker circuitBreakerConfig = route.getApi().getCircuitBreaker();
+        if (circuitBreakerConfig.isEnabled()) {
+            protectedCall = protectedCall.transformDeferred(CircuitBreakerOperator.of(circuitBreaker(route)));
+        }
+        ProxyProperties.Bulkhead bulkheadConfig = route.getApi().getBulkhead();
+        if (bulkheadConfig.isEnabled()) {
+            protectedCall = protectedCall.transformDeferred(BulkheadOperator.of(bulkhead(route)));
+        }
+        return protectedCall;
+    }
+
+    /**
+     * 以後端的斷路器與隔艙保護串流呼叫，隔艙許可保留到 response body 結束 (見 {@link StreamingPermits})
+     * <p>
+     * 斷路器以取得 response headers 的延遲判斷慢速呼叫 (長時間的串流不視為慢速)，body 傳送中失敗同樣計入失敗率。
+     *
+     * @param route 後端路由
+     * @param call  呼叫後端 (串流回應)
+     * @return 受保護的呼叫
+     */
+    public <T> Mono<ResponseEntity<Flux<T>>> protectStreaming(ProxyRoute route, Mono<ResponseEntity<Flux<T>>> call) {
+        CircuitBreaker circuitBreaker = route.getApi().getCircuitBreaker().isEnabled() ? circuitBreaker(route) : null;
+        Bulkhead bulkhead = route.getApi().getBulkhead().isEnabled() ? bulkhead(route) : null;
+        if (circuitBreaker == null && bulkhead == null) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            if (circuitBreaker != null && !circuitBreaker.tryAcquirePermission()) {
+                return Mono.error(CallNotPermittedException.createCallNotPermittedException(circuitBreaker));
+            }
+            if (bulkhead != null && !bulkhead.tryAcquirePermission()) {
+                if (circuitBreaker != null) {
+                    circuitBreaker.releasePermission();
+                }
+                return Mono.error(BulkheadFullException.createBulkheadFullException(bulkhead));
+            }
+            return StreamingPermits.holdUntilBodyEnds(call, (latencyNanos, headersReceived, error) -> {
+                if (bulkhead != null) {
+                    bulkhead.onComplete();
+                }
+                if (circuitBreaker != null) {
+                    if (error != null) {
+                        circuitBreaker.onError(latencyNanos, TimeUnit.NANOSECONDS, error);
+                    } else if (headersReceived) {
+                        circuitBreaker.onSuccess(latencyNanos, TimeUnit.NANOSECONDS);
+                    } else {
+                        circuitBreaker.releasePermission();     // 取得 headers 前取消
+                    }
+                }
+            });
+        });
+    }
+
+    /**
+     * 取得後端的斷路器，第一次使用時依路由的設定建立
+     *
+     * @param route 後端路由
+     * @return 斷路器
+     */
+    public CircuitBreaker circuitBreaker(ProxyRoute route) {
+        return resilience(route).circuitBreaker;
+    }
+
+    /**
+     * 取得後端的隔艙，第一次使用時依路由的設定建立
+     *
+     * @param route 後端路由
+     * @return 隔艙
+     */
+    public Bulkhead bulkhead(ProxyRoute route) {
+        return resilience(route).bulkhead;
+    }
+
+    /**
+     * 路由重新載入後移除舊路由的斷路器與隔艙及其指標
+     * (已取得舊斷路器 / 隔艙的進行中請求照常完成)
+     *
+     * @param event 路由重新載入事件
+     */
+    @EventListener
+    public void onRoutesReloaded(ProxyRoutesReloadedEvent event) {
+        for (ProxyRoute route : event.getRetiredRoutes()) {
+            RouteResilience resilience = routeResiliences.remove(route);
+            if (resilience == null) {
+                continue;
+            }
+            // 新路由已註冊同名的指標時保留
+            circuitBreakerRegistry.find(route.getPath())
+                    .filter(registered -> registered == resilience.circuitBreaker)
+                    .ifPresent(registered -> circuitBreakerRegistry.remove(route.getPath()));
+            bulkheadRegistry.find(route.getPath())
+                    .filter(registered -> registered == resilience.bulkhead)
+                    .ifPresent(registered -> bulkheadRegistry.remove(route.getPath()));
+        }
+    }
+
+    private RouteResilience resilience(ProxyRoute route) {
+        RouteResilience resilience = routeResiliences.get(route);
+        if (resilience != null) {
+            return resilience;
+        }
+        if (proxyRouteTable.find(route.getPath()) != route) {
+            // 已停用的舊路由 (重新載入前取得路由、事件處理後才呼叫的請求)：依舊路由的設定建立，不保留也不註冊指標
+            return new RouteResilience(CircuitBreaker.of(route.getPath(), circuitBreakerConfig(route)),
+                    Bulkhead.of(route.getPath(), bulkheadConfig(route)));
+        }
+        return routeResiliences.computeIfAbsent(route, current -> {
+            // 以目前路由的設定取代 registry 中同名的舊斷路器 / 隔艙 (指標改為指向新的一組)
+            circuitBreakerRegistry.remove(current.getPath());
+            bulkheadRegistry.remove(current.getPath());
+            return new RouteResilience(circuitBreakerRegistry.circuitBreaker(current.getPath(), circuitBreakerConfig(current)),
+                    bulkheadRegistry.bulkhead(current.getPath(), bulkheadConfig(current)));
+        });
+    }
+
+    private static CircuitBreakerConfig circuitBreakerConfig(ProxyRoute route) {
+        ProxyProperties.CircuitBreaker config = route.getApi().getCircuitBreaker();
+        return CircuitBreakerConfig.custom()
+                .failureRateThreshold(config.getFailureRateThreshold())
+                .slowCallRateThreshold(config.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(config.getSlowCallDurationThreshold())
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(config.getSlidingWindowSize())
+                .minimumNumberOfCalls(config.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(config.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(config.getPermittedNumberOfCallsInHalfOpenState())
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .recordException(ProxyResilience::isBackendFailure)
+                .build();
+    }
+
+    private static BulkheadConfig bulkheadConfig(ProxyRoute route) {
+        return BulkheadConfig.custom()
+                .maxConcurrentCalls(route.getApi().getBulkhead().getMaxConcurrentCalls())
+                .maxWaitDuration(Duration.ZERO)
+                .build();
+    }
+
+    /**
+     * 後端路由的斷路器與隔艙
+     */
+    private static final class RouteResilience {
+        private final CircuitBreaker circuitBreaker;
+        private final Bulkhead bulkhead;
+
+        private RouteResilience(CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+            this.circuitBreaker = circuitBreaker;
+            this.bulkhead = bulkhead;
+        }
+    }
+
+    /**
+     * 後端的 4xx 屬於呼叫端錯誤，不計入斷路器的失敗率
+     */
+    private static boolean isBackendFailure(Throwable ex) {
+        return !(ex instanceof WebClientResponseException)
+                || ((WebClientResponseException) ex).getRawStatusCode() >= 500;
+    }
+}
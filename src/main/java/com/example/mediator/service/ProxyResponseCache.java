@@ -0,0 +1,396 @@
+package com.example.mediator.service;
+
+import com.example.mediator.config.properties.ProxyProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * 代理 GET 回應快取
+ * <p>
+ * 以 method + 後端網址 (含 query) + 設定的 request headers + 前端是否接受 gzip 為 key，依總 bytes 限制容量 (Caffeine W-TinyLFU 淘汰)。
+ * 存入的是中台壓縮後的回應 (見 ProxyService)，命中時不需再次壓縮。
+ * 有效時間依後端的 Cache-Control (max-age / s-maxage / no-cache / no-store / private / stale-while-revalidate)，
+ * 後端未指定時使用路由設定的 ttl。過期後若有 ETag / Last-Modified，以 If-None-Match / If-Modified-Since 重新驗證。
+ * 命中率等指標以 cache.* (cache=proxy.response) 註冊到 Micrometer。
+ * <p>
+ * 快取由所有前端共用，因此 (RFC 9111 3.5)：
+ * 轉發的請求帶有 Authorization 或 Cookie 時，只使用與存入 Cache-Control 為 public 或有 s-maxage 的回應，也不會移除其他使用者可用的快取；
+ * 有 Set-Cookie 的回應不存入；Vary 只接受 Accept-Encoding 與 key-headers 中的 header (其他 header 未納入 key，不存入)。
+ */
+@Component
+public class ProxyResponseCache {
+
+    private static final Logger logger = Logger.getLogger(ProxyResponseCache.class.getName());
+
+    private static final String CACHE_NAME = "proxy.response";
+    private static final int ENTRY_OVERHEAD = 128;      // 每筆快取除了 body 與 headers 外的估計大小
+
+    private final Cache<String, CachedResponse> cache;
+    private final Counter revalidatedCounter;
+    private final Counter staleServedCounter;
+
+    /**
+     * 建構子，依 proxy.cache-max-size 建立快取並註冊指標
+     */
+    public ProxyResponseCache(ProxyProperties proxyProperties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(proxyProperties.getCacheMaxSize().toBytes())
+                .weigher((String key, CachedResponse value) -> value.weight + key.length() * 2)
+                .expireAfter(new Expiry<String, CachedResponse>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedResponse value, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, value.evictAt - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedResponse value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedResponse value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        this.revalidatedCounter = Counter.builder("cache.revalidations")
+                .description("以 304 重新驗證成功的次數")
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+        this.staleServedCounter = Counter.builder("cache.stale.served")
+                .description("stale-while-revalidate 期間回傳舊資料的次數")
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 此請求是否使用快取
+     *
+     * @param route  後端路由
+     * @param method HTTP 方法
+     * @return 路由啟用快取且為 GET 時回傳 true
+     */
+    public boolean isCacheable(ProxyRoute route, HttpMethod method) {
+        return method == HttpMethod.GET && route.getApi().getCache().isEnabled();
+    }
+
+    /**
+     * 組出快取 key (含前端是否接受 gzip，不含原始的 Accept-Encoding 字串)
+     *
+     * @param route          後端路由
+     * @param method         HTTP 方法
+     * @param backendUrl     後端完整網址 (含 query)
+     * @param requestHeaders 轉發的 request headers
+     * @param gzip           前端是否接受 gzip (見 {@link #normalizeAcceptEncoding})
+     * @return 快取 key
+     */
+    public String buildKey(ProxyRoute route, HttpMethod method, String backendUrl, HttpHeaders requestHeaders, boolean gzip) {
+        List<String> keyHeaders = route.getApi().getCache().getKeyHeaders();
+        StringBuilder key = new StringBuilder(method.name()).append(' ').append(backendUrl);
+        for (String name : keyHeaders) {
+            key.append('\n').append(name).append('=').append(requestHeaders.getFirst(name));
+        }
+        if (gzip) {
+            key.append("\nAccept-Encoding=gzip");
+        }
+        return key.toString();
+    }
+
+    /**
+     * 將轉發的 Accept-Encoding 統一為 gzip 或不帶，後端只會依是否接受 gzip 決定回應的編碼，與快取 key 一致
+     *
+     * @param requestHeaders 轉發的 request headers (直接修改)
+     * @param acceptEncoding 前端的 Accept-Encoding，沒有時為 null
+     * @return 前端是否接受 gzip
+     */
+    public boolean normalizeAcceptEncoding(HttpHeaders requestHeaders, String acceptEncoding) {
+        boolean gzip = acceptEncoding != null && ResponseCompression.acceptsGzip(acceptEncoding);
+        if (requestHeaders.containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+            if (gzip) {
+                requestHeaders.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+            } else {
+                requestHeaders.remove(HttpHeaders.ACCEPT_ENCODING);
+            }
+        }
+        return gzip;
+    }
+
+    /**
+     * 轉發的請求是否帶有使用者憑證 (Authorization 或 Cookie)
+     *
+     * @param requestHeaders 轉發的 request headers
+     * @return 帶有憑證時回傳 true
+     */
+    public boolean hasCredentials(HttpHeaders requestHeaders) {
+        return requestHeaders.containsKey(HttpHeaders.AUTHORIZATION) || requestHeaders.containsKey(HttpHeaders.COOKIE);
+    }
+
+    /**
+     * 經由快取取得回應
+     *
+     * @param route       後端路由
+     * @param key         快取 key
+     * @param credentials 轉發的請求是否帶有使用者憑證，此時只使用與存入共用 (public / s-maxage) 的回應
+     * @param backendCall 實際呼叫後端，參數為需額外帶入的 headers (條件式請求)
+     * @return 後端或快取的回應
+     */
+    public Mono<ResponseEntity<byte[]>> exchange(ProxyRoute route, String key, boolean credentials,
+                                                 Function<HttpHeaders, Mono<ResponseEntity<byte[]>>> backendCall) {
+        long now = System.currentTimeMillis();
+        CachedResponse cached = cache.getIfPresent(key);
+        if (cached != null && credentials && !cached.shared) {
+            cached = null;  // 後端未允許共用，不可回應給帶有憑證的請求 (也不以其 ETag 重新驗證)
+        }
+        if (cached != null) {
+            if (now < cached.freshUntil) {
+                return Mono.just(cached.toResponse());
+            }
+            if (now < cached.staleUntil) {
+                // 先回傳舊資料，背景更新 (同一筆只會有一個更新在進行)
+                staleServedCounter.increment();
+                CachedResponse stale = cached;
+                if (stale.revalidating.compareAndSet(false, true)) {
+                    revalidate(route, key, stale, credentials, backendCall)
+                            .doFinally(signal -> stale.revalidating.set(false))
+                            .subscribe(response -> { }, ex -> logger.warning("快取背景更新失敗：" + key + "，" + ex.getMessage()));
+                }
+                return Mono.just(stale.toResponse());
+            }
+            if (cached.hasValidator()) {
+                return revalidate(route, key, cached, credentials, backendCall);
+            }
+        }
+        return backendCall.apply(HttpHeaders.EMPTY)
+                .doOnNext(response -> store(route, key, response, credentials));
+    }
+
+    /**
+     * 以條件式請求重新驗證，304 時沿用快取的 body
+     */
+    private Mono<ResponseEntity<byte[]>> revalidate(ProxyRoute route, String key, CachedResponse cached, boolean credentials,
+                                                    Function<HttpHeaders, Mono<ResponseEntity<byte[]>>> backendCall) {
+        return backendCall.apply(cached.conditionalHeaders())
+                .map(response -> {
+                    if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+                        revalidatedCounter.increment();
+                        CachedResponse refreshed = cached.refresh(route, response.getHeaders(), System.currentTimeMillis());
+                        if (!credentials || refreshed.shared) {
+                            cache.put(key, refreshed);
+                        }
+                        return refreshed.toResponse();
+                    }
+                    store(route, key, response, credentials);
+                    return response;
+                });
+    }
+
+    /**
+     * 依後端回應的 Cache-Control 決定是否存入快取；帶有憑證的請求只存入共用的回應，且不移除原本的快取
+     */
+    private void store(ProxyRoute route, String key, ResponseEntity<byte[]> response, boolean credentials) {
+        if (response.getStatusCode() != HttpStatus.OK) {
+            return;
+        }
+        CachedResponse cachedResponse = CachedResponse.of(route, response, System.currentTimeMillis());
+        if (cachedResponse != null && (!credentials || cachedResponse.shared)) {
+            cache.put(key, cachedResponse);
+        } else if (!credentials) {
+            cache.invalidate(key);
+        }
+    }
+
+    /**
+     * 快取的回應 (不可變，重新驗證時產生新的物件)
+     */
+    private static final class CachedResponse {
+        private final HttpHeaders headers;
+        private final byte[] body;
+        private final long freshUntil;      // 此時間前直接使用快取
+        private final long staleUntil;      // 此時間前可先回傳舊資料並於背景更新
+        private final long evictAt;         // 此時間後移出快取
+        private final boolean shared;       // Cache-Control 為 public 或有 s-maxage，可回應給帶有憑證的請求
+        private final int weight;
+        private final AtomicBoolean revalidating = new AtomicBoolean();
+
+        private CachedResponse(HttpHeaders headers, byte[] body, Freshness freshness, long now) {
+            this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+            this.body = body;
+            this.freshUntil = now + freshness.maxAgeMillis;
+            this.staleUntil = freshUntil + freshness.staleWhileRevalidateMillis;
+            // 有 ETag / Last-Modified 時多保留一段時間，以便過期後重新驗證
+            boolean hasValidator = headers.getETag() != null || headers.getLastModified() != -1;
+            this.evictAt = staleUntil + (hasValidator ? Math.max(freshness.maxAgeMillis, freshness.defaultTtlMillis) : 0);
+            this.shared = freshness.shared;
+            this.weight = (int) Math.min(Integer.MAX_VALUE, (long) body.length + headersSize(headers) + ENTRY_OVERHEAD);
+        }
+
+        /**
+         * 依後端回應建立快取，不可快取時回傳 null
+         */
+        private static CachedResponse of(ProxyRoute route, ResponseEntity<byte[]> response, long now) {
+            Freshness freshness = Freshness.of(route, response.getHeaders());
+            if (freshness == null) {
+                return null;
+            }
+            byte[] body = response.getBody() == null ? new byte[0] : response.getBody();
+            return new CachedResponse(response.getHeaders(), body, freshness, now);
+        }
+
+        /**
+         * 304 重新驗證後，以新的 Cache-Control 更新有效時間
+         * (中台壓縮過的回應為弱 ETag，後端 304 回傳的強 ETag 同樣改為弱 ETag)
+         */
+        private CachedResponse refresh(ProxyRoute route, HttpHeaders notModifiedHeaders, long now) {
+            HttpHeaders merged = new HttpHeaders();
+            merged.addAll(headers);
+            notModifiedHeaders.forEach((name, values) -> {
+                if (name.equalsIgnoreCase(HttpHeaders.CACHE_CONTROL)
+                        || name.equalsIgnoreCase(HttpHeaders.EXPIRES) || name.equalsIgnoreCase(HttpHeaders.DATE)) {
+                    merged.put(name, values);
+                }
+            });
+            String etag = notModifiedHeaders.getETag();
+            if (etag != null) {
+                String cachedETag = headers.getETag();
+                boolean weak = cachedETag != null && cachedETag.startsWith("W/") && !etag.startsWith("W/");
+                merged.setETag(weak ? "W/" + etag : etag);
+            }
+            Freshness freshness = Freshness.of(route, merged);
+            return new CachedResponse(merged, body, freshness != null ? freshness : Freshness.none(route), now);
+        }
+
+        private boolean hasValidator() {
+            return headers.getETag() != null || headers.getLastModified() != -1;
+        }
+
+        private HttpHeaders conditionalHeaders() {
+            HttpHeaders conditional = new HttpHeaders();
+            if (headers.getETag() != null) {
+                conditional.setIfNoneMatch(headers.getETag());
+            }
+            if (headers.getLastModified() != -1) {
+                conditional.setIfModifiedSince(headers.getLastModified());
+            }
+            return conditional;
+        }
+
+        private ResponseEntity<byte[]> toResponse() {
+            return new ResponseEntity<>(body, headers, HttpStatus.OK);
+        }
+
+        private static int headersSize(HttpHeaders headers) {
+            int size = 0;
+            for (var entry : headers.entrySet()) {
+                size += entry.getKey().length() * 2;
+                for (String value : entry.getValue()) {
+                    size += value.length() * 2;
+                }
+            }
+            return size;
+        }
+    }
+
+    /**
+     * 由 Cache-Control 解析出的有效時間
+     */
+    private static final class Freshness {
+        private final long maxAgeMillis;
+        private final long staleWhileRevalidateMillis;
+        private final long defaultTtlMillis;
+        private final boolean shared;
+
+        private Freshness(long maxAgeMillis, long staleWhileRevalidateMillis, long defaultTtlMillis, boolean shared) {
+            this.maxAgeMillis = maxAgeMillis;
+            this.staleWhileRevalidateMillis = staleWhileRevalidateMillis;
+            this.defaultTtlMillis = defaultTtlMillis;
+            this.shared = shared;
+        }
+
+        /**
+         * 解析後端回應的 Cache-Control；no-store / private、有 Set-Cookie、
+         * Vary 含 Accept-Encoding 與 key-headers 以外的 header (含 *) 時回傳 null
+         */
+        private static Freshness of(ProxyRoute route, HttpHeaders headers) {
+            ProxyProperties.Cache config = route.getApi().getCache();
+            long defaultTtl = config.getTtl().toMillis();
+            long maxAge = defaultTtl;
+            long staleWhileRevalidate = config.getStaleWhileRevalidate().toMillis();
+            boolean sharedMaxAge = false;
+            boolean isPublic = false;
+            boolean noCache = false;
+
+            if (headers.containsKey(HttpHeaders.SET_COOKIE) || !isVaryCovered(headers.getVary(), config.getKeyHeaders())) {
+                return null;
+            }
+            String cacheControl = headers.getCacheControl();
+            if (cacheControl != null) {
+                for (String directive : cacheControl.split(",")) {
+                    String value = directive.trim().toLowerCase(Locale.ROOT);
+                    if (value.equals("no-store") || value.equals("private")) {
+                        return null;
+                    } else if (value.equals("no-cache")) {
+                        noCache = true;
+                    } else if (value.equals("public")) {
+                        isPublic = true;
+                    } else if (value.startsWith("s-maxage=")) {
+                        maxAge = parseSeconds(value, maxAge);
+                        sharedMaxAge = true;
+                    } else if (value.startsWith("max-age=") && !sharedMaxAge) {
+                        maxAge = parseSeconds(value, maxAge);
+                    } else if (value.startsWith("stale-while-revalidate=")) {
+                        staleWhileRevalidate = parseSeconds(value, staleWhileRevalidate);
+                    }
+                }
+            }
+            // no-cache：可存入快取，但每次使用前都要重新驗證
+            boolean shared = isPublic || sharedMaxAge;
+            return noCache ? new Freshness(0, 0, defaultTtl, shared) : new Freshness(maxAge, staleWhileRevalidate, defaultTtl, shared);
+        }
+
+        private static Freshness none(ProxyRoute route) {
+            return new Freshness(0, 0, route.getApi().getCache().getTtl().toMillis(), false);
+        }
+
+        /**
+         * Vary 列出的 header 是否都已納入快取 key (Accept-Encoding 一律納入)
+         */
+        private static boolean isVaryCovered(List<String> vary, List<String> keyHeaders) {
+            for (String name : vary) {
+                if (name.equalsIgnoreCase(HttpHeaders.ACCEPT_ENCODING)) {
+                    continue;
+                }
+                if (keyHeaders.stream().noneMatch(name::equalsIgnoreCase)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long parseSeconds(String directive, long defaultMillis) {
+            try {
+                return Long.parseLong(directive.substring(directive.indexOf('=') + 1).replace("\"", "")) * 1000;
+            } catch (NumberFormatException ex) {
+                return defaultMillis;
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.mediator.service;
+
+import com.example.mediator.config.properties.ProxyProperties;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 預先解析好的後端路由 (不可變)
+ * <p>
+ * 後端網址、/proxy/{path} 前綴與 headers 過濾器於建立時解析一次，轉發時只做字串組合。
+ * 設定多個執行個體 (url + urls) 時，後端網址以第一個執行個體組成 (快取 key 也以此為準)，
+ * 實際送出時再由 BackendHttpClient 換成選中的執行個體。
+ */
+public final class ProxyRoute {
+
+    private final ProxyProperties.ProxyApi api;
+    private final String prefix;
+    private final URI backendUri;
+    private final String backendBaseUrl;
+    private final List<String> instanceBaseUrls;
+    private final HeaderFilter headerFilter;
+    private final ResponseCompression responseCompression;
+
+    /**
+     * 依後端設定建立路由
+     *
+     * @param api 後端設定
+     * @throws IllegalArgumentException 後端網址格式錯誤
+     */
+    public ProxyRoute(ProxyProperties.ProxyApi api) {
+        if (api.getPath() == null || api.getPath().isEmpty()) {
+            throw new IllegalArgumentException("後端設定缺少 path：" + api.getName());
+        }
+        List<String> urls = new ArrayList<>();
+        if (api.getUrl() != null) {
+            urls.add(api.getUrl());
+        }
+        if (api.getUrls() != null) {
+            urls.addAll(api.getUrls());
+        }
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("後端設定缺少 url：" + api.getName());
+        }
+        List<String> baseUrls = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            baseUrls.add(toBaseUrl(url));
+        }
+        this.api = api;
+        this.prefix = "/proxy/" + api.getPath();
+        this.backendUri = URI.create(urls.get(0));
+        this.backendBaseUrl = baseUrls.get(0);
+        this.instanceBaseUrls = Collections.unmodifiableList(baseUrls);
+        this.headerFilter = new HeaderFilter(api.getHeaders());
+        this.responseCompression = new ResponseCompression(api.getCompression());
+    }
+
+    /**
+     * 檢查後端網址並去除結尾的 /
+     *
+     * @param url 後端網址
+     * @return 不含結尾 / 的後端網址
+     * @throws IllegalArgumentException 後端網址格式錯誤
+     */
+    private static String toBaseUrl(String url) {
+        URI uri = URI.create(url);
+        if (uri.getScheme() == null || uri.getHost() == null) {
+            throw new IllegalArgumentException("後端網址格式錯誤：" + url);
+        }
+        String base = uri.toString();
+        return base.endsWith("/") ? base.substring(0, base.length() - 1) : base;
+    }
+
+    /**
+     * 組出後端完整網址
+     *
+     * @param requestUri  前端請求的 URI (含 /proxy/{path} 前綴)
+     * @param queryString 前端請求的 query string，可為 null
+     * @return 後端完整網址
+     */
+    public String buildBackendUrl(String requestUri, String queryString) {
+        int start = requestUri.startsWith(prefix) ? prefix.length() : 0;
+        int length = backendBaseUrl.length() + requestUri.length() - start
+                + (queryString != null ? queryString.length() + 1 : 0);
+        StringBuilder url = new StringBuilder(length)
+                .append(backendBaseUrl)
+                .append(requestUri, start, requestUri.length());
+        if (queryString != null) {
+            url.append('?').append(queryString);
+        }
+        return url.toString();
+    }
+
+    public ProxyProperties.ProxyApi getApi() {
+        return api;
+    }
+
+    public String getPath() {
+        return api.getPath();
+    }
+
+    public String getName() {
+        return api.getName();
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public URI getBackendUri() {
+        return backendUri;
+    }
+
+    public String getBackendBaseUrl() {
+        return backendBaseUrl;
+    }
+
+    /**
+     * @return 所有執行個體的網址 (不含結尾 /)，第一個即 backendBaseUrl
+     */
+    public List<String> getInstanceBaseUrls() {
+        return instanceBaseUrls;
+    }
+
+    public HeaderFilter getHeaderFilter() {
+        return headerFilter;
+    }
+
+    public ResponseCompression getResponseCompression() {
+        return responseCompression;
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.mediator.service;
+
+import com.example.mediator.config.properties.ProxyProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * 由路由設定檔 (proxy.reload.file) 重新載入路由，不需重新啟動中台
+ * <p>
+ * 檔案格式與 application.yml 相同 (proxy.apis)，以 Spring Boot 的 Binder 綁定，支援相同的寬鬆命名與時間 / 大小格式。
+ * 啟動時載入一次 (格式錯誤即啟動失敗)，之後每 check-interval 比對修改時間與大小，變更時重新載入；
+ * 執行中載入失敗只記錄警告並保留原路由表。
+ */
+@Component
+public class ProxyRouteReloader {
+
+    private static final Logger logger = Logger.getLogger(ProxyRouteReloader.class.getName());
+
+    private final ProxyRouteTable proxyRouteTable;
+    private final ProxyProperties.Reload reloadProperties;
+    private final Path file;                            // 未設定路由設定檔時為 null
+
+    private Disposable watchTask;
+    private volatile String loadedStamp;                // 上一次檢查時檔案的修改時間與大小
+
+    /**
+     * 建構子，注入路由表與重新載入設定
+     */
+    public ProxyRouteReloader(ProxyRouteTable proxyRouteTable, ProxyProperties proxyProperties) {
+        this.proxyRouteTable = proxyRouteTable;
+        this.reloadProperties = proxyProperties.getReload();
+        this.file = reloadProperties.getFile() == null ? null : Paths.get(reloadProperties.getFile());
+    }
+
+    /**
+     * 設定路由設定檔時，載入並開始定期檢查
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        if (file == null) {
+            return;
+        }
+        reload();
+        watchTask = Flux.interval(reloadProperties.getCheckInterval(), Schedulers.boundedElastic())
+                .onBackpressureDrop()
+                .subscribe(tick -> reloadIfChanged());
+        logger.info("路由設定檔：" + file.toAbsolutePath() + "，每 " + reloadProperties.getCheckInterval() + " 檢查變更");
+    }
+
+    /**
+     * 停止檢查路由設定檔
+     */
+    @PreDestroy
+    public void stop() {
+        if (watchTask != null) {
+            watchTask.dispose();
+        }
+    }
+
+    /**
+     * 立即由路由設定檔重新載入
+     *
+     * @return 新路由表的後端 path
+     * @throws IllegalStateException    未設定路由設定檔
+     * @throws IllegalArgumentException 設定格式錯誤，此時保留原路由表
+     * @throws IOException              讀取檔案失敗
+     */
+    public synchronized List<String> reload() throws IOException {
+        if (file == null) {
+            throw new IllegalStateException("未設定路由設定檔 (proxy.reload.file)");
+        }
+        String stamp = stamp();
+        List<ProxyProperties.ProxyApi> apis = load();
+        List<ProxyRoute> routes = proxyRouteTable.reload(apis);
+        loadedStamp = stamp;
+        return routes.stream().map(ProxyRoute::getPath).collect(Collectors.toList());
+    }
+
+    /**
+     * 檔案的修改時間或大小改變時重新載入；失敗時記錄警告，檔案再次變更才重試
+     */
+    private synchronized void reloadIfChanged() {
+        try {
+            String stamp = stamp();
+            if (stamp.equals(loadedStamp)) {
+                return;
+            }
+            loadedStamp = stamp;
+            proxyRouteTable.reload(load());
+        } catch (IOException | RuntimeException ex) {
+            logger.warning("重新載入路由設定檔失敗，保留原路由表：" + ex.getMessage());
+        }
+    }
+
+    /**
+     * 讀取路由設定檔並綁定 proxy.apis
+     */
+    private List<ProxyProperties.ProxyApi> load() throws IOException {
+        List<PropertySource<?>> sources = new YamlPropertySourceLoader()
+                .load("proxy-routes", new FileSystemResource(file));
+        return new Binder(ConfigurationPropertySources.from(sources))
+                .bind("proxy.apis", Bindable.listOf(ProxyProperties.ProxyApi.class))
+                .orElseThrow(() -> new IllegalArgumentException("路由設定檔缺少 proxy.apis：" + file));
+    }
+
+    private String stamp() throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return attributes.lastModifiedTime() + "/" + attributes.size();
+    }
+}
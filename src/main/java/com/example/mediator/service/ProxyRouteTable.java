@@ -0,0 +1,164 @@
+package com.example.mediator.service;
+
+import com.example.mediator.config.properties.ProxyProperties;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.beans.PropertyDescriptor;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * 後端路由表，以 path 做 hash 查詢
+ * <p>
+ * 路由表為不可變快照，設定變更時整份重建後再以 volatile 參考一次切換，
+ * 查詢中的請求不會看到只更新一半的路由；已取得舊路由的請求照常以舊路由完成。
+ * 設定沒有變更的後端沿用原本的 ProxyRoute (連線池、斷路器等狀態不受影響)，
+ * 切換後發布 {@link ProxyRoutesReloadedEvent} 通知移除或變更的後端。
+ */
+@Component
+public class ProxyRouteTable {
+
+    private static final Logger logger = Logger.getLogger(ProxyRouteTable.class.getName());
+
+    private final ApplicationEventPublisher eventPublisher;
+    private volatile Snapshot snapshot;
+
+    /**
+     * 建構子，依 proxy.apis 設定建立路由表
+     */
+    public ProxyRouteTable(ProxyProperties proxyProperties, ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+        this.snapshot = new Snapshot(proxyProperties.getApis(), null);
+    }
+
+    /**
+     * 依 path 查詢路由
+     *
+     * @param path 後端 path (網址中的 /proxy/{path})
+     * @return 路由，找不到時回傳 null
+     */
+    public ProxyRoute find(String path) {
+        return snapshot.routesByPath.get(path);
+    }
+
+    /**
+     * 取得所有路由 (依設定順序)
+     *
+     * @return 不可變的路由清單
+     */
+    public List<ProxyRoute> getRoutes() {
+        return snapshot.routes;
+    }
+
+    /**
+     * 依新的後端設定重建路由表，建立完成後才切換
+     *
+     * @param apis 後端設定
+     * @return 新的路由
+     * @throws IllegalArgumentException 設定格式錯誤，此時保留原路由表
+     */
+    public synchronized List<ProxyRoute> reload(List<ProxyProperties.ProxyApi> apis) {
+        Snapshot previous = snapshot;
+        Snapshot newSnapshot = new Snapshot(apis, previous);
+        this.snapshot = newSnapshot;
+
+        Set<ProxyRoute> current = Collections.newSetFromMap(new IdentityHashMap<>());
+        current.addAll(newSnapshot.routes);
+        List<ProxyRoute> retired = new ArrayList<>();
+        for (ProxyRoute route : previous.routes) {
+            if (!current.remove(route)) {
+                retired.add(route);
+            }
+        }
+        // current 剩下的是新增或設定變更而重建的路由
+        logger.info("路由表已更新，後端數量：" + newSnapshot.routes.size()
+                + "，新增或變更：" + current.size() + "，停用的舊路由：" + retired.size());
+        eventPublisher.publishEvent(new ProxyRoutesReloadedEvent(newSnapshot.routes, Collections.unmodifiableList(retired)));
+        return newSnapshot.routes;
+    }
+
+    /**
+     * 設定內容的摘要 (依 getter 遞迴組出)，用於判斷重新載入後後端設定是否變更
+     *
+     * @param config 設定物件
+     * @return 設定內容相同時相同的字串
+     */
+    static String fingerprint(Object config) {
+        StringBuilder sb = new StringBuilder();
+        appendFingerprint(sb, config);
+        return sb.toString();
+    }
+
+    private static void appendFingerprint(StringBuilder sb, Object value) {
+        if (value == null || BeanUtils.isSimpleValueType(value.getClass())
+                || value instanceof Duration || value instanceof DataSize) {
+            sb.append(value);
+        } else if (value instanceof Collection) {
+            sb.append('[');
+            for (Object element : (Collection<?>) value) {
+                appendFingerprint(sb, element);
+                sb.append(',');
+            }
+            sb.append(']');
+        } else {
+            sb.append('{');
+            for (PropertyDescriptor descriptor : BeanUtils.getPropertyDescriptors(value.getClass())) {
+                if (descriptor.getReadMethod() == null || "class".equals(descriptor.getName())) {
+                    continue;
+                }
+                sb.append(descriptor.getName()).append('=');
+                appendFingerprint(sb, ReflectionUtils.invokeMethod(descriptor.getReadMethod(), value));
+                sb.append(';');
+            }
+            sb.append('}');
+        }
+    }
+
+    /**
+     * 路由表快照
+     */
+    private static final class Snapshot {
+        private final List<ProxyRoute> routes;
+        private final Map<String, ProxyRoute> routesByPath;
+        private final Map<String, String> fingerprints;     // path -> 設定摘要
+
+        /**
+         * @param apis     後端設定
+         * @param previous 上一份路由表，設定相同的後端沿用其路由；第一次建立時為 null
+         */
+        private Snapshot(List<ProxyProperties.ProxyApi> apis, Snapshot previous) {
+            List<ProxyRoute> routeList = new ArrayList<>();
+            Map<String, ProxyRoute> routeMap = new HashMap<>();
+            Map<String, String> fingerprintMap = new HashMap<>();
+            if (apis != null) {
+                for (ProxyProperties.ProxyApi api : apis) {
+                    String fingerprint = fingerprint(api);
+                    ProxyRoute route = previous == null ? null : previous.routesByPath.get(api.getPath());
+                    if (route == null || !fingerprint.equals(previous.fingerprints.get(api.getPath()))) {
+                        route = new ProxyRoute(api);
+                    }
+                    if (routeMap.putIfAbsent(route.getPath(), route) != null) {
+                        throw new IllegalArgumentException("後端 path 重複：" + route.getPath());
+                    }
+                    fingerprintMap.put(route.getPath(), fingerprint);
+                    routeList.add(route);
+                }
+            }
+            this.routes = Collections.unmodifiableList(routeList);
+            this.routesByPath = Collections.unmodifiableMap(routeMap);
+            this.fingerprints = fingerprintMap;
+        }
+    }
+}
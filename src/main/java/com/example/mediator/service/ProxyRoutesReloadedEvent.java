@@ -0,0 +1,32 @@
+package com.example.mediator.service;
+
+import java.util.List;
+
+/**
+ * 路由表重新載入後發布的事件 (新路由表已生效)
+ * <p>
+ * 設定沒有變更的後端沿用同一個 ProxyRoute；移除或設定變更的後端列於 retiredRoutes，
+ * 依後端保存狀態的元件 (連線池、斷路器等) 據此釋放舊的資源。
+ */
+public class ProxyRoutesReloadedEvent {
+
+    private final List<ProxyRoute> routes;
+    private final List<ProxyRoute> retiredRoutes;
+
+    /**
+     * @param routes        新的路由
+     * @param retiredRoutes 不再使用的舊路由
+     */
+    public ProxyRoutesReloadedEvent(List<ProxyRoute> routes, List<ProxyRoute> retiredRoutes) {
+        this.routes = routes;
+        this.retiredRoutes = retiredRoutes;
+    }
+
+    public List<ProxyRoute> getRoutes() {
+        return routes;
+    }
+
+    public List<ProxyRoute> getRetiredRoutes() {
+        return retiredRoutes;
+    }
+}
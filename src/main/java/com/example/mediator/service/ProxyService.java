@@ -2,194 +2,423 @@ package com.example.mediator.service;
 
 import com.example.mediator.client.BackendHttpClient;
 import com.example.mediator.config.properties.ProxyProperties;
+import com.example.mediator.utils.DataBufferInputStream;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.*;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * 中介邏輯服務，負責轉發請求與修改 OpenAPI JSON
+ * 中介邏輯服務，負責轉發請求 (OpenAPI JSON 由 ApiDocsService 處理)
+ * <p>
+ * 同時提供 Servlet (HttpServletRequest) 與 WebFlux (ServerHttpRequest) 兩種入口，
+ * 路由、headers 過濾、CORS 與錯誤處理共用同一份邏輯。
  */
 @Service
 public class ProxyService {
 
     private static final Logger logger = Logger.getLogger(ProxyService.class.getName());
 
-    private final ProxyProperties proxyProperties;
+    private static final int STREAM_BUFFER_SIZE = 8192;    // 串流模式每個 DataBuffer 的大小
+    private static final int STREAM_PREFETCH = 4;           // 串流模式預取的 DataBuffer 數量
+
+    private final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+    private final ProxyRouteTable proxyRouteTable;
     private final BackendHttpClient backendHttpClient;
-    private final ObjectMapper objectMapper;
+    private final ProxyResponseCache proxyResponseCache;
+    private final ProxyResilience proxyResilience;
+    private final ProxyAdmission proxyAdmission;
+    private final ProxyMetrics proxyMetrics;
 
     /**
-     * 建構子，注入後端設定與 HTTP 客戶端
+     * 建構子，注入後端路由表、HTTP 客戶端、回應快取、斷路器 / 隔艙、准入控制與代理指標
      */
-    public ProxyService(ProxyProperties proxyProperties, BackendHttpClient backendHttpClient, ObjectMapper objectMapper) {
-        this.proxyProperties = proxyProperties;
+    public ProxyService(ProxyRouteTable proxyRouteTable, BackendHttpClient backendHttpClient,
+                        ProxyResponseCache proxyResponseCache, ProxyResilience proxyResilience,
+                        ProxyAdmission proxyAdmission, ProxyMetrics proxyMetrics) {
+        this.proxyRouteTable = proxyRouteTable;
         this.backendHttpClient = backendHttpClient;
-        this.objectMapper = objectMapper;
+        this.proxyResponseCache = proxyResponseCache;
+        this.proxyResilience = proxyResilience;
+        this.proxyAdmission = proxyAdmission;
+        this.proxyMetrics = proxyMetrics;
     }
 
     /**
-     * 建立 Swagger UI 所需的多來源 API 配置
+     * 將進來的 HTTP 請求轉發到後端服務 (Servlet 模式)
+     * <p>
+     * 後端設定 streaming: true 時，request / response body 以 DataBuffer 串流轉發；
+     * 否則維持一次讀取完整 body 的方式 (適用一般 JSON 呼叫)。
+     * 超過速率限制時不讀取 request body，直接回應 429。
      *
-     * @return Swagger config JSON
+     * @param backendName 後端名稱
+     * @param request     前端傳入的 HTTP 請求
+     * @return 回傳後端的 HTTP 回應，body 為 byte[] 或串流的 Resource
+     * @throws IOException 讀取 request body 發生錯誤
      */
-    public ObjectNode buildSwaggerConfig() {
-        ObjectNode config = objectMapper.createObjectNode();
-        ArrayNode urls = objectMapper.createArrayNode();
+    public Mono<ResponseEntity<?>> proxy(String backendName, HttpServletRequest request) throws IOException {
+        ProxyRoute route = findRoute(backendName);
+        String fullUrl = route.buildBackendUrl(request.getRequestURI(), request.getQueryString());
+
+        HttpHeaders headers = route.getHeaderFilter().filterRequest(request);
+        HttpMethod method = HttpMethod.valueOf(request.getMethod());
+        String acceptEncoding = acceptEncoding(method, request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        ProxyMetrics.Exchange exchange = proxyMetrics.start(route, method, request.getRequestURI());
 
-        // SWAGGER 加入 中台服務
-        ObjectNode urlObj1 = objectMapper.createObjectNode();
-        urlObj1.put("name", "中台服務");
-        urlObj1.put("url", "/api-docs");
-        urls.add(urlObj1);
+        AdmissionRejectedException rejected = checkRateLimit(route, request);
+        if (rejected != null) {
+            return Mono.just(completeError(exchange, rejected));
+        }
+
+        if (route.getApi().isStreaming()) {
+            Flux<DataBuffer> requestBody = hasBody(request.getContentLengthLong(), request.getHeader(HttpHeaders.TRANSFER_ENCODING))
+                    ? exchange.countRequestBody(readRequestBody(request)) : null;
+            keepContentLength(headers, request.getContentLengthLong());
+            return forwardStreaming(route, fullUrl, method, headers, requestBody, acceptEncoding, exchange)
+                    .<ResponseEntity<?>>map(responseEntity -> {
+                        // 由 Servlet 執行緒讀取 InputStream 並寫出，寫出速度會回推到後端讀取
+                        responseEntity = exchange.completeOnBody(responseEntity);
+                        InputStream bodyStream = new DataBufferInputStream(responseEntity.getBody(), STREAM_PREFETCH);
+                        return ResponseEntity.status(responseEntity.getStatusCodeValue())
+                                .headers(responseEntity.getHeaders())
+                                .body(new InputStreamResource(bodyStream));
+                    })
+                    .onErrorResume(ex -> Mono.just(completeError(exchange, ex)))
+                    .doOnCancel(exchange::cancel);
+        }
 
-        // SWAGGER 加入 後端代理服務: 讀取 proxy.apis 的設定
-        proxyProperties.getApis().forEach(api -> {
-            ObjectNode urlObj2 = objectMapper.createObjectNode();
-            urlObj2.put("name", api.getName());
-            urlObj2.put("url", "/proxy/" + api.getPath() + "/api-docs");
-            urls.add(urlObj2);
-        });
+        byte[] requestBody = request.getInputStream().readAllBytes();
+        exchange.requestBytes(requestBody.length);
 
-        config.set("urls", urls);
-        config.put("url", "");
-        config.put("validatorUrl", "");
-        return config;
+        return forward(route, fullUrl, method, headers, requestBody, acceptEncoding, exchange)
+                .onErrorResume(ex -> Mono.just(handleError(exchange, ex)))
+                .<ResponseEntity<?>>map(responseEntity -> exchange.complete(responseEntity, responseEntity.getBody().length))
+                .doOnCancel(exchange::cancel);
     }
 
     /**
-     * 將進來的 HTTP 請求轉發到後端服務
+     * 將進來的 HTTP 請求轉發到後端服務 (WebFlux 模式)
+     * <p>
+     * 與 Servlet 模式相同的路由、headers 過濾與錯誤處理，但全程不阻塞執行緒：
+     * streaming: true 時 request body 直接串流到後端，否則以非阻塞方式收集完整 body 後轉發。
      *
      * @param backendName 後端名稱
      * @param request     前端傳入的 HTTP 請求
-     * @return 回傳後端的 HTTP 回應
-     * @throws IOException 讀取 request body 發生錯誤
+     * @return 回傳後端的 HTTP 回應，body 為 DataBuffer 串流
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> proxy(String backendName, ServerHttpRequest request) {
+        ProxyRoute route = findRoute(backendName);
+        URI requestUri = request.getURI();
+        String fullUrl = route.buildBackendUrl(requestUri.getRawPath(), requestUri.getRawQuery());
+
+        HttpHeaders headers = route.getHeaderFilter().filterRequest(request.getHeaders());
+        HttpMethod method = request.getMethod();
+        String acceptEncoding = acceptEncoding(method, request.getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING));
+        ProxyMetrics.Exchange exchange = proxyMetrics.start(route, method, requestUri.getRawPath());
+
+        AdmissionRejectedException rejected = checkRateLimit(route, request);
+        if (rejected != null) {
+            return Mono.just(exchange.completeOnBody(toStreamingResponse(handleError(exchange, rejected))));
+        }
+
+        if (route.getApi().isStreaming()) {
+            Flux<DataBuffer> requestBody = hasBody(request.getHeaders().getContentLength(),
+                    request.getHeaders().getFirst(HttpHeaders.TRANSFER_ENCODING)) ? exchange.countRequestBody(request.getBody()) : null;
+            keepContentLength(headers, request.getHeaders().getContentLength());
+            return forwardStreaming(route, fullUrl, method, headers, requestBody, acceptEncoding, exchange)
+                    .onErrorResume(ex -> Mono.just(toStreamingResponse(handleError(exchange, ex))))
+                    .map(exchange::completeOnBody)
+                    .doOnCancel(exchange::cancel);
+        }
+
+        return DataBufferUtils.join(request.getBody())
+                .map(dataBuffer -> {
+                    byte[] bytes = new byte[dataBuffer.readableByteCount()];
+                    dataBuffer.read(bytes);
+                    DataBufferUtils.release(dataBuffer);
+                    return bytes;
+                })
+                .defaultIfEmpty(new byte[0])
+                .flatMap(requestBody -> {
+                    exchange.requestBytes(requestBody.length);
+                    return forward(route, fullUrl, method, headers, requestBody, acceptEncoding, exchange);
+                })
+                .map(this::toStreamingResponse)
+                .onErrorResume(ex -> Mono.just(toStreamingResponse(handleError(exchange, ex))))
+                .map(exchange::completeOnBody)
+                .doOnCancel(exchange::cancel);
+    }
+
+    /**
+     * 依後端名稱取得路由
+     *
+     * @param backendName 後端名稱
+     * @return 後端路由
      */
-    public Mono<ResponseEntity<byte[]>> proxy(String backendName, HttpServletRequest request) throws IOException {
-        var proxyApi = proxyProperties.getApis().stream()
-                .filter(api -> backendName.equals(api.getPath()))
-                .findFirst().orElse(null);
+    private ProxyRoute findRoute(String backendName) {
+        ProxyRoute route = proxyRouteTable.find(backendName);
 
-        if (proxyApi == null) {
+        if (route == null) {
             throw new IllegalArgumentException("找不到後端設定：" + backendName);
         }
+        return route;
+    }
 
-        String backendUrl = proxyApi.getUrl();
-        String prefix = "/proxy/" + proxyApi.getPath();
-        String requestPath = request.getRequestURI().replace(prefix, "");
-        String queryString = request.getQueryString();
-        String fullUrl = backendUrl + requestPath + (queryString != null ? "?" + queryString : "");
+    /**
+     * 檢查速率限制 (Servlet 模式)
+     *
+     * @param route   後端路由
+     * @param request 前端傳入的 HTTP 請求
+     * @return 超過限制時為 429 的例外，通過時為 null
+     */
+    private AdmissionRejectedException checkRateLimit(ProxyRoute route, HttpServletRequest request) {
+        ProxyProperties.RateLimit rateLimit = route.getApi().getRateLimit();
+        if (!rateLimit.isEnabled()) {
+            return null;
+        }
+        String clientKeyHeader = rateLimit.getClientKeyHeader();
+        return proxyAdmission.checkRateLimit(route,
+                clientKeyHeader == null ? null : request.getHeader(clientKeyHeader), request.getRemoteAddr());
+    }
 
-        logger.info("中介轉發到後端: " + fullUrl);
+    /**
+     * 檢查速率限制 (WebFlux 模式)
+     *
+     * @param route   後端路由
+     * @param request 前端傳入的 HTTP 請求
+     * @return 超過限制時為 429 的例外，通過時為 null
+     */
+    private AdmissionRejectedException checkRateLimit(ProxyRoute route, ServerHttpRequest request) {
+        ProxyProperties.RateLimit rateLimit = route.getApi().getRateLimit();
+        if (!rateLimit.isEnabled()) {
+            return null;
+        }
+        String clientKeyHeader = rateLimit.getClientKeyHeader();
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        String clientIp = remoteAddress == null ? null
+                : remoteAddress.getAddress() == null ? remoteAddress.getHostString() : remoteAddress.getAddress().getHostAddress();
+        return proxyAdmission.checkRateLimit(route,
+                clientKeyHeader == null ? null : request.getHeaders().getFirst(clientKeyHeader), clientIp);
+    }
 
-        HttpHeaders headers = buildForwardHeaders(request);
-        byte[] requestBody = request.getInputStream().readAllBytes();
+    /**
+     * 經過同時請求數上限、斷路器與隔艙呼叫後端，並記錄後端延遲
+     *
+     * @param route    後端路由
+     * @param exchange 這次請求的指標記錄
+     * @param call     呼叫後端
+     * @return 受保護的呼叫
+     */
+    private <T> Mono<ResponseEntity<T>> callBackend(ProxyRoute route, ProxyMetrics.Exchange exchange,
+                                                    Mono<ResponseEntity<T>> call) {
+        return proxyAdmission.limitConcurrency(route, proxyResilience.protect(route, exchange.upstream(call)));
+    }
 
-        // 轉發請求到後端
-        return backendHttpClient.forwardRequest(fullUrl, HttpMethod.valueOf(request.getMethod()), headers, requestBody)
-                .flatMap(responseEntity -> {
-                    byte[] responseBody = responseEntity.getBody() == null ? new byte[0] : responseEntity.getBody();
-                    int statusCode = responseEntity.getStatusCodeValue();
+    /**
+     * 與 {@link #callBackend} 相同，但同時請求數上限與隔艙的名額保留到 response body 結束才釋放
+     *
+     * @param route    後端路由
+     * @param exchange 這次請求的指標記錄
+     * @param call     呼叫後端 (串流回應)
+     * @return 受保護的呼叫
+     */
+    private <T> Mono<ResponseEntity<Flux<T>>> callStreamingBackend(ProxyRoute route, ProxyMetrics.Exchange exchange,
+                                                                   Mono<ResponseEntity<Flux<T>>> call) {
+        return proxyAdmission.limitConcurrencyStreaming(route, proxyResilience.protectStreaming(route, exchange.upstream(call)));
+    }
 
-                    // 判斷狀態碼是否表示成功（2xx）
-                    if (statusCode >= 200 && statusCode < 300) {
-                        logger.info("後端請求成功，狀態碼：" + statusCode);
-                    } else {
-                        logger.warning("後端請求失敗，狀態碼：" + statusCode);
-                    }
+    /**
+     * 轉發完整 body 的請求，並整理後端回應 (路由啟用快取時，GET 先經過回應快取；快取命中不佔用同時請求數、斷路器與隔艙)
+     * <p>
+     * 快取保存中台壓縮後的回應 (key 含前端是否接受 gzip)，命中時不再壓縮；轉發的 Accept-Encoding 統一為 gzip 或不帶。
+     *
+     * @param route          後端路由
+     * @param fullUrl        後端完整網址
+     * @param method         HTTP 方法
+     * @param headers        轉發用的 headers
+     * @param requestBody    request body
+     * @param acceptEncoding 前端的 Accept-Encoding，不需壓縮時為 null
+     * @param exchange       這次請求的指標記錄
+     * @return 整理後的後端回應
+     */
+    private Mono<ResponseEntity<byte[]>> forward(ProxyRoute route, String fullUrl, HttpMethod method, HttpHeaders headers,
+                                                 byte[] requestBody, String acceptEncoding, ProxyMetrics.Exchange exchange) {
+        ResponseCompression compression = route.getResponseCompression();
+        if (proxyResponseCache.isCacheable(route, method)) {
+            boolean gzip = proxyResponseCache.normalizeAcceptEncoding(headers, acceptEncoding);
+            String cacheKey = proxyResponseCache.buildKey(route, method, fullUrl, headers, gzip);
+            boolean credentials = proxyResponseCache.hasCredentials(headers);
+            return proxyResponseCache.exchange(route, cacheKey, credentials, conditionalHeaders -> {
+                        HttpHeaders requestHeaders = headers;
+                        if (!conditionalHeaders.isEmpty()) {
+                            requestHeaders = new HttpHeaders();
+                            requestHeaders.addAll(headers);
+                            requestHeaders.putAll(conditionalHeaders);
+                        }
+                        // 以後端原本的 headers 判斷是否壓縮 (response headers 過濾前)，壓縮後才存入快取
+                        return callBackend(route, exchange,
+                                backendHttpClient.forwardRequest(route, fullUrl, method, requestHeaders, requestBody))
+                                .map(responseEntity -> compression.compress(responseEntity, acceptEncoding));
+                    })
+                    .map(responseEntity -> {
+                        byte[] responseBody = responseEntity.getBody() == null ? new byte[0] : responseEntity.getBody();
+                        HttpHeaders responseHeaders = route.getHeaderFilter().filterResponse(responseEntity.getHeaders());
 
-                    HttpHeaders responseHeaders = filterResponseHeaders(responseEntity.getHeaders());
-                    removeCorsHeaders(responseHeaders);     // 刪除後端的 CORS 處理，避免重複設定導致前端錯誤
+                        return ResponseEntity.status(responseEntity.getStatusCodeValue())
+                                .headers(responseHeaders)
+                                .body(responseBody);
+                    });
+        }
+
+        return callBackend(route, exchange, backendHttpClient.forwardRequest(route, fullUrl, method, headers, requestBody))
+                .map(responseEntity -> {
+                    byte[] responseBody = responseEntity.getBody() == null ? new byte[0] : responseEntity.getBody();
+                    HttpHeaders responseHeaders = route.getHeaderFilter().filterResponse(responseEntity.getHeaders());
 
-                    return Mono.just(ResponseEntity.status(statusCode)
+                    return compression.compress(ResponseEntity.status(responseEntity.getStatusCodeValue())
                             .headers(responseHeaders)
-                            .body(responseBody));
-                })
-                .onErrorResume(ex -> {
-                    logger.severe("代理錯誤：" + ex.getMessage());
-                    ex.printStackTrace();
-                    return Mono.just(buildErrorResponse(request, ex));
+                            .body(responseBody), acceptEncoding);
                 });
     }
 
     /**
-     * 從原始請求中建立新的轉發 headers
+     * 以串流方式轉發請求，並整理後端回應，request / response body 不會整份載入記憶體
      *
-     * @param request 原始請求
-     * @return 轉發用的 HttpHeaders
+     * @param route          後端路由
+     * @param fullUrl        後端完整網址
+     * @param method         HTTP 方法
+     * @param headers        轉發用的 headers
+     * @param requestBody    request body 串流，沒有 body 時傳入 null
+     * @param acceptEncoding 前端的 Accept-Encoding，不需壓縮時為 null
+     * @param exchange       這次請求的指標記錄
+     * @return 整理後的後端回應，body 為 DataBuffer 串流
      */
-    private HttpHeaders buildForwardHeaders(HttpServletRequest request) {
-        HttpHeaders headers = new HttpHeaders();
-        request.getHeaderNames().asIterator().forEachRemaining(name -> {
-            if (!name.equalsIgnoreCase("Host") && !name.equalsIgnoreCase("Content-Length") && !name.equalsIgnoreCase("Connection")) {
-                headers.add(name, request.getHeader(name));
-            }
-        });
-        return headers;
+    private Mono<ResponseEntity<Flux<DataBuffer>>> forwardStreaming(ProxyRoute route, String fullUrl, HttpMethod method,
+                                                                    HttpHeaders headers, Flux<DataBuffer> requestBody,
+                                                                    String acceptEncoding, ProxyMetrics.Exchange exchange) {
+        return callStreamingBackend(route, exchange,
+                        backendHttpClient.forwardStreamingRequest(route, fullUrl, method, headers, requestBody))
+                .map(responseEntity -> {
+                    Flux<DataBuffer> responseBody = responseEntity.getBody() == null ? Flux.empty() : responseEntity.getBody();
+                    HttpHeaders responseHeaders = route.getHeaderFilter().filterResponse(responseEntity.getHeaders());
+
+                    return route.getResponseCompression().compress(ResponseEntity.status(responseEntity.getStatusCodeValue())
+                            .headers(responseHeaders)
+                            .body(responseBody), responseEntity.getHeaders().getContentLength(), acceptEncoding, bufferFactory);
+                });
     }
 
     /**
-     * 過濾後端回應的 headers，移除不必要項目
+     * 記錄代理錯誤並組裝錯誤回應
+     * <p>
+     * 錯誤類別與訊息寫入 access log (背景執行緒寫出)，stack trace 只在 FINE 層級輸出。
      *
-     * @param originalHeaders 後端回傳的原始 headers
-     * @return 過濾後的 headers
+     * @param exchange 這次請求的指標記錄
+     * @param ex       發生的例外
+     * @return 錯誤的 ResponseEntity
      */
-    private HttpHeaders filterResponseHeaders(HttpHeaders originalHeaders) {
-        HttpHeaders headers = new HttpHeaders();
-        originalHeaders.forEach((name, values) -> {
-            if (!name.equalsIgnoreCase("Content-Length") && !name.equalsIgnoreCase("Transfer-Encoding")
-                    && !name.equalsIgnoreCase("Content-Encoding") && !name.equalsIgnoreCase("Connection")) {
-                headers.addAll(name, values);
-            }
-        });
-        return headers;
+    private ResponseEntity<byte[]> handleError(ProxyMetrics.Exchange exchange, Throwable ex) {
+        // WebClient 會將連線層的例外包裝成 WebClientRequestException
+        exchange.error(ex instanceof WebClientRequestException && ex.getCause() != null ? ex.getCause() : ex);
+        logger.log(Level.FINE, ex, () -> "代理錯誤：" + ex.getMessage());
+        return ProxyErrorResponses.of(ex);
     }
 
     /**
-     * 組裝錯誤回應
+     * 記錄代理錯誤並組裝錯誤回應，同時記錄整個請求 (Servlet 串流模式)
      *
-     * @param request 原始請求
-     * @param ex      發生的例外
+     * @param exchange 這次請求的指標記錄
+     * @param ex       發生的例外
      * @return 錯誤的 ResponseEntity
      */
-    private ResponseEntity<byte[]> buildErrorResponse(HttpServletRequest request, Throwable ex) {
-        int code = 502;
-        String message = "代理錯誤：" + ex.getMessage();
-
-        if (ex instanceof java.net.ConnectException) {
-            code = 503;
-            message = "無法連接後端服務";
-        } else if (ex instanceof java.net.SocketTimeoutException) {
-            code = 504;
-            message = "連線逾時";
-        } else if (ex instanceof IllegalArgumentException) {
-            code = 400;
-            message = ex.getMessage();
-        }
+    private ResponseEntity<byte[]> completeError(ProxyMetrics.Exchange exchange, Throwable ex) {
+        ResponseEntity<byte[]> responseEntity = handleError(exchange, ex);
+        return exchange.complete(responseEntity, responseEntity.getBody().length);
+    }
 
-        byte[] errorBytes = ("{\"code\":502,\"message\":\"代理錯誤\"}").getBytes(StandardCharsets.UTF_8);
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
+    /**
+     * 將完整 body 的回應轉為 DataBuffer 串流的回應 (WebFlux 模式)
+     *
+     * @param responseEntity 完整 body 的回應
+     * @return body 為 DataBuffer 串流的回應
+     */
+    private ResponseEntity<Flux<DataBuffer>> toStreamingResponse(ResponseEntity<byte[]> responseEntity) {
+        byte[] body = responseEntity.getBody() == null ? new byte[0] : responseEntity.getBody();
+        return ResponseEntity.status(responseEntity.getStatusCodeValue())
+                .headers(responseEntity.getHeaders())
+                .contentLength(body.length)     // body 已完整取得，以固定長度回應而不是 chunked
+                .body(body.length == 0 ? Flux.empty() : Flux.just(bufferFactory.wrap(body)));
+    }
+
+    /**
+     * 取得用於回應壓縮的 Accept-Encoding，HEAD 沒有 body 因此不壓縮
+     *
+     * @param method         HTTP 方法
+     * @param acceptEncoding 前端的 Accept-Encoding
+     * @return Accept-Encoding，不需壓縮時為 null
+     */
+    private static String acceptEncoding(HttpMethod method, String acceptEncoding) {
+        return method == HttpMethod.HEAD ? null : acceptEncoding;
+    }
 
-        return ResponseEntity.status(code).headers(headers).body(errorBytes);
+    /**
+     * 判斷請求是否帶有 body
+     *
+     * @param contentLength    Content-Length，未提供時為 -1
+     * @param transferEncoding Transfer-Encoding，未提供時為 null
+     * @return 是否帶有 body
+     */
+    private static boolean hasBody(long contentLength, String transferEncoding) {
+        return contentLength > 0 || transferEncoding != null;
+    }
+
+    /**
+     * 串流轉發時保留已知的 Content-Length，後端才會收到固定長度的 body 而不是 chunked
+     *
+     * @param headers       轉發用的 headers
+     * @param contentLength 原始請求的 Content-Length，未提供時為 -1
+     */
+    private static void keepContentLength(HttpHeaders headers, long contentLength) {
+        if (contentLength > 0) {
+            headers.setContentLength(contentLength);
+        }
+    }
+
+    /**
+     * 將 request body 轉為 DataBuffer 串流，於 boundedElastic 執行緒讀取，避免阻塞 Netty event loop
+     *
+     * @param request 前端傳入的 HTTP 請求
+     * @return request body 串流
+     */
+    private Flux<DataBuffer> readRequestBody(HttpServletRequest request) {
+        return DataBufferUtils.readInputStream(request::getInputStream, bufferFactory, STREAM_BUFFER_SIZE)
+                .subscribeOn(Schedulers.boundedElastic());
     }
 
     /**
      * 建立 CORS 跨域相關 headers
      *
-     * @param request 原始請求
      * @return CORS headers
      */
-    public HttpHeaders buildCorsHeaders(HttpServletRequest request) {
+    public HttpHeaders buildCorsHeaders() {
         HttpHeaders headers = new HttpHeaders();
         headers.add("Access-Control-Allow-Origin", "*");  // 允許所有來源
         headers.add("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
@@ -199,18 +428,4 @@ public class ProxyService {
         return headers;
     }
 
-    //
-
-    /**
-     * 刪除 CORS 相關標頭
-     * @param headers 後端傳來的 headers
-     */
-    private void removeCorsHeaders(HttpHeaders headers) {
-        headers.remove("Access-Control-Allow-Origin");
-        headers.remove("Access-Control-Allow-Methods");
-        headers.remove("Access-Control-Allow-Headers");
-        headers.remove("Access-Control-Allow-Credentials");
-        headers.remove("Access-Control-Max-Age");
-    }
-
 }
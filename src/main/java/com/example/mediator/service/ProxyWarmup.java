@@ -0,0 +1,142 @@
+package com.example.mediator.service;
+
+import com.example.mediator.client.BackendHttpClient;
+import com.example.mediator.config.properties.ProxyProperties;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.reactive.context.ReactiveWebApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.Http11SslContextSpec;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * 啟動暖機 (proxy.warmup.enabled=true)
+ * <p>
+ * Spring Boot 在 Web 伺服器啟動後、發布 ApplicationReadyEvent 與 readiness (ACCEPTING_TRAFFIC) 之前執行 ApplicationRunner，
+ * 因此暖機期間 Kubernetes 等以 readiness probe 判斷的負載平衡器不會送入流量。
+ * 先對每個後端預先建立連線並檢查 ({@link BackendHttpClient#prewarm})，再經由中台自己的 port 對連得上的路由送出 GET
+ * (連不上的後端不送，以免暖機請求開啟斷路器)，
+ * 走完前端連線、Controller (或 edge 模式的 Handler)、ProxyService.proxy 與後端呼叫的完整流程，讓類別載入與 JIT 在回報 ready 前完成。
+ * 暖機請求與一般請求相同，會計入指標、access log 與速率限制；暖機失敗或逾時只記錄警告，不影響啟動。
+ */
+@Component
+@ConditionalOnProperty(prefix = "proxy.warmup", name = "enabled", havingValue = "true")
+public class ProxyWarmup implements ApplicationRunner {
+
+    private static final Logger logger = Logger.getLogger(ProxyWarmup.class.getName());
+
+    private final ProxyRouteTable proxyRouteTable;
+    private final BackendHttpClient backendHttpClient;
+    private final ProxyProperties.Warmup warmupProperties;
+    private final Environment environment;
+    private final boolean reactive;
+
+    /**
+     * 建構子，注入路由表、後端 HTTP 客戶端與暖機設定
+     */
+    public ProxyWarmup(ProxyRouteTable proxyRouteTable, BackendHttpClient backendHttpClient, ProxyProperties proxyProperties,
+                       ApplicationContext applicationContext) {
+        this.proxyRouteTable = proxyRouteTable;
+        this.backendHttpClient = backendHttpClient;
+        this.warmupProperties = proxyProperties.getWarmup();
+        this.environment = applicationContext.getEnvironment();
+        this.reactive = applicationContext instanceof ReactiveWebApplicationContext;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<ProxyRoute> routes = proxyRouteTable.getRoutes();
+        if (routes.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        ConnectionProvider connectionProvider = ConnectionProvider.create("proxy-warmup", warmupProperties.getConcurrency());
+        try {
+            HttpClient gatewayClient = gatewayClient(connectionProvider);
+            Flux.fromIterable(routes)
+                    .flatMap(route -> prewarmConnections(route).filter(healthy -> healthy > 0).map(healthy -> route))
+                    .collectList()
+                    .flatMap(reachable -> warmupRequests(gatewayClient, reachable))
+                    .block(warmupProperties.getTimeout());
+            logger.info("暖機完成，耗時 " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (RuntimeException ex) {
+            logger.warning("暖機未完成，繼續啟動：" + ex.getMessage());
+        } finally {
+            connectionProvider.dispose();
+        }
+    }
+
+    /**
+     * 預先建立後端連線並檢查
+     */
+    private Mono<Integer> prewarmConnections(ProxyRoute route) {
+        int expected = route.getApi().getPool().getWarmupConnections() * route.getInstanceBaseUrls().size();
+        return backendHttpClient.prewarm(route, warmupPath(route))
+                .doOnNext(healthy -> {
+                    if (healthy < expected) {
+                        logger.warning("後端連線檢查失敗：" + route.getPath() + "，成功 " + healthy + " / " + expected);
+                    } else {
+                        logger.info("已預先建立後端連線：" + route.getPath() + "，" + healthy + " 條");
+                    }
+                });
+    }
+
+    /**
+     * 經由中台自己的 port 輪流對各路由送出暖機請求 (各路由共用同一段程式碼，因此以總數計算)
+     */
+    private Mono<Long> warmupRequests(HttpClient gatewayClient, List<ProxyRoute> routes) {
+        if (routes.isEmpty()) {
+            return Mono.empty();
+        }
+        int requests = Math.max(warmupProperties.getRequests(), routes.size());
+        return Flux.range(0, requests)
+                .map(i -> routes.get(i % routes.size()))
+                .flatMap(route -> gatewayClient.get()
+                        .uri("/proxy/" + route.getPath() + warmupPath(route))
+                        .responseSingle((response, body) -> body.then(Mono.just(response.status().code())))
+                        .map(status -> status < 500)
+                        .onErrorReturn(false), warmupProperties.getConcurrency())
+                .filter(ok -> !ok)
+                .count()
+                .doOnNext(failed -> {
+                    if (failed > 0) {
+                        logger.warning("暖機請求失敗 " + failed + " / " + requests + " 個");
+                    }
+                });
+    }
+
+    private String warmupPath(ProxyRoute route) {
+        if (warmupProperties.getPath() != null) {
+            return warmupProperties.getPath();
+        }
+        String healthCheckPath = route.getApi().getLoadBalancer().getHealthCheckPath();
+        return healthCheckPath != null ? healthCheckPath : "/";
+    }
+
+    /**
+     * 連到中台自己的 HttpClient (伺服器啟用 TLS 時不檢查憑證，只連線到本機)
+     */
+    private HttpClient gatewayClient(ConnectionProvider connectionProvider) {
+        boolean secure = environment.getProperty("server.ssl.key-store") != null
+                && environment.getProperty("server.ssl.enabled", Boolean.class, true);
+        String basePath = reactive ? environment.getProperty("spring.webflux.base-path", "")
+                : environment.getProperty("server.servlet.context-path", "");
+        HttpClient client = HttpClient.create(connectionProvider)
+                .baseUrl((secure ? "https" : "http") + "://localhost:" + environment.getProperty("local.server.port") + basePath);
+        if (secure) {
+            client = client.secure(spec -> spec.sslContext(Http11SslContextSpec.forClient()
+                    .configure(builder -> builder.trustManager(InsecureTrustManagerFactory.INSTANCE))));
+        }
+        return client;
+    }
+}
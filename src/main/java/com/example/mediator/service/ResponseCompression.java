@@ -0,0 +1,309 @@
+package com.example.mediator.service;
+
+import com.example.mediator.config.properties.ProxyProperties;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 後端路由的回應壓縮 (不可變，建立路由時預先計算)
+ * <p>
+ * 後端已壓縮的回應 (有 Content-Encoding) 原樣轉送，不經過這裡；
+ * 後端未壓縮時，符合條件 (前端接受 gzip、2xx、Content-Type 可壓縮、大小達門檻、沒有 Cache-Control: no-transform)
+ * 才以 gzip 壓縮，並設定 Vary: Accept-Encoding、將強 ETag 改為弱 ETag。
+ * 串流回應逐段壓縮，不會整份載入記憶體。
+ */
+public final class ResponseCompression {
+
+    private static final String GZIP = "gzip";
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int GZIP_TRAILER_SIZE = 8;
+    private static final int DEFLATE_BUFFER_SIZE = 8192;
+
+    private final boolean enabled;
+    private final long minResponseSize;
+    private final int level;
+    private final Set<String> mimeTypes;    // 小寫的 type/subtype 或 type/*
+
+    /**
+     * 依路由設定建立
+     *
+     * @param config 路由的壓縮設定
+     */
+    public ResponseCompression(ProxyProperties.Compression config) {
+        this.enabled = config.isEnabled();
+        this.minResponseSize = config.getMinResponseSize() == null ? 0 : config.getMinResponseSize().toBytes();
+        this.level = Math.min(Deflater.BEST_COMPRESSION, Math.max(Deflater.BEST_SPEED, config.getLevel()));
+        this.mimeTypes = new HashSet<>();
+        for (String mimeType : config.getMimeTypes()) {
+            mimeTypes.add(mimeType.trim().toLowerCase(Locale.ENGLISH));
+        }
+    }
+
+    /**
+     * 壓縮完整 body 的回應
+     *
+     * @param response       已過濾 headers 的回應
+     * @param acceptEncoding 前端的 Accept-Encoding，不需壓縮 (例如 HEAD) 時傳入 null
+     * @return 壓縮後的回應，不符合條件時為原本的回應
+     */
+    public ResponseEntity<byte[]> compress(ResponseEntity<byte[]> response, String acceptEncoding) {
+        byte[] body = response.getBody();
+        if (body == null || !shouldCompress(response.getStatusCodeValue(), response.getHeaders(), body.length, acceptEncoding)) {
+            return response;
+        }
+        return ResponseEntity.status(response.getStatusCodeValue())
+                .headers(encodedHeaders(response.getHeaders()))
+                .body(gzip(body, level));
+    }
+
+    /**
+     * 壓縮串流回應，body 逐段壓縮
+     *
+     * @param response       已過濾 headers 的回應
+     * @param contentLength  後端回應的 Content-Length，未知時為 -1
+     * @param acceptEncoding 前端的 Accept-Encoding，不需壓縮 (例如 HEAD) 時傳入 null
+     * @param bufferFactory  建立壓縮後的 DataBuffer
+     * @return 壓縮後的回應，不符合條件時為原本的回應
+     */
+    public ResponseEntity<Flux<DataBuffer>> compress(ResponseEntity<Flux<DataBuffer>> response, long contentLength,
+                                                     String acceptEncoding, DataBufferFactory bufferFactory) {
+        if (response.getBody() == null || contentLength == 0
+                || !shouldCompress(response.getStatusCodeValue(), response.getHeaders(),
+                contentLength < 0 ? Long.MAX_VALUE : contentLength, acceptEncoding)) {
+            return response;
+        }
+        return ResponseEntity.status(response.getStatusCodeValue())
+                .headers(encodedHeaders(response.getHeaders()))
+                .body(gzip(response.getBody(), bufferFactory, level));
+    }
+
+    private boolean shouldCompress(int status, HttpHeaders headers, long length, String acceptEncoding) {
+        if (!enabled || acceptEncoding == null || length < minResponseSize) {
+            return false;
+        }
+        if (status < 200 || status >= 300 || status == 204 || status == 206) {
+            return false;
+        }
+        if (headers.containsKey(HttpHeaders.CONTENT_ENCODING) || headers.containsKey(HttpHeaders.CONTENT_RANGE)) {
+            return false;
+        }
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl != null && cacheControl.toLowerCase(Locale.ENGLISH).contains("no-transform")) {
+            return false;
+        }
+        return isCompressible(headers.getFirst(HttpHeaders.CONTENT_TYPE)) && acceptsGzip(acceptEncoding);
+    }
+
+    /**
+     * Content-Type 是否可壓縮：列在 mime-types (含 type/*) 或以 +json / +xml 結尾
+     */
+    private boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        int end = contentType.indexOf(';');
+        String mimeType = (end < 0 ? contentType : contentType.substring(0, end)).trim().toLowerCase(Locale.ENGLISH);
+        int slash = mimeType.indexOf('/');
+        if (slash < 0) {
+            return false;
+        }
+        return mimeTypes.contains(mimeType)
+                || mimeTypes.contains(mimeType.substring(0, slash + 1) + "*")
+                || mimeType.endsWith("+json") || mimeType.endsWith("+xml");
+    }
+
+    /**
+     * 依 Accept-Encoding (RFC 9110 12.5.3) 判斷前端是否接受 gzip，gzip;q=0 優先於 *
+     *
+     * @param acceptEncoding 前端的 Accept-Encoding
+     * @return 是否接受 gzip
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        double gzipQuality = -1;
+        double anyQuality = -1;
+        int start = 0;
+        while (start < acceptEncoding.length()) {
+            int end = acceptEncoding.indexOf(',', start);
+            if (end < 0) {
+                end = acceptEncoding.length();
+            }
+            String coding = acceptEncoding.substring(start, end);
+            start = end + 1;
+            int semicolon = coding.indexOf(';');
+            String name = (semicolon < 0 ? coding : coding.substring(0, semicolon)).trim();
+            if (name.equalsIgnoreCase(GZIP)) {
+                gzipQuality = quality(coding, semicolon);
+            } else if (name.equals("*")) {
+                anyQuality = quality(coding, semicolon);
+            }
+        }
+        return gzipQuality >= 0 ? gzipQuality > 0 : anyQuality > 0;
+    }
+
+    private static double quality(String coding, int semicolon) {
+        if (semicolon < 0) {
+            return 1;
+        }
+        int q = coding.indexOf("q=", semicolon);
+        if (q < 0) {
+            return 1;
+        }
+        try {
+            return Double.parseDouble(coding.substring(q + 2).trim());
+        } catch (NumberFormatException ex) {
+            return 1;
+        }
+    }
+
+    /**
+     * 壓縮後的 headers：Content-Encoding、Vary 與弱 ETag (壓縮後的內容與後端的 byte 不同)
+     */
+    private static HttpHeaders encodedHeaders(HttpHeaders source) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(source);
+        headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        List<String> vary = new ArrayList<>(source.getVary());
+        if (vary.stream().noneMatch(HttpHeaders.ACCEPT_ENCODING::equalsIgnoreCase)) {
+            vary.add(HttpHeaders.ACCEPT_ENCODING);
+        }
+        headers.setVary(vary);
+        String etag = source.getETag();
+        if (etag != null && !etag.startsWith("W/")) {
+            headers.setETag("W/" + etag);
+        }
+        return headers;
+    }
+
+    /**
+     * 以 gzip 壓縮完整的 body
+     *
+     * @param body  原始內容
+     * @param level 壓縮等級
+     * @return gzip 格式的內容
+     */
+    static byte[] gzip(byte[] body, int level) {
+        GzipEncoder encoder = new GzipEncoder(level);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + GZIP_HEADER.length + GZIP_TRAILER_SIZE);
+            encoder.update(ByteBuffer.wrap(body), out);
+            encoder.finish(out);
+            return out.toByteArray();
+        } finally {
+            encoder.end();
+        }
+    }
+
+    /**
+     * 以 gzip 逐段壓縮串流，每個來源 DataBuffer 壓縮後即釋放；取消或錯誤時釋放 Deflater
+     *
+     * @param body          原始內容串流
+     * @param bufferFactory 建立壓縮後的 DataBuffer
+     * @param level         壓縮等級
+     * @return gzip 格式的內容串流
+     */
+    static Flux<DataBuffer> gzip(Flux<DataBuffer> body, DataBufferFactory bufferFactory, int level) {
+        return Flux.using(() -> new GzipEncoder(level),
+                encoder -> body.<DataBuffer>handle((dataBuffer, sink) -> {
+                            ByteArrayOutputStream out = encoder.output();
+                            try {
+                                encoder.update(dataBuffer.asByteBuffer(), out);
+                            } finally {
+                                DataBufferUtils.release(dataBuffer);
+                            }
+                            if (out.size() > 0) {
+                                sink.next(bufferFactory.wrap(out.toByteArray()));
+                            }
+                        })
+                        .concatWith(Mono.fromCallable(() -> {
+                            ByteArrayOutputStream out = encoder.output();
+                            encoder.finish(out);
+                            return bufferFactory.wrap(out.toByteArray());
+                        })),
+                GzipEncoder::end);
+    }
+
+    /**
+     * gzip 格式 (RFC 1952) 的編碼器：header + raw deflate + CRC32 / 原始長度
+     */
+    private static final class GzipEncoder {
+        private final Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        private final byte[] buffer = new byte[DEFLATE_BUFFER_SIZE];
+        private ByteArrayOutputStream output;       // 串流模式每段共用的輸出
+        private boolean headerWritten;
+
+        private GzipEncoder(int level) {
+            this.deflater = new Deflater(level, true);
+        }
+
+        /**
+         * 取得清空後的共用輸出 (串流模式)
+         */
+        private ByteArrayOutputStream output() {
+            if (output == null) {
+                output = new ByteArrayOutputStream(DEFLATE_BUFFER_SIZE);
+            }
+            output.reset();
+            return output;
+        }
+
+        /**
+         * 壓縮一段內容，輸出 deflater 已產生的資料 (可能為空，資料留在 deflater 內等待後續內容)
+         */
+        private void update(ByteBuffer input, ByteArrayOutputStream out) {
+            writeHeader(out);
+            crc.update(input.duplicate());
+            deflater.setInput(input);
+            while (!deflater.needsInput()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+        }
+
+        /**
+         * 輸出剩餘的壓縮資料與 trailer
+         */
+        private void finish(ByteArrayOutputStream out) {
+            writeHeader(out);
+            deflater.finish();
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            writeIntLE(out, (int) crc.getValue());
+            writeIntLE(out, (int) deflater.getBytesRead());
+        }
+
+        private void writeHeader(ByteArrayOutputStream out) {
+            if (!headerWritten) {
+                out.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+                headerWritten = true;
+            }
+        }
+
+        private static void writeIntLE(ByteArrayOutputStream out, int value) {
+            out.write(value);
+            out.write(value >>> 8);
+            out.write(value >>> 16);
+            out.write(value >>> 24);
+        }
+
+        private void end() {
+            deflater.end();
+        }
+    }
+}
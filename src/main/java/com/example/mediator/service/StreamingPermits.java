@@ -0,0 +1,83 @@
+package com.example.mediator.service;
+
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 串流回應的許可 (斷路器、隔艙、同時請求數) 保留到 response body 結束才釋放
+ * <p>
+ * 串流呼叫取得 response headers 時後端仍在傳送 body，若此時就釋放，長時間的串流不受隔艙與同時請求數上限限制。
+ * 釋放只會執行一次：取得 headers 前失敗或取消、body 結束 / 失敗 / 取消，
+ * 或取得 headers 後、body 尚未訂閱前即被取消 (body 不會再被讀取) 時。
+ */
+final class StreamingPermits {
+
+    /**
+     * 釋放許可
+     */
+    @FunctionalInterface
+    interface Release {
+
+        /**
+         * @param latencyNanos    取得 response headers 的延遲 (未取得時為到失敗或取消為止的時間)
+         * @param headersReceived 是否已取得 response headers
+         * @param error           失敗的例外，成功或取消時為 null
+         */
+        void release(long latencyNanos, boolean headersReceived, Throwable error);
+    }
+
+    private StreamingPermits() {
+    }
+
+    /**
+     * 包裝已取得許可的串流呼叫，於 response body 結束時釋放許可 (呼叫前須已取得許可，每次訂閱呼叫一次)
+     *
+     * @param call    呼叫後端 (串流回應)
+     * @param release 釋放許可
+     * @return body 結束時釋放許可的呼叫
+     */
+    static <T> Mono<ResponseEntity<Flux<T>>> holdUntilBodyEnds(Mono<ResponseEntity<Flux<T>>> call, Release release) {
+        long start = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        AtomicBoolean bodySubscribed = new AtomicBoolean();
+        long[] latency = {-1};      // 取得 headers 的延遲，未取得時為 -1
+        Runnable releaseOnCancel = () -> {
+            if (!bodySubscribed.get() && released.compareAndSet(false, true)) {
+                boolean headersReceived = latency[0] >= 0;
+                release.release(headersReceived ? latency[0] : System.nanoTime() - start, headersReceived, null);
+            }
+        };
+        return call
+                .doOnError(ex -> {
+                    if (released.compareAndSet(false, true)) {
+                        release.release(System.nanoTime() - start, false, ex);
+                    }
+                })
+                .doOnCancel(releaseOnCancel)
+                .doOnSuccess(response -> {
+                    if (response == null && released.compareAndSet(false, true)) {
+                        release.release(System.nanoTime() - start, true, null);
+                    }
+                })
+                .map(response -> {
+                    latency[0] = System.nanoTime() - start;
+                    Flux<T> body = response.getBody() == null ? Flux.empty() : response.getBody();
+                    return ResponseEntity.status(response.getStatusCodeValue())
+                            .headers(response.getHeaders())
+                            .body(body.doOnSubscribe(subscription -> bodySubscribed.set(true))
+                                    .doOnError(ex -> {
+                                        if (released.compareAndSet(false, true)) {
+                                            release.release(latency[0], true, ex);
+                                        }
+                                    })
+                                    .doFinally(signal -> {
+                                        if (released.compareAndSet(false, true)) {
+                                            release.release(latency[0], true, null);
+                                        }
+                                    }));
+                });
+    }
+}
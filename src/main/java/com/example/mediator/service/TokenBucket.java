@@ -0,0 +1,56 @@
+package com.example.mediator.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 不使用鎖的 token bucket
+ * <p>
+ * 以 GCRA (generic cell rate algorithm) 實作：只保存「bucket 補滿的理論時間」一個 AtomicLong，
+ * 取得 token 即將該時間往後推一個 token 的間隔，超出 burst 個間隔則拒絕；每次請求只需一次 CAS，
+ * 不需要背景執行緒補充 token。結果與每秒補充 rate 個、最多累積 burst 個 token 的 bucket 相同。
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;       // 補充一個 token 的時間
+    private final long burstNanos;          // burst 個 token 的時間
+    private final AtomicLong fullAt;        // bucket 補滿的理論時間 (System.nanoTime)
+
+    /**
+     * @param requestsPerSecond 每秒補充的 token 數
+     * @param burst             最多累積的 token 數
+     */
+    TokenBucket(double requestsPerSecond, int burst) {
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / requestsPerSecond));
+        this.burstNanos = intervalNanos * Math.max(1, burst);
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * 取得一個 token
+     *
+     * @param now 目前時間 (System.nanoTime)
+     * @return 0 表示取得，否則為還需等待的 nanoseconds
+     */
+    long tryAcquire(long now) {
+        while (true) {
+            long current = fullAt.get();
+            long next = (current - now < 0 ? now : current) + intervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 閒置多久後 bucket 必定已補滿 (此後捨棄與重新建立的結果相同)
+     *
+     * @return nanoseconds
+     */
+    long refillNanos() {
+        return burstNanos;
+    }
+}
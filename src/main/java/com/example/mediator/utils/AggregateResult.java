@@ -0,0 +1,57 @@
+package com.example.mediator.utils;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 聚合呼叫的結果，以 ApiCall 物件取出對應的回傳值
+ */
+public final class AggregateResult {
+
+    private final Map<ApiCall<?>, Object> values;
+    private final Map<ApiCall<?>, Throwable> errors;
+
+    AggregateResult(Map<ApiCall<?>, Object> values, Map<ApiCall<?>, Throwable> errors) {
+        this.values = Collections.unmodifiableMap(values);
+        this.errors = Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * 取得呼叫結果
+     *
+     * @param call 呼叫
+     * @return 回傳值；被略過 (OMIT) 或後端回應為空時回傳 null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(ApiCall<T> call) {
+        return (T) values.get(call);
+    }
+
+    /**
+     * 結果中是否有此呼叫 (含預設值)
+     *
+     * @param call 呼叫
+     * @return 有結果時回傳 true，被略過時回傳 false
+     */
+    public boolean contains(ApiCall<?> call) {
+        return values.containsKey(call);
+    }
+
+    /**
+     * 取得失敗的呼叫 (FALLBACK / OMIT)
+     *
+     * @return 呼叫與其例外
+     */
+    public Map<ApiCall<?>, Throwable> getErrors() {
+        return errors;
+    }
+
+    /**
+     * 是否有呼叫失敗
+     *
+     * @return 有失敗時回傳 true
+     */
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.mediator.utils;
+
+import com.example.mediator.config.properties.ApiClientProperties;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * 並行執行多個後端呼叫並合併結果
+ * <p>
+ * 呼叫之間同時進行 (以 concurrency 限制同時數量)，整體耗時接近最慢的呼叫而非所有呼叫的總和。
+ * 單一呼叫失敗時依其 {@link ApiCall.FailurePolicy} 處理。
+ *
+ * <pre>
+ * ApiCall&lt;ClntDto&gt; clnt = ApiCall.post(BASE_URL, "/clnt/findById", parameters, ClntDto.class);
+ * ApiCall&lt;List&lt;ClntDto&gt;&gt; family = ApiCall.postList(BASE_URL, "/clnt/findFamily", parameters, ClntDto.class)
+ *         .timeout(Duration.ofSeconds(2))
+ *         .fallback(List.of());
+ * apiAggregator.aggregate(clnt, family).map(result -&gt; ...result.get(clnt)... result.get(family) ...);
+ * </pre>
+ */
+@Component
+public class ApiAggregator {
+
+    private static final Logger logger = Logger.getLogger(ApiAggregator.class.getName());
+
+    private static final Object EMPTY = new Object();   // 後端回應為空時的佔位值
+
+    private final ApiWebClientUtils apiWebClientUtils;
+    private final Duration defaultTimeout;
+    private final int defaultConcurrency;
+
+    public ApiAggregator(ApiWebClientUtils apiWebClientUtils, ApiClientProperties apiClientProperties) {
+        this.apiWebClientUtils = apiWebClientUtils;
+        this.defaultTimeout = apiClientProperties.getTimeout();
+        this.defaultConcurrency = apiClientProperties.getAggregateConcurrency();
+    }
+
+    /**
+     * 以預設並行數 (api-client.aggregate-concurrency) 執行所有呼叫
+     *
+     * @param calls 後端呼叫
+     * @return 聚合結果
+     */
+    public Mono<AggregateResult> aggregate(ApiCall<?>... calls) {
+        return aggregate(defaultConcurrency, Arrays.asList(calls));
+    }
+
+    /**
+     * 以預設並行數 (api-client.aggregate-concurrency) 執行所有呼叫
+     *
+     * @param calls 後端呼叫
+     * @return 聚合結果
+     */
+    public Mono<AggregateResult> aggregate(List<? extends ApiCall<?>> calls) {
+        return aggregate(defaultConcurrency, calls);
+    }
+
+    /**
+     * 並行執行所有呼叫
+     *
+     * @param concurrency 同時進行的呼叫數上限
+     * @param calls       後端呼叫
+     * @return 聚合結果；有 FAIL_FAST 的呼叫失敗時回傳該例外
+     */
+    public Mono<AggregateResult> aggregate(int concurrency, List<? extends ApiCall<?>> calls) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency 必須大於 0");
+        }
+        return Mono.defer(() -> {
+            Map<ApiCall<?>, Object> values = new HashMap<>();
+            Map<ApiCall<?>, Throwable> errors = new HashMap<>();
+
+            return Flux.fromIterable(calls)
+                    .flatMap(call -> execute(call, errors), concurrency)
+                    .doOnNext(entry -> values.put(entry.getKey(), entry.getValue() == EMPTY ? null : entry.getValue()))
+                    .then(Mono.fromCallable(() -> new AggregateResult(values, errors)));
+        });
+    }
+
+    /**
+     * 執行單一呼叫並套用失敗處理
+     */
+    private Mono<Map.Entry<ApiCall<?>, Object>> execute(ApiCall<?> call, Map<ApiCall<?>, Throwable> errors) {
+        return call.execute(apiWebClientUtils, defaultTimeout)
+                .<Object>map(value -> value)
+                .defaultIfEmpty(EMPTY)
+                .onErrorResume(ex -> {
+                    if (call.getFailurePolicy() == ApiCall.FailurePolicy.FAIL_FAST) {
+                        return Mono.error(ex);
+                    }
+                    logger.warning("聚合呼叫失敗 (" + call.getFailurePolicy() + ")：" + call + "，" + ex.getMessage());
+                    synchronized (errors) {
+                        errors.put(call, ex);
+                    }
+                    if (call.getFailurePolicy() == ApiCall.FailurePolicy.FALLBACK) {
+                        Object fallbackValue = call.getFallbackValue();
+                        return Mono.just(fallbackValue != null ? fallbackValue : EMPTY);
+                    }
+                    return Mono.empty();
+                })
+                .map(value -> Map.entry(call, value));
+    }
+}
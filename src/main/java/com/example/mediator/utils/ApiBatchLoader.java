@@ -0,0 +1,141 @@
+package com.example.mediator.utils;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * 單筆查詢的批次合併器 (micro-batching + single-flight)
+ * <p>
+ * 在 window 時間內 (或累積到 maxBatchSize 筆) 收到的單筆查詢會合併成一次批次呼叫，
+ * 再把結果分送回各個呼叫者；同一個 key 若已在查詢中，直接共用同一個結果。
+ * 批次結果中找不到的 key 回傳空的 Mono。
+ *
+ * @param <K> 查詢的 key
+ * @param <V> 查詢結果
+ */
+public class ApiBatchLoader<K, V> {
+
+    private static final Logger logger = Logger.getLogger(ApiBatchLoader.class.getName());
+
+    private final Function<List<K>, Mono<Map<K, V>>> batchFunction;
+    private final Duration window;
+    private final int maxBatchSize;
+    private final Scheduler scheduler;
+
+    private final Map<K, Sinks.One<V>> inFlight = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+    private Map<K, Sinks.One<V>> pending = new LinkedHashMap<>();
+
+    /**
+     * @param batchFunction 批次呼叫，輸入 key 清單，回傳 key 與結果的對應
+     * @param window        收集單筆查詢的時間窗
+     * @param maxBatchSize  單次批次呼叫的 key 數量上限，達到時立即送出
+     */
+    public ApiBatchLoader(Function<List<K>, Mono<Map<K, V>>> batchFunction, Duration window, int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize 必須大於 0");
+        }
+        this.batchFunction = batchFunction;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Schedulers.parallel();
+    }
+
+    /**
+     * 查詢單筆資料，實際呼叫會與其他查詢合併
+     *
+     * @param key 查詢的 key
+     * @return 查詢結果
+     */
+    public Mono<V> load(K key) {
+        return Mono.defer(() -> {
+            Sinks.One<V> existing = inFlight.get(key);
+            if (existing != null) {
+                return existing.asMono();
+            }
+            Sinks.One<V> sink = Sinks.one();
+            existing = inFlight.putIfAbsent(key, sink);
+            if (existing != null) {
+                return existing.asMono();
+            }
+            enqueue(key, sink);
+            return sink.asMono();
+        });
+    }
+
+    /**
+     * 加入目前的批次，第一筆時排程於 window 後送出，滿 maxBatchSize 時立即送出
+     */
+    private void enqueue(K key, Sinks.One<V> sink) {
+        Map<K, Sinks.One<V>> batchToFlush = null;
+        boolean scheduleFlush;
+        synchronized (lock) {
+            pending.put(key, sink);
+            scheduleFlush = pending.size() == 1;
+            if (pending.size() >= maxBatchSize) {
+                batchToFlush = pending;
+                pending = new LinkedHashMap<>();
+                scheduleFlush = false;
+            }
+        }
+        if (batchToFlush != null) {
+            dispatch(batchToFlush);
+        } else if (scheduleFlush) {
+            scheduler.schedule(this::flush, window.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 送出目前累積的批次 (時間窗到期)
+     */
+    private void flush() {
+        Map<K, Sinks.One<V>> batchToFlush;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;     // 已因滿 maxBatchSize 而送出
+            }
+            batchToFlush = pending;
+            pending = new LinkedHashMap<>();
+        }
+        dispatch(batchToFlush);
+    }
+
+    /**
+     * 執行批次呼叫並把結果分送給各個 key
+     */
+    private void dispatch(Map<K, Sinks.One<V>> batch) {
+        List<K> keys = new ArrayList<>(batch.keySet());
+        Mono.defer(() -> batchFunction.apply(keys))
+                .subscribe(results -> batch.forEach((key, sink) -> {
+                    inFlight.remove(key, sink);
+                    V value = results.get(key);
+                    if (value != null) {
+                        sink.tryEmitValue(value);
+                    } else {
+                        sink.tryEmitEmpty();
+                    }
+                }), ex -> {
+                    logger.warning("批次呼叫失敗，筆數：" + keys.size() + "，" + ex.getMessage());
+                    batch.forEach((key, sink) -> {
+                        inFlight.remove(key, sink);
+                        sink.tryEmitError(ex);
+                    });
+                }, () -> batch.forEach((key, sink) -> {
+                    // 批次呼叫回應為空時才會有尚未完成的 sink，已完成的 tryEmitEmpty 不會有作用
+                    inFlight.remove(key, sink);
+                    sink.tryEmitEmpty();
+                }));
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.mediator.utils;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * 聚合呼叫中的單一後端呼叫
+ * <p>
+ * 以靜態方法建立 (post / get / delete 及對應的 List 版本)，可另外設定逾時與失敗處理方式，
+ * 交給 {@link ApiAggregator} 並行執行後，再以同一個 ApiCall 物件從 {@link AggregateResult} 取出結果。
+ *
+ * @param <T> 回傳的資料型別
+ */
+public final class ApiCall<T> {
+
+    /**
+     * 呼叫失敗時的處理方式
+     */
+    public enum FailurePolicy {
+        FAIL_FAST,  // 整個聚合立即失敗，並取消其他尚未完成的呼叫
+        FALLBACK,   // 改用預設值
+        OMIT        // 結果中略過此呼叫
+    }
+
+    private final String description;
+    private final BiFunction<ApiWebClientUtils, Duration, Mono<T>> invoker;
+    private Duration timeout;
+    private FailurePolicy failurePolicy = FailurePolicy.FAIL_FAST;
+    private T fallbackValue;
+
+    private ApiCall(String description, BiFunction<ApiWebClientUtils, Duration, Mono<T>> invoker) {
+        this.description = description;
+        this.invoker = invoker;
+    }
+
+    /**
+     * POST 呼叫，回傳單個DTO對象
+     */
+    public static <T> ApiCall<T> post(String baseUrl, String apiName, Map<String, Object> requestData, Class<T> responseType) {
+        return new ApiCall<>("POST " + baseUrl + apiName,
+                (utils, timeout) -> utils.callPostApiAndGetDtoAsync(baseUrl, apiName, requestData, responseType, timeout));
+    }
+
+    /**
+     * POST 呼叫，回傳 DTO List
+     */
+    public static <T> ApiCall<List<T>> postList(String baseUrl, String apiName, Map<String, Object> requestData, Class<T> responseType) {
+        return new ApiCall<>("POST " + baseUrl + apiName,
+                (utils, timeout) -> utils.callPostApiAndGetDtoListAsync(baseUrl, apiName, requestData, responseType, timeout));
+    }
+
+    /**
+     * GET 呼叫，回傳單個DTO對象
+     */
+    public static <T> ApiCall<T> get(String baseUrl, String apiName, Class<T> responseType) {
+        return new ApiCall<>("GET " + baseUrl + apiName,
+                (utils, timeout) -> utils.callGetApiAndGetDtoAsync(baseUrl, apiName, responseType, timeout));
+    }
+
+    /**
+     * GET 呼叫，回傳 DTO List
+     */
+    public static <T> ApiCall<List<T>> getList(String baseUrl, String apiName, Class<T> responseType) {
+        return new ApiCall<>("GET " + baseUrl + apiName,
+                (utils, timeout) -> utils.callGetApiAndGetDtoListAsync(baseUrl, apiName, responseType, timeout));
+    }
+
+    /**
+     * DELETE 呼叫，回傳單個DTO對象
+     */
+    public static <T> ApiCall<T> delete(String baseUrl, String apiName, Class<T> responseType) {
+        return new ApiCall<>("DELETE " + baseUrl + apiName,
+                (utils, timeout) -> utils.callDeleteApiAndGetDtoAsync(baseUrl, apiName, responseType, timeout));
+    }
+
+    /**
+     * DELETE 呼叫，回傳 DTO List
+     */
+    public static <T> ApiCall<List<T>> deleteList(String baseUrl, String apiName, Class<T> responseType) {
+        return new ApiCall<>("DELETE " + baseUrl + apiName,
+                (utils, timeout) -> utils.callDeleteApiAndGetDtoListAsync(baseUrl, apiName, responseType, timeout));
+    }
+
+    /**
+     * 設定此呼叫的逾時，未設定時使用 api-client.timeout
+     */
+    public ApiCall<T> timeout(Duration timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * 失敗時整個聚合立即失敗 (預設)
+     */
+    public ApiCall<T> failFast() {
+        this.failurePolicy = FailurePolicy.FAIL_FAST;
+        this.fallbackValue = null;
+        return this;
+    }
+
+    /**
+     * 失敗時改用預設值
+     */
+    public ApiCall<T> fallback(T fallbackValue) {
+        this.failurePolicy = FailurePolicy.FALLBACK;
+        this.fallbackValue = fallbackValue;
+        return this;
+    }
+
+    /**
+     * 失敗時於結果中略過此呼叫
+     */
+    public ApiCall<T> omitOnFailure() {
+        this.failurePolicy = FailurePolicy.OMIT;
+        this.fallbackValue = null;
+        return this;
+    }
+
+    /**
+     * 執行呼叫
+     *
+     * @param utils          ApiWebClientUtils
+     * @param defaultTimeout 未設定逾時時使用的逾時
+     * @return 呼叫結果
+     */
+    Mono<T> execute(ApiWebClientUtils utils, Duration defaultTimeout) {
+        return Mono.defer(() -> invoker.apply(utils, timeout != null ? timeout : defaultTimeout));
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public FailurePolicy getFailurePolicy() {
+        return failurePolicy;
+    }
+
+    public T getFallbackValue() {
+        return fallbackValue;
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
@@ -1,25 +1,76 @@
 package com.example.mediator.utils;
+import com.example.mediator.config.properties.ApiClientProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.time.Duration;
 import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * 透過 WebClient 呼叫 API
+ * <p>
+ * 每個呼叫都有回傳 Mono 的非同步版本 (xxxAsync)，Controller 可直接回傳 Mono 釋放 request 執行緒；
+ * 阻塞版本只是在非同步版本上呼叫 block()。
+ * 所有 WebClient 共用一個連線池 (api-client.max-connections)，
+ * 阻塞呼叫在虛擬執行緒模式下的並行數不會被 Reactor Netty 預設的小連線池限制。
+ * <p>
+ * DTO 與 List&lt;DTO&gt; 以每個 DTO 類型快取的 ObjectReader 直接由回應的 DataBuffer 解析 (不會因泛型抹除得到 LinkedHashMap)；
+ * 筆數多的陣列使用 xxxDtoFlux，邊接收邊逐筆解析，不需將整個回應與列表放在記憶體。
  */
 @Component
 public class ApiWebClientUtils {
 
     private final WebClient.Builder webClient;
+    private final ConnectionProvider connectionProvider;
+    private final LoadingCache<String, WebClient> webClientCache;
+    private final Duration defaultTimeout;
+    private final Duration batchWindow;
+    private final int batchMaxSize;
+    private final TypedJsonDecoder jsonDecoder;
 
     @Autowired
-    public ApiWebClientUtils(WebClient.Builder webClientBuilder) {
-        this.webClient = Objects.requireNonNull(webClientBuilder, "WebClient.Builder must not be null");
+    public ApiWebClientUtils(WebClient.Builder webClientBuilder, ApiClientProperties apiClientProperties,
+                             ObjectMapper objectMapper) {
+        Objects.requireNonNull(webClientBuilder, "WebClient.Builder must not be null");
+        this.connectionProvider = ConnectionProvider.builder("api-client")
+                .maxConnections(apiClientProperties.getMaxConnections())
+                .pendingAcquireMaxCount(apiClientProperties.getPendingAcquireMaxCount())
+                .metrics(true)
+                .build();
+        this.webClient = webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)));
+        this.webClientCache = Caffeine.newBuilder()
+                .maximumSize(apiClientProperties.getCacheMaxSize())
+                .expireAfterAccess(apiClientProperties.getCacheExpireAfterAccess())
+                .build(this::buildWebClient);
+        this.defaultTimeout = apiClientProperties.getTimeout();
+        this.batchWindow = apiClientProperties.getBatchWindow();
+        this.batchMaxSize = apiClientProperties.getBatchMaxSize();
+        this.jsonDecoder = new TypedJsonDecoder(objectMapper, (int) apiClientProperties.getMaxInMemorySize().toBytes());
+    }
+
+    /**
+     * 關閉連線池
+     */
+    @PreDestroy
+    public void destroy() {
+        connectionProvider.dispose();
     }
 
     /**
@@ -35,12 +86,60 @@ public class ApiWebClientUtils {
     }
 
     /**
-     * 在每個方法中構建新的 WebClient 實例
+     * 取得後端網域對應的 WebClient，第一次使用時建立並快取重複使用
+     * @param baseUrl   後端網域
+     * @return WebClient
+     */
+    public WebClient getWebClient(String baseUrl) {
+        if (baseUrl == null || baseUrl.trim().isEmpty()) {
+            throw new IllegalArgumentException("後端網域不能為空");
+        }
+        return webClientCache.get(baseUrl);
+    }
+
+    /**
+     * 構建新的 WebClient 實例 (複製 Builder，避免多執行緒共用同一個 Builder)
      * @param baseUrl   後端網域
-     * @return
+     * @return WebClient
      */
     private WebClient buildWebClient(String baseUrl) {
-        return webClient.baseUrl(baseUrl).build();
+        return webClient.clone().baseUrl(baseUrl).build();
+    }
+
+    /**
+     * 以快取的 ObjectReader 將回應解析為單筆 DTO；byte[]、String 等類型交由 WebClient 原本的解碼器
+     * @param response  WebClient 的回應
+     * @param responseType  響應的DTO類型
+     * @return DTO對象的 Mono
+     */
+    private <T> Mono<T> bodyToDto(WebClient.ResponseSpec response, Class<T> responseType) {
+        if (!TypedJsonDecoder.supports(responseType)) {
+            return response.bodyToMono(responseType);
+        }
+        return jsonDecoder.decode(response.bodyToFlux(DataBuffer.class), responseType);
+    }
+
+    /**
+     * 以快取的 ObjectReader (List&lt;DTO&gt;) 將回應的 JSON 陣列解析為 DTO List
+     * @param response  WebClient 的回應
+     * @param responseType  陣列元素的DTO類型
+     * @return DTO列表的 Mono
+     */
+    private <T> Mono<List<T>> bodyToDtoList(WebClient.ResponseSpec response, Class<T> responseType) {
+        return jsonDecoder.decodeList(response.bodyToFlux(DataBuffer.class), responseType);
+    }
+
+    /**
+     * 邊接收邊將回應的 JSON 陣列逐筆解析為 DTO；byte[]、String 等類型交由 WebClient 原本的解碼器
+     * @param response  WebClient 的回應
+     * @param responseType  陣列元素的DTO類型
+     * @return DTO的 Flux
+     */
+    private <T> Flux<T> bodyToDtoFlux(WebClient.ResponseSpec response, Class<T> responseType) {
+        if (!TypedJsonDecoder.supports(responseType)) {
+            return response.bodyToFlux(responseType);
+        }
+        return jsonDecoder.decodeElements(response.bodyToFlux(DataBuffer.class), responseType);
     }
 
     /**
@@ -54,13 +153,42 @@ public class ApiWebClientUtils {
     public <T> List<T> callPostApiAndGetDtoList(String baseUrl, String apiName,
                                                 Map<String, Object> requestData,
                                                 Class<T> responseType) {
-        return buildWebClient(baseUrl).post()
+        return callPostApiAndGetDtoListAsync(baseUrl, apiName, requestData, responseType).block();
+    }
+
+    /**
+     * 非同步呼叫POST API並返回 DTO List，使用預設逾時 (api-client.timeout)
+     * @param baseUrl  後端網域
+     * @param apiName   後端 API 方法
+     * @param requestData   請求輸入參數
+     * @param responseType  響應的DTO類型
+     * @return DTO列表的 Mono
+     */
+    public <T> Mono<List<T>> callPostApiAndGetDtoListAsync(String baseUrl, String apiName,
+                                                           Map<String, Object> requestData,
+                                                           Class<T> responseType) {
+        return callPostApiAndGetDtoListAsync(baseUrl, apiName, requestData, responseType, defaultTimeout);
+    }
+
+    /**
+     * 非同步呼叫POST API並返回 DTO List
+     * @param baseUrl  後端網域
+     * @param apiName   後端 API 方法
+     * @param requestData   請求輸入參數
+     * @param responseType  響應的DTO類型
+     * @param timeout  逾時時間
+     * @return DTO列表的 Mono
+     */
+    public <T> Mono<List<T>> callPostApiAndGetDtoListAsync(String baseUrl, String apiName,
+                                                           Map<String, Object> requestData,
+                                                           Class<T> responseType,
+                                                           Duration timeout) {
+        WebClient.ResponseSpec response = getWebClient(baseUrl).post()
                 .uri(formatApiPath(apiName))
                 .contentType(MediaType.APPLICATION_JSON)
                 .bodyValue(requestData)
-                .retrieve()
-                .bodyToMono(new ParameterizedTypeReference<List<T>>() {})
-                .block(Duration.ofSeconds(10));
+                .retrieve();
+        return bodyToDtoList(response, responseType).timeout(timeout);
     }
 
     /**
@@ -74,13 +202,79 @@ public class ApiWebClientUtils {
     public <T> T callPostApiAndGetDto(String baseUrl, String apiName,
                                       Map<String, Object> requestData,
                                       Class<T> responseType) {
-        return buildWebClient(baseUrl).post()
+        return callPostApiAndGetDtoAsync(baseUrl, apiName, requestData, responseType).block();
+    }
+
+    /**
+     * 非同步呼叫POST API並返回單個DTO對象，使用預設逾時 (api-client.timeout)
+     * @param baseUrl  後端網域
+     * @param apiName   後端 API 方法
+     * @param requestData   請求輸入參數
+     * @param responseType  響應的DTO類型
+     * @return DTO對象的 Mono
+     */
+    public <T> Mono<T> callPostApiAndGetDtoAsync(String baseUrl, String apiName,
+                                                 Map<String, Object> requestData,
+                                                 Class<T> responseType) {
+        return callPostApiAndGetDtoAsync(baseUrl, apiName, requestData, responseType, defaultTimeout);
+    }
+
+    /**
+     * 非同步呼叫POST API並返回單個DTO對象
+     * @param baseUrl  後端網域
+     * @param apiName   後端 API 方法
+     * @param requestData   請求輸入參數
+     * @param responseType  響應的DTO類型
+     * @param timeout  逾時時間
+     * @return DTO對象的 Mono
+     */
+    public <T> Mono<T> callPostApiAndGetDtoAsync(String baseUrl, String apiName,
+                                                 Map<String, Object> requestData,
+                                                 Class<T> responseType,
+                                                 Duration timeout) {
+        WebClient.ResponseSpec response = getWebClient(baseUrl).post()
+                .uri(formatApiPath(apiName))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestData)
+                .retrieve();
+        return bodyToDto(response, responseType).timeout(timeout);
+    }
+
+    /**
+     * 非同步呼叫POST API，回應的 JSON 陣列邊接收邊逐筆解析為 DTO，使用預設逾時 (api-client.timeout)
+     * @param baseUrl  後端網域
+     * @param apiName   後端 API 方法
+     * @param requestData   請求輸入參數
+     * @param responseType  陣列元素的DTO類型
+     * @return DTO的 Flux
+     */
+    public <T> Flux<T> callPostApiAndGetDtoFlux(String baseUrl, String apiName,
+                                                Map<String, Object> requestData,
+                                                Class<T> responseType) {
+        return callPostApiAndGetDtoFlux(baseUrl, apiName, requestData, responseType, defaultTimeout);
+    }
+
+    /**
+     * 非同步呼叫POST API，回應的 JSON 陣列邊接收邊逐筆解析為 DTO
+     * <p>
+     * 下游的需求量 (backpressure) 會回推到後端連線，記憶體只保留解析中的元素。
+     * @param baseUrl  後端網域
+     * @param apiName   後端 API 方法
+     * @param requestData   請求輸入參數
+     * @param responseType  陣列元素的DTO類型
+     * @param timeout  逾時時間 (收到回應與前後兩筆 DTO 之間的間隔)
+     * @return DTO的 Flux
+     */
+    public <T> Flux<T> callPostApiAndGetDtoFlux(String baseUrl, String apiName,
+                                                Map<String, Object> requestData,
+                                                Class<T> responseType,
+                                                Duration timeout) {
+        WebClient.ResponseSpec response = getWebClient(baseUrl).post()
                 .uri(formatApiPath(apiName))
                 .contentType(MediaType.APPLICATION_JSON)
                 .bodyValue(requestData)
-                .retrieve()
-                .bodyToMono(responseType)
-                .block(Duration.ofSeconds(10));
+                .retrieve();
+        return bodyToDtoFlux(response, responseType).timeout(timeout);
     }
 
     /**
@@ -91,11 +285,34 @@ public class ApiWebClientUtils {
      * @return DTO列表
      */
     public <T> List<T> callGetApiAndGetDtoList(String baseUrl, String apiName, Class<T> responseType) {
-        return buildWebClient(baseUrl).get()
+        return callGetApiAndGetDtoListAsync(baseUrl, apiName, responseType).block();
+    }
+
+    /**
+     * 非同步呼叫GET API並返回 DTO List，使用預設逾時 (api-client.timeout)
+     * @param baseUrl  後端網域
+     * @param apiName   後端 API 方法
+     * @param responseType 響應的DTO類型
+     * @return DTO列表的 Mono
+     */
+    public <T> Mono<List<T>> callGetApiAndGetDtoListAsync(String baseUrl, String apiName, Class<T> responseType) {
+        return callGetApiAndGetDtoListAsync(baseUrl, apiName, responseType, defaultTimeout);
+    }
+
+    /**
+     * 非同步呼叫GET API並返回 DTO List
+     * @param baseUrl  後端網域
+     * @param apiName   後端 API 方法
+     * @param responseType 響應的DTO類型
+     * @param timeout  逾時時間
+     * @return DTO列表的 Mono
+     */
+    public <T> Mono<List<T>> callGetApiAndGetDtoListAsync(String baseUrl, String apiName, Class<T> responseType,
+                                                          Duration timeout) {
+        WebClient.ResponseSpec response = getWebClient(baseUrl).get()
                 .uri(formatApiPath(apiName))
-                .retrieve()
-                .bodyToMono(new ParameterizedTypeReference<List<T>>() {})
-                .block(Duration.ofSeconds(10));
+                .retrieve();
+        return bodyToDtoList(response, responseType).timeout(timeout);
     }
 
     /**
@@ -106,12 +323,63 @@ public class ApiWebClientUtils {
      * @return DTO對象
      */
     public <T> T callGetApiAndGetDto(String baseUrl, String apiName, Class<T> responseType) {
-        return buildWebClient(baseUrl).get()
+        return callGetApiAndGetDtoAsync(baseUrl, apiName, responseType).block();
+    }
+
+    /**
+     * 非同步呼叫GET API並返回單個DTO對象，使用預設逾時 (api-client.timeout)
+     * @param baseUrl  後端網域
+     * @param apiName   後端 API 方法
+     * @param responseType 響應的DTO類型
+     * @return DTO對象的 Mono
+     */
+    public <T> Mono<T> callGetApiAndGetDtoAsync(String baseUrl, String apiName, Class<T> responseType) {
+        return callGetApiAndGetDtoAsync(baseUrl, apiName, responseType, defaultTimeout);
+    }
+
+    /**
+     * 非同步呼叫GET API並返回單個DTO對象
+     * @param baseUrl  後端網域
+     * @param apiName   後端 API 方法
+     * @param responseType 響應的DTO類型
+     * @param timeout  逾時時間
+     * @return DTO對象的 Mono
+     */
+    public <T> Mono<T> callGetApiAndGetDtoAsync(String baseUrl, String apiName, Class<T> responseType,
+                                                Duration timeout) {
+        WebClient.ResponseSpec response = getWebClient(baseUrl).get()
                 .uri(formatApiPath(apiName))
-                .retrieve()
-                .bodyToMono(responseType)
-                .block(Duration.ofSeconds(10));
+                .retrieve();
+        return bodyToDto(response, responseType).timeout(timeout);
     }
+
+    /**
+     * 非同步呼叫GET API，回應的 JSON 陣列邊接收邊逐筆解析為 DTO，使用預設逾時 (api-client.timeout)
+     * @param baseUrl  後端網域
+     * @param apiName   後端 API 方法
+     * @param responseType 陣列元素的DTO類型
+     * @return DTO的 Flux
+     */
+    public <T> Flux<T> callGetApiAndGetDtoFlux(String baseUrl, String apiName, Class<T> responseType) {
+        return callGetApiAndGetDtoFlux(baseUrl, apiName, responseType, defaultTimeout);
+    }
+
+    /**
+     * 非同步呼叫GET API，回應的 JSON 陣列邊接收邊逐筆解析為 DTO
+     * @param baseUrl  後端網域
+     * @param apiName   後端 API 方法
+     * @param responseType 陣列元素的DTO類型
+     * @param timeout  逾時時間 (收到回應與前後兩筆 DTO 之間的間隔)
+     * @return DTO的 Flux
+     */
+    public <T> Flux<T> callGetApiAndGetDtoFlux(String baseUrl, String apiName, Class<T> responseType,
+                                               Duration timeout) {
+        WebClient.ResponseSpec response = getWebClient(baseUrl).get()
+                .uri(formatApiPath(apiName))
+                .retrieve();
+        return bodyToDtoFlux(response, responseType).timeout(timeout);
+    }
+
     /**
      * 呼叫DELETE API並返回 DTO List
      * @param baseUrl  後端網域
@@ -120,11 +388,34 @@ public class ApiWebClientUtils {
      * @return DTO列表
      */
     public <T> List<T> callDeleteApiAndGetDtoList(String baseUrl, String apiName, Class<T> responseType) {
-        return buildWebClient(baseUrl).delete()
+        return callDeleteApiAndGetDtoListAsync(baseUrl, apiName, responseType).block();
+    }
+
+    /**
+     * 非同步呼叫DELETE API並返回 DTO List，使用預設逾時 (api-client.timeout)
+     * @param baseUrl  後端網域
+     * @param apiName   後端 API 方法
+     * @param responseType 響應的DTO類型
+     * @return DTO列表的 Mono
+     */
+    public <T> Mono<List<T>> callDeleteApiAndGetDtoListAsync(String baseUrl, String apiName, Class<T> responseType) {
+        return callDeleteApiAndGetDtoListAsync(baseUrl, apiName, responseType, defaultTimeout);
+    }
+
+    /**
+     * 非同步呼叫DELETE API並返回 DTO List
+     * @param baseUrl  後端網域
+     * @param apiName   後端 API 方法
+     * @param responseType 響應的DTO類型
+     * @param timeout  逾時時間
+     * @return DTO列表的 Mono
+     */
+    public <T> Mono<List<T>> callDeleteApiAndGetDtoListAsync(String baseUrl, String apiName, Class<T> responseType,
+                                                             Duration timeout) {
+        WebClient.ResponseSpec response = getWebClient(baseUrl).delete()
                 .uri(formatApiPath(apiName))
-                .retrieve()
-                .bodyToMono(new ParameterizedTypeReference<List<T>>() {})
-                .block(Duration.ofSeconds(10));
+                .retrieve();
+        return bodyToDtoList(response, responseType).timeout(timeout);
     }
 
     /**
@@ -135,10 +426,64 @@ public class ApiWebClientUtils {
      * @return DTO對象
      */
     public <T> T callDeleteApiAndGetDto(String baseUrl, String apiName, Class<T> responseType) {
-        return buildWebClient(baseUrl).delete()
+        return callDeleteApiAndGetDtoAsync(baseUrl, apiName, responseType).block();
+    }
+
+    /**
+     * 非同步呼叫DELETE API並返回單個DTO對象，使用預設逾時 (api-client.timeout)
+     * @param baseUrl  後端網域
+     * @param apiName   後端 API 方法
+     * @param responseType 響應的DTO類型
+     * @return DTO對象的 Mono
+     */
+    public <T> Mono<T> callDeleteApiAndGetDtoAsync(String baseUrl, String apiName, Class<T> responseType) {
+        return callDeleteApiAndGetDtoAsync(baseUrl, apiName, responseType, defaultTimeout);
+    }
+
+    /**
+     * 非同步呼叫DELETE API並返回單個DTO對象
+     * @param baseUrl  後端網域
+     * @param apiName   後端 API 方法
+     * @param responseType 響應的DTO類型
+     * @param timeout  逾時時間
+     * @return DTO對象的 Mono
+     */
+    public <T> Mono<T> callDeleteApiAndGetDtoAsync(String baseUrl, String apiName, Class<T> responseType,
+                                                   Duration timeout) {
+        WebClient.ResponseSpec response = getWebClient(baseUrl).delete()
                 .uri(formatApiPath(apiName))
-                .retrieve()
-                .bodyToMono(responseType)
-                .block(Duration.ofSeconds(10));
+                .retrieve();
+        return bodyToDto(response, responseType).timeout(timeout);
+    }
+
+    /**
+     * 建立批次合併器：單筆查詢合併為一次 POST 批次呼叫 (opt-in)
+     * <p>
+     * 批次呼叫的 request body 為 {keysParameter: [key...]}，回應為 DTO 陣列，
+     * 再以 keyExtractor 將各 DTO 對應回查詢的 key。
+     * @param baseUrl  後端網域
+     * @param apiName   後端批次查詢 API 方法
+     * @param keysParameter  批次查詢 key 清單的參數名稱
+     * @param responseType  響應的DTO類型
+     * @param keyExtractor  從 DTO 取出 key
+     * @return 批次合併器，應建立一次後重複使用
+     */
+    public <K, T> ApiBatchLoader<K, T> createPostBatchLoader(String baseUrl, String apiName,
+                                                             String keysParameter,
+                                                             Class<T> responseType,
+                                                             Function<T, K> keyExtractor) {
+        String apiPath = formatApiPath(apiName);
+        return new ApiBatchLoader<>(keys -> {
+            Map<String, Object> requestData = new HashMap<>();
+            requestData.put(keysParameter, keys);
+            WebClient.ResponseSpec response = getWebClient(baseUrl).post()
+                    .uri(apiPath)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(requestData)
+                    .retrieve();
+            return bodyToDtoFlux(response, responseType)
+                    .timeout(defaultTimeout)
+                    .collectMap(keyExtractor);
+        }, batchWindow, batchMaxSize);
     }
-}
\ No newline at end of file
+}
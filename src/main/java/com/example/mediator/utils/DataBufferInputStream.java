@@ -0,0 +1,105 @@
+package com.example.mediator.utils;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * 將 Flux&lt;DataBuffer&gt; 轉為阻塞式 InputStream
+ * <p>
+ * 讀取時才訂閱來源，並只預取 prefetch 個 DataBuffer，
+ * 讀取端 (Servlet 輸出) 的速度會透過 backpressure 回推到後端，記憶體用量固定。
+ * 注意：不可在 Netty event loop 上讀取。
+ */
+public class DataBufferInputStream extends InputStream {
+
+    private final Flux<DataBuffer> source;
+    private final int prefetch;
+
+    private Stream<DataBuffer> buffers;
+    private Iterator<DataBuffer> iterator;
+    private DataBuffer current;
+    private boolean closed;
+
+    /**
+     * @param source   DataBuffer 來源
+     * @param prefetch 預取的 DataBuffer 數量
+     */
+    public DataBufferInputStream(Flux<DataBuffer> source, int prefetch) {
+        this.source = source;
+        this.prefetch = prefetch;
+    }
+
+    @Override
+    public int read() throws IOException {
+        DataBuffer buffer = currentBuffer();
+        return buffer == null ? -1 : buffer.read() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        DataBuffer buffer = currentBuffer();
+        if (buffer == null) {
+            return -1;
+        }
+        int count = Math.min(length, buffer.readableByteCount());
+        buffer.read(bytes, offset, count);
+        return count;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (current != null) {
+            DataBufferUtils.release(current);
+            current = null;
+        }
+        if (buffers != null) {
+            buffers.close();    // 取消訂閱，未讀取的 DataBuffer 由 doOnDiscard 釋放
+        } else {
+            // 從未讀取時仍需訂閱後立即取消，後端連線才會歸還連線池，串流結束的處理 (doFinally) 也才會執行
+            source.subscribe(DataBufferUtils::release).dispose();
+        }
+    }
+
+    /**
+     * 取得目前可讀取的 DataBuffer，讀完時釋放並向來源要求下一個
+     *
+     * @return 可讀取的 DataBuffer，來源結束時回傳 null
+     */
+    private DataBuffer currentBuffer() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        try {
+            while (current == null || current.readableByteCount() == 0) {
+                if (current != null) {
+                    DataBufferUtils.release(current);
+                    current = null;
+                }
+                if (iterator == null) {
+                    buffers = source.doOnDiscard(DataBuffer.class, DataBufferUtils::release).toStream(prefetch);
+                    iterator = buffers.iterator();
+                }
+                if (!iterator.hasNext()) {
+                    return null;
+                }
+                current = iterator.next();
+            }
+            return current;
+        } catch (RuntimeException ex) {
+            throw new IOException("讀取後端串流失敗", ex);
+        }
+    }
+}
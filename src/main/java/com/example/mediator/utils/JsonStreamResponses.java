@@ -0,0 +1,283 @@
+package com.example.mediator.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.reactive.context.ReactiveWebApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 將 DTO 的 Flux 串流寫出為 JSON 陣列 (application/json) 或 NDJSON (application/x-ndjson)
+ * <p>
+ * 每筆 DTO 收到後立即編碼寫出，不需先收集成 List，記憶體用量與筆數無關，前端也能較早收到第一筆。
+ * 前端寫出的速度會透過 backpressure 回推到後端讀取：Servlet 模式回傳 InputStreamResource，
+ * 由 Servlet 執行緒讀取並寫出 (與 streaming 代理相同)；WebFlux 模式 (edge) 回傳 {@link StreamBody}，由 {@link #bodyWriter()} 直接寫出。
+ * 開始寫出後才發生的錯誤無法改變狀態碼，連線會中斷，前端收到不完整的內容。
+ *
+ * <pre>
+ * Flux&lt;ClntDto&gt; clnts = apiWebClientUtils.callPostApiAndGetDtoFlux(BASE_URL, "/clnt/findAll", parameters, ClntDto.class);
+ * return jsonStreamResponses.jsonArray(clnts, ClntDto.class);
+ * </pre>
+ */
+@Component
+public class JsonStreamResponses {
+
+    private static final int STREAM_PREFETCH = 256;     // Servlet 模式預取的 DTO 數量 (每筆一個 DataBuffer)
+    private static final int INITIAL_BUFFER_SIZE = 256; // 第一筆 DTO 的 DataBuffer 大小，之後依前一筆的大小
+
+    private final ObjectMapper objectMapper;
+    private final boolean reactive;
+    private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public JsonStreamResponses(ObjectMapper objectMapper, ApplicationContext applicationContext) {
+        this(objectMapper, applicationContext instanceof ReactiveWebApplicationContext);
+    }
+
+    /**
+     * @param objectMapper Jackson ObjectMapper
+     * @param reactive     是否為 WebFlux 模式
+     */
+    public JsonStreamResponses(ObjectMapper objectMapper, boolean reactive) {
+        this.objectMapper = objectMapper;
+        this.reactive = reactive;
+    }
+
+    /**
+     * 串流寫出為 JSON 陣列
+     *
+     * @param elements    DTO 的 Flux
+     * @param elementType DTO 類型
+     * @return Controller 可直接回傳的 ResponseEntity
+     */
+    public <T> ResponseEntity<?> jsonArray(Flux<T> elements, Class<T> elementType) {
+        return response(MediaType.APPLICATION_JSON, encodeJsonArray(elements, elementType));
+    }
+
+    /**
+     * 串流寫出為 NDJSON (每行一筆 DTO)
+     *
+     * @param elements    DTO 的 Flux
+     * @param elementType DTO 類型
+     * @return Controller 可直接回傳的 ResponseEntity
+     */
+    public <T> ResponseEntity<?> ndjson(Flux<T> elements, Class<T> elementType) {
+        return response(MediaType.APPLICATION_NDJSON, encodeNdjson(elements, elementType));
+    }
+
+    /**
+     * 編碼為 JSON 陣列，每筆 DTO 一個 DataBuffer (第一筆前加上 [，筆與筆之間以逗號分隔)
+     *
+     * @param elements    DTO 的 Flux
+     * @param elementType DTO 類型
+     * @return DataBuffer 的 Flux
+     */
+    public <T> Flux<DataBuffer> encodeJsonArray(Flux<T> elements, Class<T> elementType) {
+        return encode(elements, writerFor(elementType), false);
+    }
+
+    /**
+     * 編碼為 NDJSON，每筆 DTO 一個 DataBuffer (以換行結尾)
+     *
+     * @param elements    DTO 的 Flux
+     * @param elementType DTO 類型
+     * @return DataBuffer 的 Flux
+     */
+    public <T> Flux<DataBuffer> encodeNdjson(Flux<T> elements, Class<T> elementType) {
+        return encode(elements, writerFor(elementType).withRootValueSeparator((String) null), true);
+    }
+
+    private ObjectWriter writerFor(Class<?> elementType) {
+        return writers.computeIfAbsent(elementType, objectMapper::writerFor);
+    }
+
+    private ResponseEntity<?> response(MediaType contentType, Flux<DataBuffer> body) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().contentType(contentType);
+        if (reactive) {
+            return builder.body(new StreamBody(body));
+        }
+        return builder.body(new InputStreamResource(new DataBufferInputStream(body, STREAM_PREFETCH)));
+    }
+
+    /**
+     * WebFlux 模式寫出 {@link StreamBody} 的 HttpMessageWriter (須註冊於 WebFlux 的 codecs)
+     */
+    public static HttpMessageWriter<StreamBody> bodyWriter() {
+        return new StreamBodyWriter();
+    }
+
+    private static Flux<DataBuffer> encode(Flux<?> elements, ObjectWriter writer, boolean ndjson) {
+        return Flux.defer(() -> {
+            ElementEncoder encoder = new ElementEncoder(writer, ndjson);
+            return elements.map(encoder::write)
+                    .concatWith(Mono.fromCallable(encoder::end))
+                    .doFinally(signal -> encoder.close());
+        });
+    }
+
+    /**
+     * 以同一個 JsonGenerator 逐筆編碼 (每次訂閱一個)
+     * <p>
+     * generator 寫入的目標為目前這筆的 DataBuffer，每筆寫完即交給下游；取消時可能由其他執行緒呼叫 {@link #close()}，因此互斥。
+     */
+    private static final class ElementEncoder extends OutputStream {
+
+        private final DataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+        private final ObjectWriter writer;
+        private final boolean ndjson;
+        private final JsonGenerator generator;
+        private DataBuffer current;
+        private int lastSize = INITIAL_BUFFER_SIZE;
+        private boolean started;
+        private boolean closed;
+
+        ElementEncoder(ObjectWriter writer, boolean ndjson) {
+            this.writer = writer;
+            this.ndjson = ndjson;
+            try {
+                this.generator = writer.createGenerator(this);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        /**
+         * 編碼一筆 DTO
+         */
+        synchronized DataBuffer write(Object value) {
+            if (closed) {
+                throw new IllegalStateException("串流已結束");
+            }
+            try {
+                if (!started) {
+                    started = true;
+                    if (!ndjson) {
+                        generator.writeStartArray();
+                    }
+                }
+                writer.writeValue(generator, value);
+                if (ndjson) {
+                    generator.writeRaw('\n');
+                }
+                generator.flush();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return take();
+        }
+
+        /**
+         * 結束：JSON 陣列寫出 ] (沒有任何一筆時為 [])，NDJSON 沒有結尾
+         */
+        synchronized DataBuffer end() throws IOException {
+            if (ndjson || closed) {
+                return null;
+            }
+            if (!started) {
+                started = true;
+                generator.writeStartArray();
+            }
+            generator.writeEndArray();
+            generator.flush();
+            return take();
+        }
+
+        private DataBuffer take() {
+            DataBuffer buffer = current != null ? current : bufferFactory.allocateBuffer(0);
+            current = null;
+            lastSize = Math.max(16, buffer.readableByteCount());
+            return buffer;
+        }
+
+        @Override
+        public void write(int b) {
+            target().write((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            target().write(bytes, offset, length);
+        }
+
+        private DataBuffer target() {
+            if (current == null) {
+                current = bufferFactory.allocateBuffer(lastSize);
+            }
+            return current;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                generator.close();
+            } catch (IOException ex) {
+                // 目標為記憶體中的 DataBuffer，不會發生
+            }
+            current = null;
+        }
+    }
+
+    /**
+     * WebFlux 模式的 body
+     * <p>
+     * Controller 宣告的回傳型別為 ResponseEntity&lt;?&gt; 時，WebFlux 無法得知 Flux 的元素型別，會交給 Jackson 將 DataBuffer 當成物件編碼，
+     * 因此包裝為此類型，由 {@link #bodyWriter()} 直接寫出。
+     */
+    public static final class StreamBody {
+
+        private final Flux<DataBuffer> buffers;
+
+        StreamBody(Flux<DataBuffer> buffers) {
+            this.buffers = buffers;
+        }
+
+        public Flux<DataBuffer> getBuffers() {
+            return buffers;
+        }
+    }
+
+    private static final class StreamBodyWriter implements HttpMessageWriter<StreamBody> {
+
+        @Override
+        public List<MediaType> getWritableMediaTypes() {
+            return List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON);
+        }
+
+        @Override
+        public boolean canWrite(ResolvableType elementType, @Nullable MediaType mediaType) {
+            return StreamBody.class.isAssignableFrom(elementType.toClass());
+        }
+
+        @Override
+        public Mono<Void> write(Publisher<? extends StreamBody> inputStream, ResolvableType elementType,
+                                @Nullable MediaType mediaType, ReactiveHttpOutputMessage message, Map<String, Object> hints) {
+            return Mono.from(inputStream).flatMap(body -> message.writeWith(body.getBuffers()));
+        }
+    }
+}
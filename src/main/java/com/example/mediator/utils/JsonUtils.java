@@ -0,0 +1,49 @@
+package com.example.mediator.utils;
+
+/**
+ * 手動組 JSON 字串時使用的工具 (錯誤回應、access log 等不需要經過 ObjectMapper 的小型 JSON)
+ */
+public final class JsonUtils {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private JsonUtils() {
+    }
+
+    /**
+     * 跳脫 JSON 字串中的特殊字元
+     *
+     * @param value 原始字串
+     * @return 可直接放入 JSON 字串的內容，null 時為空字串
+     */
+    public static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return appendEscaped(new StringBuilder(value.length() + 16), value).toString();
+    }
+
+    /**
+     * 將跳脫後的字串附加到 StringBuilder
+     *
+     * @param sb    目標 StringBuilder
+     * @param value 原始字串，null 時不附加任何內容
+     * @return 同一個 StringBuilder
+     */
+    public static StringBuilder appendEscaped(StringBuilder sb, String value) {
+        if (value == null) {
+            return sb;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb;
+    }
+}
@@ -0,0 +1,382 @@
+package com.example.mediator.utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 將後端回應的 JSON 由 DataBuffer 直接反序列化為指定的 DTO 類型
+ * <p>
+ * 每個 DTO 類型的 JavaType 與 ObjectReader (單筆與 List&lt;DTO&gt;) 第一次使用時建立並快取；
+ * 回應的 DataBuffer 合併後 (Reactor Netty 為 CompositeByteBuf，不複製內容) 以 InputStream 交給 Jackson 解析，
+ * 不經過 String 或 byte[]。合併的大小上限為 api-client.max-in-memory-size，大型陣列應改用逐筆解析的 Flux。
+ * <p>
+ * 逐筆解析 ({@link #decodeElements}) 先掃描 bytes 找出最外層陣列中已完整收到的元素 (追蹤括號深度與字串)，
+ * 再以同一個 JsonParser 直接由 DataBuffer 讀取解析，每個元素只經過一次 Jackson 解析，不另外建立 TokenBuffer 或複製 bytes。
+ */
+public final class TypedJsonDecoder {
+
+    private final ObjectMapper objectMapper;
+    private final int maxInMemorySize;
+    private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, ObjectReader> listReaders = new ConcurrentHashMap<>();
+
+    /**
+     * @param objectMapper    Jackson ObjectMapper
+     * @param maxInMemorySize 合併回應的大小上限 (bytes)，-1 表示不限制
+     */
+    public TypedJsonDecoder(ObjectMapper objectMapper, int maxInMemorySize) {
+        this.objectMapper = objectMapper;
+        this.maxInMemorySize = maxInMemorySize;
+    }
+
+    /**
+     * 是否以 JSON 解析此類型；byte[]、String 等類型應交由 WebClient 原本的解碼器 (回傳原始內容)
+     *
+     * @param type 回應類型
+     * @return 是否以 JSON 解析
+     */
+    public static boolean supports(Class<?> type) {
+        return type != byte[].class && type != String.class && type != Void.class
+                && !ByteBuffer.class.isAssignableFrom(type)
+                && !DataBuffer.class.isAssignableFrom(type)
+                && !Resource.class.isAssignableFrom(type);
+    }
+
+    /**
+     * 解析為單筆 DTO
+     *
+     * @param body 回應 body
+     * @param type DTO 類型
+     * @return DTO 的 Mono，body 為空或 JSON null 時為空的 Mono
+     */
+    public <T> Mono<T> decode(Flux<DataBuffer> body, Class<T> type) {
+        return read(body, readers.computeIfAbsent(type, objectMapper::readerFor));
+    }
+
+    /**
+     * 解析 JSON 陣列為 List&lt;DTO&gt;
+     *
+     * @param body        回應 body
+     * @param elementType 陣列元素的 DTO 類型
+     * @return DTO 列表的 Mono，body 為空或 JSON null 時為空的 Mono
+     */
+    public <T> Mono<List<T>> decodeList(Flux<DataBuffer> body, Class<T> elementType) {
+        return read(body, listReaders.computeIfAbsent(elementType, this::listReader));
+    }
+
+    /**
+     * 邊接收邊逐筆解析 JSON 陣列的元素；回應不是陣列時視為只有一個元素
+     * <p>
+     * 每個 DataBuffer 中結束的元素一次交給下游，未結束的元素保留其 DataBuffer 到收齊為止，單一元素的大小上限為 max-in-memory-size。
+     *
+     * @param body        回應 body
+     * @param elementType 陣列元素的 DTO 類型
+     * @return DTO 的 Flux，JSON null 元素略過
+     */
+    public <T> Flux<T> decodeElements(Flux<DataBuffer> body, Class<T> elementType) {
+        ObjectReader reader = readers.computeIfAbsent(elementType, objectMapper::readerFor);
+        return Flux.defer(() -> {
+                    ArrayElementReader<T> elements = new ArrayElementReader<>(reader, maxInMemorySize);
+                    return body.concatMapIterable(elements::split)
+                            .concatWith(Flux.defer(() -> Flux.fromIterable(elements.finish())))
+                            .doFinally(signal -> elements.close());
+                })
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    private ObjectReader listReader(Class<?> elementType) {
+        JavaType listType = objectMapper.getTypeFactory().constructCollectionType(List.class, elementType);
+        return objectMapper.readerFor(listType);
+    }
+
+    private <T> Mono<T> read(Flux<DataBuffer> body, ObjectReader reader) {
+        return DataBufferUtils.join(body, maxInMemorySize).handle((buffer, sink) -> {
+            T value;
+            try (InputStream in = buffer.asInputStream(true)) {
+                value = reader.readValue(in);
+            } catch (IOException ex) {
+                sink.error(decodingError(ex));
+                return;
+            }
+            if (value != null) {
+                sink.next(value);
+            }
+        });
+    }
+
+    private static DecodingException decodingError(IOException ex) {
+        return new DecodingException("JSON decoding error: " + ex.getMessage(), ex);
+    }
+
+    /**
+     * 逐筆解析最外層 JSON 陣列的元素 (每次訂閱一個)
+     * <p>
+     * 收到的 DataBuffer 先掃描 bytes (追蹤括號深度與字串) 找出完整的元素，再排入佇列，
+     * 整個回應只建立一個 JsonParser，以本身 (InputStream) 為來源，只在元素完整時解析，因此不會讀到尚未收到的資料；
+     * DataBuffer 被 parser 讀完即釋放。下游取消時可能由其他執行緒呼叫 {@link #close()}，因此 split / finish / close 互斥。
+     */
+    private static final class ArrayElementReader<T> extends InputStream {
+
+        private static final int BEFORE_ROOT = 0;   // 尚未讀到第一個非空白字元
+        private static final int IN_ARRAY = 1;      // 最外層陣列中
+        private static final int ROOT_VALUE = 2;    // 最外層不是陣列，整個內容為一個元素
+        private static final int DONE = 3;          // 最外層陣列已結束
+
+        private final ObjectReader reader;
+        private final int maxElementSize;
+        private final Deque<DataBuffer> buffers = new ArrayDeque<>();  // 已掃描、parser 尚未讀完的 DataBuffer
+        private JsonParser parser;
+        private int state = BEFORE_ROOT;
+        private int depth;
+        private boolean inString;
+        private boolean escape;
+        private boolean inElement;
+        private int elementSize;                    // 目前未完成元素已收到的 bytes
+        private boolean closed;
+
+        ArrayElementReader(ObjectReader reader, int maxElementSize) {
+            this.reader = reader;
+            this.maxElementSize = maxElementSize;
+        }
+
+        /**
+         * 掃描一個 DataBuffer，解析其中結束的元素
+         */
+        synchronized List<T> split(DataBuffer buffer) {
+            if (closed || state == DONE) {
+                DataBufferUtils.release(buffer);
+                return Collections.emptyList();
+            }
+            buffers.add(buffer);
+            ByteBuffer bytes = buffer.asByteBuffer();
+            int completed = scan(bytes, bytes.position(), bytes.limit());
+            if (completed == 0) {
+                return Collections.emptyList();
+            }
+            List<T> elements = new ArrayList<>(completed);
+            for (int i = 0; i < completed; i++) {
+                T value = readElement();
+                if (value != null) {
+                    elements.add(value);
+                }
+            }
+            return elements;
+        }
+
+        /**
+         * 回應結束：最外層不是陣列時解析整個內容
+         */
+        synchronized List<T> finish() {
+            try {
+                if (state == IN_ARRAY) {
+                    throw new DecodingException("JSON decoding error: 回應的 JSON 陣列不完整");
+                }
+                if (state != ROOT_VALUE) {
+                    return Collections.emptyList();
+                }
+                T value = readElement();
+                return value == null ? Collections.emptyList() : Collections.singletonList(value);
+            } finally {
+                close();
+            }
+        }
+
+        /**
+         * 掃描 bytes，回傳其中結束的元素數
+         */
+        private int scan(ByteBuffer bytes, int start, int end) {
+            int i = start;
+            if (state == BEFORE_ROOT) {
+                while (i < end && isWhitespace(bytes.get(i))) {
+                    i++;
+                }
+                if (i == end) {
+                    return 0;
+                }
+                if (bytes.get(i) == '[') {
+                    state = IN_ARRAY;
+                    depth = 1;
+                    i++;
+                } else {
+                    state = ROOT_VALUE;
+                }
+            }
+            if (state == ROOT_VALUE) {
+                elementSize += end - i;
+                checkLimit(elementSize);
+                return 0;
+            }
+
+            // 狀態放在區域變數，迴圈內不讀寫欄位
+            int completed = 0;
+            int depth = this.depth;
+            boolean inString = this.inString;
+            boolean escape = this.escape;
+            boolean inElement = this.inElement;
+            int elementStart = start;
+            while (i < end) {
+                byte b = bytes.get(i++);
+                if (inString) {
+                    if (escape) {
+                        escape = false;
+                    } else if (b == '\\') {
+                        escape = true;
+                    } else if (b == '"') {
+                        inString = false;
+                    }
+                } else if (b == '{' || b == '[' || b == '"') {
+                    if (!inElement) {
+                        inElement = true;
+                        elementStart = i - 1;
+                    }
+                    if (b == '"') {
+                        inString = true;
+                    } else {
+                        depth++;
+                    }
+                } else if (b == '}' || b == ']') {
+                    depth--;
+                    if (depth == 1) {
+                        completed += endElement(i - elementStart);
+                        inElement = false;
+                    } else if (depth == 0) {
+                        if (inElement) {
+                            completed += endElement(i - 1 - elementStart);
+                            inElement = false;
+                        }
+                        state = DONE;
+                        break;
+                    }
+                } else if (b == ',') {
+                    if (depth == 1 && inElement) {
+                        completed += endElement(i - 1 - elementStart);
+                        inElement = false;
+                    }
+                } else if (!inElement && !isWhitespace(b)) {
+                    inElement = true;
+                    elementStart = i - 1;
+                }
+            }
+            this.depth = depth;
+            this.inString = inString;
+            this.escape = escape;
+            this.inElement = inElement;
+            if (inElement) {
+                elementSize += end - elementStart;
+                checkLimit(elementSize);
+            }
+            return completed;
+        }
+
+        /**
+         * 元素結束
+         *
+         * @param length 元素在本段 DataBuffer 中的長度
+         * @return 1 (結束的元素數)
+         */
+        private int endElement(int length) {
+            checkLimit(elementSize + length);
+            elementSize = 0;
+            return 1;
+        }
+
+        private void checkLimit(int size) {
+            if (maxElementSize >= 0 && size > maxElementSize) {
+                throw new DataBufferLimitException("Exceeded limit on max bytes per JSON object: " + maxElementSize);
+            }
+        }
+
+        /**
+         * 以 parser 解析下一個元素 (呼叫前已確認元素完整收到)
+         */
+        private T readElement() {
+            try {
+                if (parser == null) {
+                    parser = reader.getFactory().createParser(this);
+                    if (state != ROOT_VALUE) {
+                        parser.nextToken();         // 最外層陣列的 [
+                    }
+                }
+                parser.nextToken();
+                return reader.readValue(parser);
+            } catch (IOException ex) {
+                throw decodingError(ex);
+            }
+        }
+
+        @Override
+        public int read() {
+            DataBuffer buffer = currentBuffer();
+            return buffer == null ? -1 : buffer.read() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            DataBuffer buffer = currentBuffer();
+            if (buffer == null) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.readableByteCount());
+            buffer.read(bytes, offset, count);
+            return count;
+        }
+
+        /**
+         * 佇列中第一個還有資料的 DataBuffer，讀完的即釋放
+         */
+        private DataBuffer currentBuffer() {
+            DataBuffer buffer = buffers.peek();
+            while (buffer != null && buffer.readableByteCount() == 0) {
+                DataBufferUtils.release(buffers.poll());
+                buffer = buffers.peek();
+            }
+            return buffer;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (parser != null) {
+                try {
+                    parser.close();
+                } catch (IOException ex) {
+                    // 來源為記憶體中的 DataBuffer，不會發生
+                }
+            }
+            DataBuffer buffer;
+            while ((buffer = buffers.poll()) != null) {
+                DataBufferUtils.release(buffer);
+            }
+        }
+
+        private static boolean isWhitespace(byte b) {
+            return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+        }
+    }
+}
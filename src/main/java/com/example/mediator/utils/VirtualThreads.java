@@ -0,0 +1,51 @@
+package com.example.mediator.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 虛擬執行緒 (JDK 21 以上) 的工具
+ * <p>
+ * 專案仍以 Java 11 編譯，因此以反射呼叫 Executors.newVirtualThreadPerTaskExecutor()；
+ * 在舊版 JDK 上執行時 {@link #isSupported()} 回傳 false。
+ */
+public final class VirtualThreads {
+
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findFactory();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return 目前的 JDK 是否支援虛擬執行緒
+     */
+    public static boolean isSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * 建立每個工作一條虛擬執行緒的 ExecutorService
+     *
+     * @return ExecutorService
+     * @throws IllegalStateException 目前的 JDK 不支援虛擬執行緒
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!isSupported()) {
+            throw new IllegalStateException("虛擬執行緒需要 JDK 21 以上，目前為 " + System.getProperty("java.version"));
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("無法建立虛擬執行緒", e);
+        }
+    }
+
+    private static Method findFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.mediator.service;
+
+import com.example.mediator.config.properties.ProxyProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ResponseCompression 的 gzip 格式 (header、deflate、CRC32 / 長度 trailer) 與壓縮條件的測試
+ */
+class ResponseCompressionTest {
+
+    private static final DefaultDataBufferFactory BUFFER_FACTORY = new DefaultDataBufferFactory();
+
+    @Test
+    void gzipRoundTrip() {
+        for (byte[] body : samples()) {
+            assertThat(gunzip(ResponseCompression.gzip(body, 1))).isEqualTo(body);
+            assertThat(gunzip(ResponseCompression.gzip(body, 9))).isEqualTo(body);
+        }
+    }
+
+    @Test
+    void streamingGzipRoundTrip() {
+        for (byte[] body : samples()) {
+            for (int chunkSize : new int[]{1, 7, 8192, 100_000}) {
+                byte[] gzipped = join(ResponseCompression.gzip(chunks(body, chunkSize), BUFFER_FACTORY, 1));
+
+                assertThat(gunzip(gzipped)).as("%d bytes in %d byte chunks", body.length, chunkSize).isEqualTo(body);
+            }
+        }
+    }
+
+    @Test
+    void streamingGzipOfEmptyBodyIsValid() {
+        assertThat(gunzip(join(ResponseCompression.gzip(Flux.empty(), BUFFER_FACTORY, 1)))).isEmpty();
+    }
+
+    @Test
+    void compressesAcceptedResponse() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setContentLength(json().length);
+        headers.setETag("\"v1\"");
+        headers.setVary(List.of(HttpHeaders.ACCEPT_LANGUAGE));
+
+        ResponseEntity<byte[]> compressed = compression(true).compress(
+                ResponseEntity.ok().headers(headers).body(json()), "br, gzip;q=0.8");
+
+        assertThat(compressed.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(compressed.getHeaders().containsKey(HttpHeaders.CONTENT_LENGTH)).isFalse();
+        assertThat(compressed.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT_LANGUAGE, HttpHeaders.ACCEPT_ENCODING);
+        assertThat(compressed.getHeaders().getETag()).isEqualTo("W/\"v1\"");
+        assertThat(gunzip(compressed.getBody())).isEqualTo(json());
+    }
+
+    @Test
+    void compressesStreamingResponse() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        ResponseEntity<Flux<DataBuffer>> compressed = compression(true).compress(
+                ResponseEntity.ok().headers(headers).body(chunks(json(), 1000)), -1, "gzip", BUFFER_FACTORY);
+
+        assertThat(compressed.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(gunzip(join(compressed.getBody()))).isEqualTo(json());
+    }
+
+    @Test
+    void skipsResponsesThatShouldNotBeCompressed() {
+        ResponseCompression compression = compression(true);
+        HttpHeaders json = new HttpHeaders();
+        json.setContentType(MediaType.APPLICATION_JSON);
+        HttpHeaders encoded = new HttpHeaders();
+        encoded.putAll(json);
+        encoded.set(HttpHeaders.CONTENT_ENCODING, "br");
+        HttpHeaders noTransform = new HttpHeaders();
+        noTransform.putAll(json);
+        noTransform.setCacheControl("public, no-transform");
+        HttpHeaders image = new HttpHeaders();
+        image.setContentType(MediaType.IMAGE_PNG);
+
+        assertNotCompressed(compression, ResponseEntity.ok().headers(json).body(json()), null);
+        assertNotCompressed(compression, ResponseEntity.ok().headers(json).body(json()), "br");
+        assertNotCompressed(compression, ResponseEntity.ok().headers(json).body(json()), "gzip;q=0, *");
+        assertNotCompressed(compression, ResponseEntity.ok().headers(json).body("{}".getBytes(StandardCharsets.UTF_8)), "gzip");
+        assertNotCompressed(compression, ResponseEntity.status(500).headers(json).body(json()), "gzip");
+        assertNotCompressed(compression, ResponseEntity.ok().headers(encoded).body(json()), "gzip");
+        assertNotCompressed(compression, ResponseEntity.ok().headers(noTransform).body(json()), "gzip");
+        assertNotCompressed(compression, ResponseEntity.ok().headers(image).body(json()), "gzip");
+        assertNotCompressed(compression(false), ResponseEntity.ok().headers(json).body(json()), "gzip");
+    }
+
+    @Test
+    void parsesAcceptEncoding() {
+        assertThat(ResponseCompression.acceptsGzip("gzip")).isTrue();
+        assertThat(ResponseCompression.acceptsGzip("deflate, GZIP;q=0.5")).isTrue();
+        assertThat(ResponseCompression.acceptsGzip("*")).isTrue();
+        assertThat(ResponseCompression.acceptsGzip("br")).isFalse();
+        assertThat(ResponseCompression.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(ResponseCompression.acceptsGzip("gzip;q=0, *")).isFalse();
+        assertThat(ResponseCompression.acceptsGzip("*;q=0, gzip")).isTrue();
+        assertThat(ResponseCompression.acceptsGzip("")).isFalse();
+    }
+
+    private static void assertNotCompressed(ResponseCompression compression, ResponseEntity<byte[]> response, String acceptEncoding) {
+        assertThat(compression.compress(response, acceptEncoding)).as("Accept-Encoding: %s", acceptEncoding).isSameAs(response);
+    }
+
+    private static ResponseCompression compression(boolean enabled) {
+        ProxyProperties.Compression config = new ProxyProperties.Compression();
+        config.setEnabled(enabled);
+        config.setMinResponseSize(DataSize.ofBytes(64));
+        return new ResponseCompression(config);
+    }
+
+    /**
+     * 空白、重複性高 (壓縮率高) 與亂數 (幾乎無法壓縮，deflate 輸出大於緩衝區) 的內容
+     */
+    private static List<byte[]> samples() {
+        byte[] random = new byte[100_000];
+        new Random(42).nextBytes(random);
+        return Arrays.asList(new byte[0], "a".getBytes(StandardCharsets.UTF_8), json(), random);
+    }
+
+    private static byte[] json() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"clientId\":\"").append(i).append("\",\"names\":\"客戶").append(i).append("\"}");
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Flux<DataBuffer> chunks(byte[] body, int chunkSize) {
+        return Flux.range(0, (body.length + chunkSize - 1) / chunkSize)
+                .map(i -> BUFFER_FACTORY.wrap(Arrays.copyOfRange(body, i * chunkSize, Math.min(body.length, (i + 1) * chunkSize))));
+    }
+
+    private static byte[] join(Flux<DataBuffer> body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.doOnNext(buffer -> {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            out.write(bytes, 0, bytes.length);
+            DataBufferUtils.release(buffer);
+        }).blockLast();
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] gzipped) {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            return in.readAllBytes();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
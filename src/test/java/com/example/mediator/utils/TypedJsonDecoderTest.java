@@ -0,0 +1,156 @@
+package com.example.mediator.utils;
+
+import com.example.mediator.dto.ClntDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * TypedJsonDecoder 逐筆解析 (ArrayElementReader) 的測試：任意位置切開的 DataBuffer、不完整的陣列與單一元素的大小上限
+ */
+class TypedJsonDecoderTest {
+
+    private static final String ARRAY = "[ {\"clientId\":\"1\",\"names\":\"a, [b] {c}\"},\n"
+            + "{\"clientId\":\"2\",\"names\":\"escaped \\\" quote\\\\\",\"sex\":\"F\"} , null,"
+            + "{\"clientId\":\"3\",\"names\":\"中文\",\"birthDate\":\"2000-01-01\"}]";
+
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(ByteBufAllocator.DEFAULT);
+    private final List<ByteBuf> allocated = new ArrayList<>();
+
+    @Test
+    void decodesElementsSplitAtEveryByte() {
+        byte[] json = ARRAY.getBytes(StandardCharsets.UTF_8);
+        List<byte[]> chunks = new ArrayList<>();
+        for (byte b : json) {
+            chunks.add(new byte[]{b});
+        }
+
+        assertThat(ids(decoder(-1).decodeElements(body(chunks), ClntDto.class).collectList().block()))
+                .containsExactly("1", "2", "3");
+        assertReleased();
+    }
+
+    @Test
+    void decodesElementsSplitAtEveryBoundary() {
+        byte[] json = ARRAY.getBytes(StandardCharsets.UTF_8);
+        for (int split = 0; split <= json.length; split++) {
+            List<byte[]> chunks = Arrays.asList(Arrays.copyOfRange(json, 0, split), Arrays.copyOfRange(json, split, json.length));
+
+            List<ClntDto> clnts = decoder(-1).decodeElements(body(chunks), ClntDto.class).collectList().block();
+
+            assertThat(ids(clnts)).as("split at %d", split).containsExactly("1", "2", "3");
+            assertThat(clnts.get(0).getNames()).isEqualTo("a, [b] {c}");
+            assertThat(clnts.get(1).getNames()).isEqualTo("escaped \" quote\\");
+            assertThat(clnts.get(2).getNames()).isEqualTo("中文");
+        }
+        assertReleased();
+    }
+
+    @Test
+    void decodesNonArrayAsSingleElement() {
+        List<byte[]> chunks = split("  {\"clientId\":\"9\"}", 3);
+
+        assertThat(ids(decoder(-1).decodeElements(body(chunks), ClntDto.class).collectList().block())).containsExactly("9");
+        assertReleased();
+    }
+
+    @Test
+    void decodesEmptyArray() {
+        assertThat(decoder(-1).decodeElements(body(split(" [ ] ", 1)), ClntDto.class).collectList().block()).isEmpty();
+        assertReleased();
+    }
+
+    @Test
+    void failsOnTruncatedArray() {
+        String truncated = "[{\"clientId\":\"1\"},{\"clientId\":\"2\"";
+
+        List<String> received = new ArrayList<>();
+        assertThatThrownBy(() -> decoder(-1).decodeElements(body(split(truncated, 5)), ClntDto.class)
+                .doOnNext(clnt -> received.add(clnt.getClientId()))
+                .blockLast())
+                .isInstanceOf(DecodingException.class);
+        assertThat(received).containsExactly("1");
+        assertReleased();
+    }
+
+    @Test
+    void failsOnElementOverLimit() {
+        String json = "[{\"clientId\":\"1\"},{\"clientId\":\"2\",\"names\":\"" + "x".repeat(200) + "\"}]";
+
+        List<String> received = new ArrayList<>();
+        assertThatThrownBy(() -> decoder(64).decodeElements(body(split(json, 16)), ClntDto.class)
+                .doOnNext(clnt -> received.add(clnt.getClientId()))
+                .blockLast())
+                .isInstanceOf(DataBufferLimitException.class);
+        assertThat(received).containsExactly("1");
+        assertReleased();
+    }
+
+    @Test
+    void limitAppliesPerElement() {
+        String element = "{\"clientId\":\"1\",\"names\":\"" + "x".repeat(40) + "\"}";
+        String json = "[" + String.join(",", element, element, element, element) + "]";
+
+        List<ClntDto> clnts = decoder(element.length()).decodeElements(body(split(json, 7)), ClntDto.class)
+                .collectList().block();
+
+        assertThat(clnts).hasSize(4);
+        assertReleased();
+    }
+
+    @Test
+    void releasesBuffersOnCancel() {
+        List<ClntDto> first = decoder(-1).decodeElements(body(split(ARRAY, 10)), ClntDto.class).take(1).collectList().block();
+
+        assertThat(ids(first)).containsExactly("1");
+        assertReleased();
+    }
+
+    private TypedJsonDecoder decoder(int maxInMemorySize) {
+        return new TypedJsonDecoder(new ObjectMapper(), maxInMemorySize);
+    }
+
+    /**
+     * 每段 bytes 各自一個 DataBuffer (直接記憶體，可檢查是否釋放)
+     */
+    private Flux<DataBuffer> body(List<byte[]> chunks) {
+        return Flux.fromIterable(chunks).map(chunk -> {
+            ByteBuf byteBuf = Unpooled.directBuffer(chunk.length).writeBytes(chunk);
+            allocated.add(byteBuf);
+            return bufferFactory.wrap(byteBuf);
+        });
+    }
+
+    private static List<byte[]> split(String json, int chunkSize) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        List<byte[]> chunks = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += chunkSize) {
+            chunks.add(Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i + chunkSize)));
+        }
+        return chunks;
+    }
+
+    private static List<String> ids(List<ClntDto> clnts) {
+        return clnts.stream().map(ClntDto::getClientId).collect(Collectors.toList());
+    }
+
+    private void assertReleased() {
+        assertThat(allocated).allSatisfy(byteBuf -> assertThat(byteBuf.refCnt()).isZero());
+    }
+}